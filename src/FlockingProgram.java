@@ -1,190 +1,372 @@
-/*Part of the default package so no package identifier needed*/
-
-//Imports for the creation of the GUI and handling inputs to buttons etc.
-import drawing.Canvas;
-import window.Controls;
-import window.Obstacle;
-import window.Window;
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-
-//Imports for the creation and synchronisation of lists
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
-//Import of the entity class used to create the birds/entities.
-import entity.Entity;
-
-//Used to identify an entities location
-import geometry.CartesianCoordinate;
-
-//Used to make the program wait
-import tools.Utils;
-
-public class FlockingProgram {
-
-	/*
-	 * Create local variables to store the frame, canvas and side panel.
-	 * canvas will be where the entities are drawn. sidePanel where the
-	 * controls will be and frame is to display two.
-	 */
-	private JFrame frame;
-	private Canvas canvas;
-	private JPanel sidePanel;
-
-	//Create a variable for the obstacle and nestLocation.
-	private Obstacle obstacle;
-	private CartesianCoordinate nestLocation;
-
-	/*
-	 * Create a list of entities to store every single entity to draw in and
-	 * a list of entities to add, so they can be added at the correct time 
-	 * in the simulation loop.
-	 */
-	private List<Entity> entities;
-	private List<Entity> entitiesToAdd;
-	
-	//Create a variable for the window and controls.
-	private Window window;
-	private Controls controls;
-
-	/*
-	 * The constructor for the program overall. This will run after main().
-	 * It creates the window, controls, lists of entities, synchronises them 
-	 * and creates the nest location. It then automatically runs the simulation
-	 * loop and the user can interact with the program.
-	 */
-	private FlockingProgram() {
-		
-		//Instantiate frame, canvas and sidePanel.
-		frame = new JFrame();
-		sidePanel = new JPanel();
-		canvas = new Canvas();
-		
-		//Use the window class to create objects for the GUI..
-		window = new Window(frame, sidePanel, canvas);
-		controls = new Controls(sidePanel, canvas, entities);
-		obstacle = new Obstacle(canvas);
-		
-		//Draw the created objects.
-		window.createFrames();
-		controls.createControls();
-		obstacle.draw();
-
-		//Synchronise the lists of entities and entities to add to prevent issues 
-		//in the simulation loop.
-		entities = Collections.synchronizedList(new ArrayList<Entity>());
-		entitiesToAdd = Collections.synchronizedList(new ArrayList<Entity>());
-		
-		//Create a nest location for the birds to be drawn too
-		nestLocation = new CartesianCoordinate(100, 100); 
-		
-		//Run simulation loop.
-		simulationLoop();
-		
-	}
-
-	/*
-	 * This loop runs constantly throughout use of the program. It calculates,
-	 * moves, draws and adds entities from the add list. Any other function 
-	 * of the program is operated by the Change and Action listeners found 
-	 * in window -> controls.
-	 */
-	private void simulationLoop() {
-
-		//Creates an infinite loop, the program can be terminated by exiting the window.
-		//At which point, this will stop running.
-		while (true) {
-
-			/*
-			 * Draws all entities stored in the list entities.
-			 */			
-			synchronized (entities) { 
-				for (Entity entity : entities) {
-
-					//Every object in the list is iterated over and its draw() function called.
-					entity.draw();
-			
-				}}
-
-			//Pauses the program for 20 milliseconds to make the drawn entities more viewable.
-			Utils.pause(20);
-
-			/*
-			 * Moves the entity according to its current movement values, then calculates new
-			 * ones. The entity is then un-drawn. In depth explanations of each action are found
-			 * within in its respective method/class.
-			 */
-			synchronized (entities) { 
-				for (Entity entity : entities) {
-
-					//Move the entity, this needs the current speed from the on screen slider.
-					entity.move(controls.getSpeed());
-					
-					//Apply the cohesive factor to the entity / Move them closer.
-					entity.applyCohesion(controls.getCohesionFactor());
-					
-					//Apply the separation factor to the entity / Move them apart.
-					entity.applySeperation(controls.getSeperationFactor());
-					
-					//Apply the alignment factor to the entity / Move them in the same direction.
-					entity.applyAlignment(controls.getAlignmentFactor());
-					
-					//Apply the nest attraction factor to the entity / move it towards (100,100).
-					entity.applyNestAttraction(nestLocation, controls.getNestAttractionFactor());
-					
-					//Apply the avoidance factor and check if it has been hit.
-					entity.applyObstacleAvoidance();
-					
-					//See if the entity has hit another entity.
-					entity.applyCollisions(entities, controls.isCollisionDetection());
-					
-					//Move entities away from nearby predators.
-					entity.applyPredator();
-					
-					//If the entity leaves the screen, make it reappear on the other side.
-					entity.wrapPosition();
-					
-					//Remove the entity from view.
-					entity.undraw();
-
-				}}
-
-			//Get the list of entities to add from the controls.
-			entitiesToAdd = controls.getEntitiesToAdd();
-			
-			/*
-			 * If there are any entities to add, add them to the main list of entities.
-			 */
-			if (entitiesToAdd.size() != 0) {
-				
-				synchronized (entitiesToAdd) { 
-					for (Entity entity : entitiesToAdd) {
-						
-						entities.add(entity);
-						
-					}
-				
-				}
-				
-				//CLear the list so the entities are not added again by mistake.
-				entitiesToAdd.clear();
-					
-			}
-
-		}
-
-	}
-
-	/*
-	 * The main function serves as the entry point to the program. 
-	 * It simply starts a new FlockingProgram()
-	 */
-	public static void main(String[] args) {
-
-		new FlockingProgram();
-
-	}
-
-}
+/*Part of the default package so no package identifier needed*/
+
+//Imports for the creation of the GUI and handling inputs to buttons etc.
+import drawing.Canvas;
+import drawing.EntityFrame;
+import drawing.FrameExporter;
+import drawing.FrameTripleBuffer;
+import window.Controls;
+import window.Obstacle;
+import window.Window;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+
+//Imports for the creation and synchronisation of lists
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+//Import of the entity class used to create the birds/entities, the simulation which runs
+//them and the integrator used to move them.
+import entity.Entity;
+import entity.EventRing;
+import entity.Integrator;
+import entity.Population;
+import entity.QualityController;
+import entity.SharedFlockState;
+import entity.Simulation;
+
+//Used to identify an entities location
+import geometry.CartesianCoordinate;
+
+//Used to describe the world the entities live in.
+import geometry.World;
+
+//Used to make the program wait
+import tools.Utils;
+
+//Used to read how often to report the simulation's events.
+import tools.Settings;
+
+//Used if sharing the flock state with another program fails.
+import java.io.IOException;
+
+//Used to stream the simulation to viewers on other machines.
+import network.StateServer;
+
+public class FlockingProgram {
+
+	/*
+	 * Create local variables to store the frame, canvas and side panel.
+	 * canvas will be where the entities are drawn. sidePanel where the
+	 * controls will be and frame is to display two.
+	 */
+	private JFrame frame;
+	private Canvas canvas;
+	private JPanel sidePanel;
+
+	//Create a variable for the obstacle and nestLocation.
+	private Obstacle obstacle;
+	private CartesianCoordinate nestLocation;
+	
+	//Create the world the entities live in.
+	private World world;
+
+	/*
+	 * Create a list of entities to add, so they can be added at the correct time 
+	 * in the simulation loop.
+	 */
+	private List<Entity> entitiesToAdd;
+	
+	/*
+	 * Create the simulation, which stores every entity and runs each tick, and the integrator
+	 * it uses to move them all at once.
+	 */
+	private Simulation simulation;
+	private Integrator integrator;
+	
+	//Create a variable for keeping each tick within its time budget (null if always full quality).
+	private QualityController quality;
+	
+	//Create a variable for sharing the flock state with other programs (null if not shared).
+	private SharedFlockState sharedState;
+	
+	//Create a variable for saving ticks as images (null if not exporting).
+	private FrameExporter exporter;
+	
+	//Create a variable for streaming ticks to remote viewers (null if not streaming).
+	private StateServer server;
+	
+	//Create a variable for the window and controls.
+	private Window window;
+	private Controls controls;
+
+	/*
+	 * The constructor for the program overall. This will run after main().
+	 * It creates the window, controls, lists of entities, synchronises them 
+	 * and creates the nest location. It then automatically runs the simulation
+	 * loop and the user can interact with the program.
+	 */
+	private FlockingProgram() {
+		
+		//Instantiate frame, canvas and sidePanel.
+		frame = new JFrame();
+		sidePanel = new JPanel();
+		canvas = new Canvas();
+		
+		//Create the world using the size from the settings (700x500 by default).
+		world = World.fromSettings();
+		
+		//Use the window class to create objects for the GUI..
+		window = new Window(frame, sidePanel, canvas, world);
+		canvas.setWorld(world);
+		controls = new Controls(sidePanel, canvas, world, entitiesToAdd);
+		obstacle = new Obstacle(canvas, world);
+		
+		//Draw the created objects.
+		window.createFrames();
+		controls.createControls();
+		obstacle.draw();
+
+		//Synchronise the list of entities to add to prevent issues in the simulation loop.
+		entitiesToAdd = Collections.synchronizedList(new ArrayList<Entity>());
+		
+		//Create the integrator chosen in the settings (scalar by default).
+		integrator = Integrator.fromSettings();
+		
+		//Share the flock state through shared memory if the settings ask for it.
+		sharedState = SharedFlockState.fromSettings();
+		
+		//Save ticks as images if the settings ask for it, drawn the same way as the canvas. The frames
+		//still being saved are finished off when the program is closed.
+		exporter = FrameExporter.fromSettings(world, canvas.getRenderer());
+		if (exporter != null) {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				exporter.close(5000);
+				System.out.println(exporter);
+			}));
+		}
+		
+		//Stream ticks to remote viewers if the settings ask for it.
+		server = StateServer.fromSettings(world);
+		if (server != null) {
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				server.close();
+				System.out.println(server);
+			}));
+		}
+		
+		//Create a nest location for the birds to be drawn too
+		nestLocation = new CartesianCoordinate(100, 100); 
+		
+		//Create the simulation, it is run by the simulation loop.
+		simulation = new Simulation(world, integrator, nestLocation);
+		
+		//Fill the world with entities at the start if the settings ask for it.
+		try {
+			
+			Population population = Population.fromSettings();
+			if (population != null) {
+				long start = System.nanoTime();
+				int added = simulation.populate(population);
+				System.out.printf("Added %d entities in %.2f seconds (%s).%n", added, (System.nanoTime() - start) / 1e9, population);
+			}
+			
+		} catch (IOException | IllegalArgumentException e) {
+			System.out.println("Cannot add the population (" + e + ").");
+		}
+		
+		//Trade quality for speed when ticks take longer than the budget in the settings.
+		quality = QualityController.fromSettings();
+		
+		//Report what is happening to the entities if the settings ask for it.
+		startEventReport();
+		
+		//Run simulation loop.
+		simulationLoop();
+		
+	}
+
+	/*
+	 * Starts a thread which reads the simulation's events and prints how many of each type there were
+	 * every "events.report" seconds. It reads on its own thread so the simulation loop never waits for it.
+	 */
+	private void startEventReport() {
+		
+		EventRing events = simulation.getEvents();
+		double interval = Settings.getDouble("events.report", 0);
+		if (events == null || interval <= 0) {
+			return;
+		}
+		
+		EventRing.Reader reader = events.newReader(1024);
+		Thread thread = new Thread(() -> {
+			
+			long[] counts = new long[EventRing.NAMES.length];
+			long lost = 0;
+			long reportAt = System.nanoTime() + (long) (interval * 1e9);
+			
+			while (true) {
+				
+				//Read every batch waiting, then wait a little for more.
+				int read;
+				while ((read = reader.read()) != 0) {
+					for (int index = 0; index < read; index++) {
+						counts[reader.getType(index)]++;
+					}
+				}
+				Utils.pause(50);
+				
+				if (System.nanoTime() >= reportAt) {
+					
+					StringBuilder report = new StringBuilder("Events:");
+					for (int type = 0; type < counts.length; type++) {
+						report.append(String.format(" %d %s,", counts[type], EventRing.NAMES[type]));
+					}
+					report.append(String.format(" %d lost", reader.getLost() - lost));
+					System.out.println(report);
+					
+					lost = reader.getLost();
+					Arrays.fill(counts, 0);
+					reportAt = reportAt + (long) (interval * 1e9);
+					
+				}
+				
+			}
+			
+		}, "Event report");
+		thread.setDaemon(true);
+		thread.start();
+		
+	}
+
+	/*
+	 * This loop runs constantly throughout use of the program. It calculates,
+	 * moves, draws and adds entities from the add list. Any other function 
+	 * of the program is operated by the Change and Action listeners found 
+	 * in window -> controls.
+	 */
+	private void simulationLoop() {
+
+		//Creates an infinite loop, the program can be terminated by exiting the window.
+		//At which point, this will stop running.
+		while (true) {
+
+			//Pauses the program for 20 milliseconds to make the drawn entities more viewable.
+			Utils.pause(20);
+
+			//Give the simulation the values from the on screen controls, then run one tick. In depth
+			//explanations of each action are found within the simulation and entity classes.
+			simulation.setSpeed(controls.getSpeed());
+			simulation.setCohesionFactor(controls.getCohesionFactor());
+			simulation.setSeperationFactor(controls.getSeperationFactor());
+			simulation.setAlignmentFactor(controls.getAlignmentFactor());
+			simulation.setNestAttractionFactor(controls.getNestAttractionFactor());
+			simulation.setFlockAttractionFactor(controls.getFlockAttractionFactor());
+			simulation.setOpeningAngle(controls.getOpeningAngle());
+			simulation.setCollisionDetection(controls.isCollisionDetection());
+			if (quality != null) {
+				quality.apply(simulation);
+			}
+			
+			long start = System.nanoTime();
+			simulation.tick();
+			
+			long tick = simulation.getTick();
+				
+			//Hand the canvas a copy of the finished tick, it only draws the entities in view. The copy
+			//goes through a triple buffer so neither the simulation nor the canvas waits for the other.
+			if (quality == null || quality.shouldRender(tick)) {
+				FrameTripleBuffer frames = canvas.getFrameBuffer();
+				EntityFrame entityFrame = frames.getBackFrame();
+				simulation.getFlockState().copyTo(entityFrame, tick);
+				frames.publish();
+				canvas.repaint();
+			}
+			
+			//Tell the quality controller how long the tick took, and show the level if it changed.
+			if (quality != null && quality.record(System.nanoTime() - start)) {
+				controls.setQuality(quality.getLevelName());
+				System.out.println(quality);
+			}
+			
+			//Hand a copy to the exporter too, if it has a spare frame, otherwise the tick is skipped.
+			if (exporter != null && exporter.wants(tick)) {
+				
+				EntityFrame exportFrame = exporter.takeFrame();
+				if (exportFrame != null) {
+					simulation.getFlockState().copyTo(exportFrame, tick);
+					exporter.export(exportFrame);
+				}
+				
+			}
+			
+			//Hand a copy to the remote viewers too, if a frame is spare, otherwise the tick is skipped.
+			if (server != null) {
+				
+				EntityFrame streamFrame = server.takeFrame();
+				if (streamFrame != null) {
+					simulation.getFlockState().copyTo(streamFrame, tick);
+					server.publish(streamFrame);
+				}
+				
+				//Report how the viewers are keeping up every so often.
+				if (tick % 1000 == 0) {
+					System.out.println(server);
+				}
+				
+			}
+			
+			//Share the finished tick with any other programs watching.
+			if (sharedState != null) {
+				
+				try {
+					sharedState.publish(simulation.getFlockState(), world, tick);
+				} catch (IOException e) {
+					System.out.println("Stopped sharing the flock state (" + e + ").");
+					sharedState = null;
+				}
+				
+			}
+
+			//Get the list of entities to add from the controls.
+			entitiesToAdd = controls.getEntitiesToAdd();
+			
+			/*
+			 * If there are any entities to add, add them to the simulation, which moves
+			 * their location and angle into its flock state.
+			 */
+			if (entitiesToAdd.size() != 0) {
+				
+				synchronized (entitiesToAdd) { 
+					for (Entity entity : entitiesToAdd) {
+						
+						simulation.add(entity);
+						
+					}
+				
+				}
+				
+				//CLear the list so the entities are not added again by mistake.
+				entitiesToAdd.clear();
+					
+			}
+			
+			//Remove any entities the remove button has been pressed for.
+			int entitiesToRemove = controls.takeEntitiesToRemove();
+			if (entitiesToRemove != 0) {
+				simulation.removeRandom(entitiesToRemove);
+			}
+			
+			//Add any entities the add population button has been pressed for, all at once.
+			int populationToAdd = controls.takePopulationToAdd();
+			if (populationToAdd != 0) {
+				simulation.populate(Population.uniform(populationToAdd, System.nanoTime()));
+			}
+
+		}
+
+	}
+
+	/*
+	 * The main function serves as the entry point to the program. 
+	 * It simply starts a new FlockingProgram()
+	 */
+	public static void main(String[] args) {
+
+		new FlockingProgram();
+
+	}
+
+}
@@ -0,0 +1,114 @@
+/* The benchmark package contains programs which time parts of the simulation without the GUI. */
+package benchmark;
+
+//Imports for the entities, the state storing their locations and the integrators.
+import drawing.Canvas;
+import entity.Entity;
+import entity.FlockState;
+import entity.Integrator;
+import entity.RandomEntity;
+import entity.ScalarIntegrator;
+
+//Import the world the entities live in.
+import geometry.World;
+
+//Used to store the entity objects for the per entity run.
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Times the move-and-wrap stage three ways, for several population sizes:
+ *
+ * 		entity - calling move() and wrapPosition() on every Entity object (the original loop).
+ * 		scalar - the ScalarIntegrator looping over the FlockState columns.
+ * 		vector - the VectorIntegrator, if it can be loaded.
+ *
+ * Each run is warmed up first so the JIT has compiled the code being timed. To include the
+ * vector integrator, compile and run with the incubator module (see README.txt):
+ *
+ * 		java -Djava.awt.headless=true --add-modules jdk.incubator.vector benchmark.IntegratorBenchmark
+ */
+public class IntegratorBenchmark {
+
+	//How long to warm up and measure each run for, in milliseconds.
+	private static final long WARMUP_TIME = 1000;
+	private static final long MEASURE_TIME = 2000;
+
+	public static void main(String[] args) {
+
+		World world = new World(10000, 10000);
+		Canvas canvas = new Canvas();
+
+		//Try to load the vector integrator the same way the program does.
+		System.setProperty("integrator", "vector");
+		Integrator vector = Integrator.fromSettings();
+		boolean vectorAvailable = !(vector instanceof ScalarIntegrator);
+
+		System.out.println("population,method,nanosecondsPerEntity,millionEntitiesPerSecond");
+
+		for (int population : new int[] {1000, 10000, 100000, 1000000}) {
+
+			//Create the population once, as entity objects adopted into one state.
+			FlockState state = new FlockState(population);
+			List<Entity> entities = new ArrayList<Entity>(population);
+
+			for (int counter = 0; counter < population; counter++) {
+				RandomEntity entity = new RandomEntity(canvas, world);
+				state.adopt(entity);
+				entities.add(entity);
+			}
+
+			report(population, "entity", time(() -> {
+				for (Entity entity : entities) {
+					entity.move(1);
+					entity.wrapPosition();
+				}
+			}));
+
+			Integrator scalar = new ScalarIntegrator();
+			report(population, "scalar", time(() -> scalar.moveAndWrap(state, 1, world)));
+
+			if (vectorAvailable) {
+				report(population, "vector", time(() -> vector.moveAndWrap(state, 1, world)));
+			}
+
+		}
+
+	}
+
+	/*
+	 * Runs a stage repeatedly, first to warm up and then while timing it.
+	 * @param stage, the stage to run.
+	 * @return nanoseconds double, the average time per run.
+	 */
+	static double time(Runnable stage) {
+
+		long end = System.currentTimeMillis() + WARMUP_TIME;
+		while (System.currentTimeMillis() < end) {
+			stage.run();
+		}
+
+		long runs = 0;
+		long start = System.nanoTime();
+		end = System.currentTimeMillis() + MEASURE_TIME;
+
+		while (System.currentTimeMillis() < end) {
+			stage.run();
+			runs++;
+		}
+
+		return (double) (System.nanoTime() - start) / runs;
+
+	}
+
+	/*
+	 * Prints one line of results.
+	 */
+	private static void report(int population, String method, double nanoseconds) {
+
+		double perEntity = nanoseconds / population;
+		System.out.printf("%d,%s,%.3f,%.1f%n", population, method, perEntity, 1000 / perEntity);
+
+	}
+
+}
@@ -0,0 +1,136 @@
+/* The benchmark package contains programs which time parts of the simulation without the GUI. */
+package benchmark;
+
+//Imports for the entities and the simulation which runs them.
+import entity.Integrator;
+import entity.RandomEntity;
+import entity.Simulation;
+
+//Imports for the world and the neighbour lists being measured.
+import geometry.CartesianCoordinate;
+import geometry.NeighbourList;
+import geometry.World;
+
+//Imports for handling the arguments and printing the results.
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * Measures how much sorting the flock state by location (see FlockState.sortByLocation()) helps,
+ * by running the same uniform population with sorting off and on. Entities are added in a random
+ * order, as they are in the GUI, so without sorting each flock is scattered through memory. For
+ * every run the following are printed:
+ *
+ * 		p50Milliseconds    - the median time of one tick.
+ * 		meanSlotGap        - the average distance (in slots) between consecutive entities in a
+ * 		                     neighbour list, how far apart in memory a flock is.
+ * 		sameCacheLine      - the fraction of consecutive entities in a neighbour list within 8 slots
+ * 		                     of each other, so their x, y and angle are in the same 64 byte line.
+ *
+ * The larger populations no longer fit in the processor's caches, which is where sorting matters.
+ * Java cannot read the processor's cache miss counters, to count them run the benchmark under a
+ * profiler, for example on Linux
+ *
+ * 		perf stat -e cache-misses,cache-references java -Djava.awt.headless=true benchmark.LocalityBenchmark
+ */
+public class LocalityBenchmark {
+
+	public static void main(String[] args) {
+
+		int[] populations = {10000, 100000, 1000000};
+		double seconds = 5;
+
+		if (args.length > 0) {
+			populations = Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray();
+		}
+		if (args.length > 1) {
+			seconds = Double.parseDouble(args[1]);
+		}
+
+		System.out.println("population,reorderInterval,ticks,p50Milliseconds,meanSlotGap,sameCacheLine");
+
+		for (int population : populations) {
+			for (int reorderInterval : new int[] {0, 100}) {
+				run(population, reorderInterval, seconds);
+			}
+		}
+
+	}
+
+	/*
+	 * Creates a uniform population, warms it up and then times it.
+	 * @param population, the number of entities.
+	 * @param reorderInterval, how often to sort the flock state, 0 for never.
+	 * @param seconds, roughly how long to time it for.
+	 */
+	private static void run(int population, int reorderInterval, double seconds) {
+
+		//The same density and shape of world as ScenarioBenchmark.
+		double height = Math.sqrt(population * 250 * 5 / 7.0);
+		World world = new World(height * 7 / 5, height);
+
+		Simulation simulation = new Simulation(world, Integrator.fromSettings(), new CartesianCoordinate(100, 100));
+		simulation.setReorderInterval(reorderInterval);
+
+		for (int counter = 0; counter < population; counter++) {
+			simulation.add(new RandomEntity(null, world));
+		}
+
+		//Warm up for a fifth of the time being measured, at least past the first sort.
+		long end = System.nanoTime() + (long) (seconds * 2e8);
+		for (int warmup = 0; warmup < 2 || System.nanoTime() < end; warmup++) {
+			simulation.tick();
+		}
+
+		long[] latencies = new long[1024];
+		int ticks = 0;
+		end = System.nanoTime() + (long) (seconds * 1e9);
+
+		while (ticks < 5 || System.nanoTime() < end) {
+
+			long start = System.nanoTime();
+			simulation.tick();
+
+			if (ticks == latencies.length) {
+				latencies = Arrays.copyOf(latencies, ticks * 2);
+			}
+			latencies[ticks++] = System.nanoTime() - start;
+
+		}
+
+		Arrays.sort(latencies, 0, ticks);
+
+		//Look at how far apart each neighbour list is in memory.
+		NeighbourList neighbourList = simulation.getSteeringKernel().getNeighbourList();
+		long gaps = 0;
+		long totalGap = 0;
+		long sameLine = 0;
+
+		if (neighbourList != null) {
+
+			int[] neighbours = neighbourList.getNeighbours();
+
+			for (int slot = 0; slot < population; slot++) {
+
+				int previous = slot;
+
+				for (int index = neighbourList.getStart(slot); index < neighbourList.getEnd(slot); index++) {
+
+					int gap = Math.abs(neighbours[index] - previous);
+					totalGap = totalGap + gap;
+					sameLine = sameLine + (gap <= 8 ? 1 : 0);
+					gaps++;
+					previous = neighbours[index];
+
+				}
+
+			}
+
+		}
+
+		System.out.printf(Locale.ROOT, "%d,%d,%d,%.3f,%.1f,%.3f%n", population, reorderInterval, ticks, latencies[ticks / 2] / 1e6,
+				gaps == 0 ? 0 : totalGap / (double) gaps, gaps == 0 ? 0 : sameLine / (double) gaps);
+
+	}
+
+}
@@ -0,0 +1,168 @@
+/* The benchmark package contains programs which time parts of the simulation without the GUI. */
+package benchmark;
+
+//Imports for the entities and the simulation which runs them.
+import entity.FlockState;
+import entity.Integrator;
+import entity.PredatorialEntity;
+import entity.RandomEntity;
+import entity.Simulation;
+
+//Imports for the world and locations.
+import geometry.CartesianCoordinate;
+import geometry.World;
+
+//Imports for handling the arguments and printing the results.
+import java.util.Arrays;
+import java.util.Locale;
+
+/*
+ * Compares steering in float (precision=float, see SteeringKernel) with steering in double. Two
+ * things are measured:
+ *
+ * 		drift - two copies of the same population, one steered each way, are run side by side
+ * 		        without being reset. Every so often the average and largest distance between the
+ * 		        same entity in each copy, and the average difference in angle, are printed. Flocking
+ * 		        is chaotic, so any difference at all grows until the copies are unrelated, what
+ * 		        matters is how many ticks that takes. The largest difference in angle after a single
+ * 		        tick from the same state is also printed.
+ * 		speed - the median tick time of each way for several population sizes.
+ *
+ * For example
+ *
+ * 		java -Xmx8g -Djava.awt.headless=true benchmark.PrecisionBenchmark 10000,100000,1000000 1000
+ */
+public class PrecisionBenchmark {
+
+	public static void main(String[] args) {
+
+		int[] populations = {10000, 100000, 1000000};
+		int driftTicks = 1000;
+
+		if (args.length > 0) {
+			populations = Arrays.stream(args[0].split(",")).mapToInt(Integer::parseInt).toArray();
+		}
+		if (args.length > 1) {
+			driftTicks = Integer.parseInt(args[1]);
+		}
+
+		drift(populations[0], driftTicks);
+
+		System.out.println();
+		System.out.println("population,precision,ticks,p50Milliseconds");
+
+		for (int population : populations) {
+			time(population, false);
+			time(population, true);
+		}
+
+	}
+
+	/*
+	 * Runs a population steered in double and in float side by side, printing how far apart they drift.
+	 * @param population, the number of entities.
+	 * @param ticks, the number of ticks to run.
+	 */
+	private static void drift(int population, int ticks) {
+
+		Simulation reference = create(population, false);
+		Simulation single = create(population, true);
+		single.getFlockState().copyFrom(reference.getFlockState());
+		FlockState expected = reference.getFlockState();
+		FlockState actual = single.getFlockState();
+		World world = reference.getWorld();
+
+		//The difference after one tick from the same state.
+		reference.tick();
+		single.tick();
+		double oneTick = 0;
+		for (int slot = 0; slot < population; slot++) {
+			oneTick = Math.max(oneTick, Math.abs(expected.getAngle(slot) - actual.getAngle(slot)));
+		}
+		System.out.printf(Locale.ROOT, "%d entities: largest difference in angle after one tick %.3g degrees%n", population, oneTick);
+
+		System.out.println("tick,meanDistance,maxDistance,meanAngleDifference");
+
+		for (int tick = 1; tick < ticks; tick++) {
+
+			reference.tick();
+			single.tick();
+
+			if (Integer.bitCount(tick + 1) == 1 || tick == ticks - 1) {
+
+				double totalDistance = 0;
+				double maxDistance = 0;
+				double totalAngle = 0;
+
+				for (int slot = 0; slot < population; slot++) {
+
+					double distance = Math.hypot(world.deltaX(expected.getX(slot), actual.getX(slot)),
+							world.deltaY(expected.getY(slot), actual.getY(slot)));
+					totalDistance = totalDistance + distance;
+					maxDistance = Math.max(maxDistance, distance);
+
+					//The angles are not kept between 0 and 360, so compare them around the circle.
+					double angle = Math.abs(Math.IEEEremainder(expected.getAngle(slot) - actual.getAngle(slot), 360));
+					if (!Double.isNaN(angle)) {
+						totalAngle = totalAngle + angle;
+					}
+
+				}
+
+				System.out.printf(Locale.ROOT, "%d,%.4g,%.4g,%.4g%n", tick + 1, totalDistance / population, maxDistance, totalAngle / population);
+
+			}
+
+		}
+
+	}
+
+	/*
+	 * Times a population steered one way.
+	 * @param population, the number of entities.
+	 * @param singlePrecision, true to steer in float.
+	 */
+	private static void time(int population, boolean singlePrecision) {
+
+		Simulation simulation = create(population, singlePrecision);
+
+		for (int warmup = 0; warmup < 20; warmup++) {
+			simulation.tick();
+		}
+
+		long[] latencies = new long[Math.max(5, (int) Math.min(200, 2e7 / population))];
+
+		for (int tick = 0; tick < latencies.length; tick++) {
+			long start = System.nanoTime();
+			simulation.tick();
+			latencies[tick] = System.nanoTime() - start;
+		}
+
+		Arrays.sort(latencies);
+		System.out.printf(Locale.ROOT, "%d,%s,%d,%.3f%n", population, singlePrecision ? "float" : "double", latencies.length,
+				latencies[latencies.length / 2] / 1e6);
+
+	}
+
+	/*
+	 * Creates a population spread evenly with one in 20 a predator, at the same density as
+	 * ScenarioBenchmark.
+	 */
+	private static Simulation create(int population, boolean singlePrecision) {
+
+		double height = Math.sqrt(population * 250 * 5 / 7.0);
+		World world = new World(height * 7 / 5, height);
+
+		Simulation simulation = new Simulation(world, Integrator.fromSettings(), new CartesianCoordinate(100, 100));
+		simulation.setFusedSteering(true);
+		simulation.getSteeringKernel().setSinglePrecision(singlePrecision);
+
+		for (int counter = 0; counter < population; counter++) {
+			simulation.add(counter % 20 == 0 ? new PredatorialEntity(null, world) : new RandomEntity(null, world));
+		}
+
+		return simulation;
+
+	}
+
+}
@@ -0,0 +1,327 @@
+/* The benchmark package contains programs which time parts of the simulation without the GUI. */
+package benchmark;
+
+//Imports for the entities and the simulation which runs them, exactly as the GUI does.
+import drawing.Canvas;
+import entity.Integrator;
+import entity.PredatorialEntity;
+import entity.RandomEntity;
+import entity.Simulation;
+
+//Imports for the world, its obstacles and locations.
+import geometry.CartesianCoordinate;
+import geometry.NeighbourList;
+import geometry.SignedDistanceField;
+import geometry.World;
+
+//Imports for measuring memory and garbage collection.
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+//Imports for building the obstacles and handling the arguments.
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/*
+ * Runs whole ticks of the simulation for several scripted scenarios and population sizes, and
+ * reports how the simulation scales. The scenarios are:
+ *
+ * 		uniform   - entities spread evenly over the world.
+ * 		flocks    - entities packed into flocks of 20 heading the same way.
+ * 		predators - entities spread evenly, one in every 20 a predator.
+ * 		obstacles - entities spread evenly around a world full of round obstacles.
+ *
+ * The world grows with the population so the number of entities per unit of area stays the same,
+ * so a flat curve means the simulation scales linearly. Each run is warmed up first, then for
+ * every run the following are recorded:
+ *
+ * 		ticksPerSecond                   - ticks run per second.
+ * 		p50Milliseconds, p99Milliseconds - the median and 99th percentile time of one tick.
+ * 		maxMilliseconds                  - the slowest tick.
+ * 		heapMegabytes                    - the most heap in use after a tick.
+ * 		gcMilliseconds                   - time spent collecting garbage while measuring.
+ * 		bytesPerEntity                   - heap kept alive by the simulation, divided by the population.
+ * 		listHitRate                      - the fraction of ticks which reused the neighbour lists
+ * 		                                   rather than searching the grid (see geometry.NeighbourList).
+ *
+ * The results are printed as CSV, or as JSON with --json. For example
+ *
+ * 		java -Xmx8g -Djava.awt.headless=true benchmark.ScenarioBenchmark --scenarios uniform,flocks --populations 1000,10000,100000,1000000 --seconds 10
+ */
+public class ScenarioBenchmark {
+
+	//Every scenario, in the order they are run.
+	private static final String[] SCENARIOS = {"uniform", "flocks", "predators", "obstacles"};
+
+	//The area of world given to each entity, 700x500 holds 1400 entities at this density.
+	private static final double AREA_PER_ENTITY = 250;
+
+	//The least number of ticks timed, however long they take.
+	private static final int MIN_TICKS = 5;
+
+	//The results of one run.
+	private static class Result {
+		String scenario;
+		int population;
+		int ticks;
+		double ticksPerSecond, p50, p99, max, heapMegabytes, gcMilliseconds, bytesPerEntity, listHitRate;
+	}
+
+	public static void main(String[] args) {
+
+		//Read the arguments.
+		List<String> scenarios = Arrays.asList(SCENARIOS);
+		int[] populations = {1000, 10000, 100000, 1000000};
+		double seconds = 5;
+		boolean json = false;
+
+		for (int index = 0; index < args.length; index++) {
+
+			switch (args[index]) {
+			case "--json":
+				json = true;
+				break;
+			case "--scenarios":
+				scenarios = Arrays.asList(args[++index].split(","));
+				break;
+			case "--populations":
+				populations = Arrays.stream(args[++index].split(",")).mapToInt(Integer::parseInt).toArray();
+				break;
+			case "--seconds":
+				seconds = Double.parseDouble(args[++index]);
+				break;
+			default:
+				System.err.println("Usage: ScenarioBenchmark [--json] [--scenarios " + String.join(",", SCENARIOS)
+						+ "] [--populations 1000,10000,...] [--seconds 5]");
+				return;
+			}
+
+		}
+
+		List<Result> results = new ArrayList<Result>();
+
+		if (!json) {
+			System.out.println("scenario,population,ticks,ticksPerSecond,p50Milliseconds,p99Milliseconds,maxMilliseconds,heapMegabytes,gcMilliseconds,bytesPerEntity,listHitRate");
+		}
+
+		for (String scenario : scenarios) {
+			for (int population : populations) {
+
+				Result result = run(scenario, population, seconds);
+				results.add(result);
+
+				if (!json) {
+					System.out.printf(Locale.ROOT, "%s,%d,%d,%.2f,%.3f,%.3f,%.3f,%.1f,%.1f,%.1f,%.3f%n", result.scenario, result.population, result.ticks,
+							result.ticksPerSecond, result.p50, result.p99, result.max, result.heapMegabytes, result.gcMilliseconds, result.bytesPerEntity,
+							result.listHitRate);
+				}
+
+			}
+		}
+
+		if (json) {
+			printJson(results);
+		}
+
+	}
+
+	/*
+	 * Creates a scenario, warms it up and then times it.
+	 * @param scenario, the name of the scenario.
+	 * @param population, the number of entities.
+	 * @param seconds, roughly how long to time it for.
+	 * @return result Result
+	 */
+	private static Result run(String scenario, int population, double seconds) {
+
+		MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+
+		//Measure the heap before and after creating the simulation to find what it keeps alive.
+		System.gc();
+		long heapBefore = memory.getHeapMemoryUsage().getUsed();
+
+		Simulation simulation = create(scenario, population);
+
+		System.gc();
+		long heapAfter = memory.getHeapMemoryUsage().getUsed();
+
+		//Warm up so the JIT has compiled the tick, for a fifth of the time being measured.
+		long end = System.nanoTime() + (long) (seconds * 2e8);
+		for (int warmup = 0; warmup < 2 || System.nanoTime() < end; warmup++) {
+			simulation.tick();
+		}
+
+		//Time every tick.
+		long[] latencies = new long[1024];
+		int ticks = 0;
+		long heapPeak = 0;
+		long gcBefore = totalGarbageCollectionTime();
+		long listBuildsBefore = listBuilds(simulation);
+		long start = System.nanoTime();
+		end = start + (long) (seconds * 1e9);
+
+		while (ticks < MIN_TICKS || System.nanoTime() < end) {
+
+			long tickStart = System.nanoTime();
+			simulation.tick();
+
+			if (ticks == latencies.length) {
+				latencies = Arrays.copyOf(latencies, ticks * 2);
+			}
+			latencies[ticks++] = System.nanoTime() - tickStart;
+			heapPeak = Math.max(heapPeak, memory.getHeapMemoryUsage().getUsed());
+
+		}
+
+		long elapsed = System.nanoTime() - start;
+		Arrays.sort(latencies, 0, ticks);
+
+		Result result = new Result();
+		result.scenario = scenario;
+		result.population = population;
+		result.ticks = ticks;
+		result.ticksPerSecond = ticks / (elapsed / 1e9);
+		result.p50 = latencies[percentile(ticks, 0.50)] / 1e6;
+		result.p99 = latencies[percentile(ticks, 0.99)] / 1e6;
+		result.max = latencies[ticks - 1] / 1e6;
+		result.heapMegabytes = heapPeak / 1048576.0;
+		result.gcMilliseconds = totalGarbageCollectionTime() - gcBefore;
+		result.bytesPerEntity = Math.max(0, heapAfter - heapBefore) / (double) population;
+		result.listHitRate = simulation.isFusedSteering() ? 1 - (listBuilds(simulation) - listBuildsBefore) / (double) ticks : 0;
+
+		return result;
+
+	}
+
+	/*
+	 * Creates the world and entities for a scenario.
+	 * @param scenario, the name of the scenario.
+	 * @param population, the number of entities.
+	 * @return simulation Simulation
+	 */
+	private static Simulation create(String scenario, int population) {
+
+		//Keep the world's shape 7:5 like the GUI's, sized to the population.
+		double height = Math.sqrt(population * AREA_PER_ENTITY * 5 / 7);
+		World world = new World(height * 7 / 5, height);
+		//The entities are never drawn so they do not need a canvas.
+		Canvas canvas = null;
+		Random random = new Random(population);
+
+		Simulation simulation = new Simulation(world, Integrator.fromSettings(), new CartesianCoordinate(100, 100));
+
+		switch (scenario) {
+
+		case "uniform":
+			for (int counter = 0; counter < population; counter++) {
+				simulation.add(new RandomEntity(canvas, world));
+			}
+			break;
+
+		case "flocks":
+			//Flocks of 20 in a 30x30 box, like pressing "Add Flock" over and over.
+			for (int counter = 0; counter < population; counter += 20) {
+
+				double x = random.nextDouble() * (world.getWidth() - 30);
+				double y = random.nextDouble() * (world.getHeight() - 30);
+				double angle = random.nextDouble() * 360;
+
+				for (int member = 0; member < 20 && counter + member < population; member++) {
+					simulation.add(new RandomEntity(canvas, world, new CartesianCoordinate(x, y), new CartesianCoordinate(x + 30, y + 30), angle));
+				}
+
+			}
+			break;
+
+		case "predators":
+			for (int counter = 0; counter < population; counter++) {
+				simulation.add(counter % 20 == 0 ? new PredatorialEntity(canvas, world) : new RandomEntity(canvas, world));
+			}
+			break;
+
+		case "obstacles":
+			//One round obstacle (radius 20) for every 100 entities, covering about an eighth of the world.
+			Path2D.Double obstacles = new Path2D.Double(Path2D.WIND_NON_ZERO);
+			for (int counter = 0; counter < Math.max(1, population / 100); counter++) {
+				double x = random.nextDouble() * world.getWidth();
+				double y = random.nextDouble() * world.getHeight();
+				obstacles.append(new Ellipse2D.Double(x - 20, y - 20, 40, 40), false);
+			}
+			world.setObstacles(SignedDistanceField.fromShape(obstacles, world, Math.max(1, world.getWidth() / 2048)));
+
+			for (int counter = 0; counter < population; counter++) {
+				simulation.add(new RandomEntity(canvas, world));
+			}
+			break;
+
+		default:
+			throw new IllegalArgumentException("Unknown scenario " + scenario);
+
+		}
+
+		return simulation;
+
+	}
+
+	/*
+	 * Gets the number of times the simulation's neighbour lists have been built.
+	 * @return builds long
+	 */
+	private static long listBuilds(Simulation simulation) {
+
+		NeighbourList neighbourList = simulation.getSteeringKernel().getNeighbourList();
+		return neighbourList == null ? 0 : neighbourList.getBuilds();
+
+	}
+
+	/*
+	 * Adds up the time spent in every garbage collector so far.
+	 * @return milliseconds long
+	 */
+	private static long totalGarbageCollectionTime() {
+
+		long milliseconds = 0;
+
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			milliseconds = milliseconds + Math.max(0, collector.getCollectionTime());
+		}
+
+		return milliseconds;
+
+	}
+
+	/*
+	 * Finds the index of a percentile in a sorted array (nearest rank).
+	 */
+	private static int percentile(int count, double fraction) {
+		return Math.min(count - 1, Math.max(0, (int) Math.ceil(fraction * count) - 1));
+	}
+
+	/*
+	 * Prints the results as a JSON array, one object per run.
+	 */
+	private static void printJson(List<Result> results) {
+
+		System.out.println("[");
+
+		for (int index = 0; index < results.size(); index++) {
+
+			Result result = results.get(index);
+			System.out.printf(Locale.ROOT, "  {\"scenario\": \"%s\", \"population\": %d, \"ticks\": %d, \"ticksPerSecond\": %.2f, \"p50Milliseconds\": %.3f, "
+					+ "\"p99Milliseconds\": %.3f, \"maxMilliseconds\": %.3f, \"heapMegabytes\": %.1f, \"gcMilliseconds\": %.1f, \"bytesPerEntity\": %.1f, \"listHitRate\": %.3f}%s%n",
+					result.scenario, result.population, result.ticks, result.ticksPerSecond, result.p50, result.p99, result.max,
+					result.heapMegabytes, result.gcMilliseconds, result.bytesPerEntity, result.listHitRate, index < results.size() - 1 ? "," : "");
+
+		}
+
+		System.out.println("]");
+
+	}
+
+}
@@ -0,0 +1,170 @@
+package drawing;
+
+import geometry.World;
+
+/**
+ * <h2>Camera</h2> This class represents the part of the world shown on the canvas.
+ *
+ * <P>The camera looks at a point in the world (its centre) at a scale, measured in
+ * pixels per world unit. Dragging the canvas pans the camera and the mouse wheel
+ * zooms it. The world wraps around, so positions are measured from the centre of the
+ * camera using the shortest distance across the edges, and the camera can be panned
+ * across an edge without a seam.
+ */
+public class Camera {
+	private World world;
+	private double centreX, centreY;
+	private double scale;
+	private int viewWidth, viewHeight;
+	private boolean fitted;
+	private final static double MAX_SCALE = 20;
+
+	/**
+	 * Constructor which produces a camera looking at the centre of the world. The
+	 * scale is set to fit the whole world in view once the size of the view is known.
+	 *
+	 * @param world
+	 *            The world being looked at.
+	 */
+	public Camera(World world) {
+		this.world = world;
+		centreX = world.getWidth() / 2;
+		centreY = world.getHeight() / 2;
+		scale = 1;
+	}
+
+	/**
+	 * Sets the size of the view in pixels, called whenever the canvas is painted. The
+	 * first time, the camera zooms so the whole world fits (never zooming in past 1
+	 * pixel per world unit, so the default 700 x 500 world looks as it always has).
+	 *
+	 * @param width
+	 *            Width of the view in pixels.
+	 * @param height
+	 *            Height of the view in pixels.
+	 */
+	public void setView(int width, int height) {
+		viewWidth = width;
+		viewHeight = height;
+		if (!fitted && width > 0 && height > 0) {
+			scale = Math.min(1, getMinimumScale());
+			fitted = true;
+		}
+	}
+
+	/**
+	 * Zooms and centres the camera so the whole world just fits in the view.
+	 */
+	public void zoomToFit() {
+		centreX = world.getWidth() / 2;
+		centreY = world.getHeight() / 2;
+		scale = getMinimumScale();
+		fitted = true;
+	}
+
+	/**
+	 * Moves the camera by a distance in pixels, e.g. when the canvas is dragged.
+	 *
+	 * @param dx
+	 *            Pixels to move right.
+	 * @param dy
+	 *            Pixels to move down.
+	 */
+	public void pan(double dx, double dy) {
+		centreX = world.wrapX(centreX + dx / scale);
+		centreY = world.wrapY(centreY + dy / scale);
+	}
+
+	/**
+	 * Zooms the camera, keeping the world point under a pixel in the same place on
+	 * screen. The camera cannot zoom out further than showing the whole world.
+	 *
+	 * @param factor
+	 *            How much to multiply the scale by (above 1 zooms in).
+	 * @param screenX
+	 *            The x pixel to zoom about.
+	 * @param screenY
+	 *            The y pixel to zoom about.
+	 */
+	public void zoom(double factor, double screenX, double screenY) {
+		double worldX = toWorldX(screenX);
+		double worldY = toWorldY(screenY);
+		scale = Math.max(getMinimumScale(), Math.min(MAX_SCALE, scale * factor));
+		centreX = world.wrapX(worldX - (screenX - viewWidth / 2.0) / scale);
+		centreY = world.wrapY(worldY - (screenY - viewHeight / 2.0) / scale);
+	}
+
+	/**
+	 * Converts a world x coordinate to a pixel on the canvas.
+	 */
+	public double toScreenX(double x) {
+		return viewWidth / 2.0 + world.deltaX(centreX, x) * scale;
+	}
+
+	/**
+	 * Converts a world y coordinate to a pixel on the canvas.
+	 */
+	public double toScreenY(double y) {
+		return viewHeight / 2.0 + world.deltaY(centreY, y) * scale;
+	}
+
+	/**
+	 * Converts a pixel on the canvas to a world x coordinate.
+	 */
+	public double toWorldX(double screenX) {
+		return world.wrapX(centreX + (screenX - viewWidth / 2.0) / scale);
+	}
+
+	/**
+	 * Converts a pixel on the canvas to a world y coordinate.
+	 */
+	public double toWorldY(double screenY) {
+		return world.wrapY(centreY + (screenY - viewHeight / 2.0) / scale);
+	}
+
+	/**
+	 * @return The world x coordinate at the left edge of the view (may be outside the world).
+	 */
+	public double getLeft() {
+		return centreX - viewWidth / 2.0 / scale;
+	}
+
+	/**
+	 * @return The world y coordinate at the top edge of the view (may be outside the world).
+	 */
+	public double getTop() {
+		return centreY - viewHeight / 2.0 / scale;
+	}
+
+	/**
+	 * @return The width of the view in world units.
+	 */
+	public double getVisibleWidth() {
+		return viewWidth / scale;
+	}
+
+	/**
+	 * @return The height of the view in world units.
+	 */
+	public double getVisibleHeight() {
+		return viewHeight / scale;
+	}
+
+	/**
+	 * @return The scale in pixels per world unit.
+	 */
+	public double getScale() {
+		return scale;
+	}
+
+	/**
+	 * @return The world being looked at.
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	private double getMinimumScale() {
+		return Math.min(viewWidth / world.getWidth(), viewHeight / world.getHeight());
+	}
+}
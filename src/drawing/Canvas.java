@@ -1,155 +1,356 @@
-/*
- * EXAMINER PLEASE NOTE 
- * 
- * Canvas.java was provided by Dr Stuart Porter as a part of Laboratory 3.
- * As stated in the assignment I have made this clear in both my report and program.
- * I have not altered the file in any way.
- * 
- * Canvas.java must be used as is stated in the assignment itself. As the file is 
- * already commented and as we have not edited the file itself in labs, I have chosen 
- * not to try and re-comment it.
- * */
-
-package drawing;
-
-import java.awt.BasicStroke;
-import java.awt.Graphics;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.geom.Line2D;
-
-import java.util.Collections;
-import java.util.ArrayList;
-import java.util.List;
-
-import javax.swing.JPanel;
-
-import geometry.CartesianCoordinate;
-import geometry.LineSegment;
-
-/**
- * <h2>Canvas</h2> This class represents a canvas object that can be drawn to
- * with various line segments.
- * 
- * <P>The list of LineSegment's is stored in a collection within the implementation
- * of the class. This collection is now synchronised to deal with the issue of
- * concurrent accesses to the collection.
- */
-public class Canvas extends JPanel {
-	private static final long serialVersionUID = 1L;
-	private int xSize, ySize;
-	private List<LineSegment> lines;
-	private final static int DEFAULT_X = 800;
-	private final static int DEFAULT_Y = 600;
-
-	/**
-	 * Default constructor which produces a canvas of the default size of 800 x
-	 * 600.
-	 */
-	public Canvas() {
-		this(DEFAULT_X, DEFAULT_Y);
-	}
-
-	/**
-	 * Constructor which produces a canvas of a specified size.
-	 * 
-	 * @param x
-	 *            Width of the canvas.
-	 * @param y
-	 *            Height of the canvas.
-	 */
-	public Canvas(int x, int y) {
-		xSize = x;
-		ySize = y;
-		setupCanvas();
-		lines = Collections.synchronizedList(new ArrayList<LineSegment>());
-	}
-
-	private void setupCanvas() {
-		setSize(xSize, ySize);
-		setVisible(true);
-		repaint();
-	}
-
-	/**
-	 * <b>NB: You never need to call this method yourself.</b> It handles the
-	 * drawing but is called automatically each time a line segment is drawn.
-	 */
-	@Override
-	public void paint(Graphics g) {
-		super.paint(g);
-		Graphics2D g2 = (Graphics2D) g;
-		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON); // Smoother
-																									// lines
-		g2.setStroke(new BasicStroke(3));
-
-		synchronized (lines) {
-			for (LineSegment line : lines) {
-				g2.draw(new Line2D.Double(line.getStartPoint().getX(), line.getStartPoint().getY(),
-						line.getEndPoint().getX(), line.getEndPoint().getY()));
-			}
-		}
-	}
-
-	/**
-	 * Draws a line between two CartesianCoordinates to the canvas.
-	 * 
-	 * @param startPoint
-	 *            Starting coordinate.
-	 * @param endPoint
-	 *            Ending coordinate.
-	 */
-	public void drawLineBetweenPoints(CartesianCoordinate startPoint, CartesianCoordinate endPoint) {
-		synchronized (lines) {
-			lines.add(new LineSegment(startPoint, endPoint));
-		}
-		repaint();
-	}
-
-	/**
-	 * Draws a line segment to the canvas.
-	 * 
-	 * @param lineSegment
-	 *            The LineSegment to draw.
-	 */
-	public void drawLineSegment(LineSegment lineSegment) {
-		synchronized (lines) {
-			lines.add(lineSegment);
-		}
-		repaint();
-	}
-
-	/**
-	 * Draws multiple line segments to the canvas.
-	 * 
-	 * @param lineSegments
-	 *            An array of LineSegment.
-	 */
-	public void drawLineSegments(LineSegment[] lineSegments) {
-		for (LineSegment thisLineSegment : lineSegments) {
-			synchronized (lines) {
-				lines.add(thisLineSegment);
-			}
-		}
-		repaint();
-	}
-
-	/**
-	 * Removes the most recently added line from the drawing.
-	 */
-	public void removeMostRecentLine() {
-		synchronized (lines) {
-			lines.remove(lines.size() - 1);
-		}
-	}
-
-	/**
-	 * Clears the canvas of all drawing.
-	 */
-	public void clear() {
-		synchronized (lines) {
-			lines.clear();
-		}
-		repaint();
-	}
-}
+/*
+ * EXAMINER PLEASE NOTE 
+ * 
+ * Canvas.java was provided by Dr Stuart Porter as a part of Laboratory 3.
+ * As stated in the assignment I have made this clear in both my report and program.
+ * I did not alter the file for the assignment. It has since been extended to draw
+ * frames of entities through a camera that can pan and zoom (see Camera and EntityFrame).
+ * 
+ * Canvas.java must be used as is stated in the assignment itself. As the file is 
+ * already commented and as we have not edited the file itself in labs, I have chosen 
+ * not to try and re-comment it.
+ * */
+
+package drawing;
+
+import java.awt.BasicStroke;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Line2D;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.swing.JPanel;
+
+import geometry.CartesianCoordinate;
+import geometry.LineSegment;
+import geometry.World;
+
+/**
+ * <h2>Canvas</h2> This class represents a canvas object that can be drawn to
+ * with various line segments.
+ * 
+ * <P>The list of LineSegment's is stored in a collection within the implementation
+ * of the class. This collection is now a copy on write list, so painting reads a
+ * snapshot of it without holding a lock while other threads add or remove lines.
+ *
+ * <P>Once a world has been set the canvas also draws the latest EntityFrame
+ * published by the simulation through a FrameTripleBuffer, through a Camera. Neither
+ * the simulation nor painting ever waits for the other. The entities are drawn by a
+ * FrameRenderer, which only visits the cells of the frame that are in view, so the
+ * cost of painting depends on what is on screen rather than on the total number of
+ * entities. With tiled rendering on, the entities are instead drawn straight into
+ * the pixels of one image on every processor at once (see TileRasterizer) and the
+ * image is drawn in one go, which is far quicker for large numbers of entities.
+ *
+ * <P>Alternatively the canvas can show a density view, a heatmap of how many
+ * entities are on each pixel (optionally with trails) drawn as one image, see
+ * DensityRaster.
+ */
+public class Canvas extends JPanel {
+	private static final long serialVersionUID = 1L;
+	private int xSize, ySize;
+	private List<LineSegment> lines;
+	private final static int DEFAULT_X = 800;
+	private final static int DEFAULT_Y = 600;
+	private Camera camera;
+	private FrameTripleBuffer frames;
+	private final FrameRenderer renderer = new FrameRenderer();
+	private final TileRasterizer rasterizer = new TileRasterizer(renderer.getSprites());
+	private boolean tiledRendering;
+	private boolean densityView;
+	private double trail;
+	private DensityRaster density;
+	private long densityTick = -1;
+	private double densityLeft, densityTop, densityScale;
+
+	/**
+	 * Default constructor which produces a canvas of the default size of 800 x
+	 * 600.
+	 */
+	public Canvas() {
+		this(DEFAULT_X, DEFAULT_Y);
+	}
+
+	/**
+	 * Constructor which produces a canvas of a specified size.
+	 * 
+	 * @param x
+	 *            Width of the canvas.
+	 * @param y
+	 *            Height of the canvas.
+	 */
+	public Canvas(int x, int y) {
+		xSize = x;
+		ySize = y;
+		setupCanvas();
+		lines = new CopyOnWriteArrayList<LineSegment>();
+	}
+
+	private void setupCanvas() {
+		setSize(xSize, ySize);
+		setVisible(true);
+		repaint();
+	}
+
+	/**
+	 * <b>NB: You never need to call this method yourself.</b> It handles the
+	 * drawing but is called automatically each time a line segment is drawn.
+	 */
+	@Override
+	public void paint(Graphics g) {
+		super.paint(g);
+		Graphics2D g2 = (Graphics2D) g;
+
+		if (camera != null) {
+			camera.setView(getWidth(), getHeight());
+			EntityFrame latest = frames.getLatestFrame();
+			if (densityView) {
+				paintDensity(g2, latest);
+				renderer.renderBackdrop(g2, camera, getWidth(), getHeight());
+			} else if (tiledRendering) {
+				renderer.renderBackdrop(g2, camera, getWidth(), getHeight());
+				g2.drawImage(rasterizer.render(latest, camera, getWidth(), getHeight()), 0, 0, null);
+			} else {
+				renderer.render(g2, latest, camera, getWidth(), getHeight());
+			}
+		}
+
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON); // Smoother
+																									// lines
+		g2.setStroke(new BasicStroke(3));
+
+		for (LineSegment line : lines) {
+			g2.draw(new Line2D.Double(screenX(line.getStartPoint().getX()), screenY(line.getStartPoint().getY()),
+					screenX(line.getEndPoint().getX()), screenY(line.getEndPoint().getY())));
+		}
+	}
+
+	/**
+	 * Draws the density view. Each new frame is faded into the raster once, however
+	 * many times the canvas is painted, and the trails are cleared if the camera moves
+	 * or the canvas is resized.
+	 */
+	private void paintDensity(Graphics2D g2, EntityFrame frame) {
+		if (density == null || density.getWidth() != getWidth() || density.getHeight() != getHeight()) {
+			density = new DensityRaster(getWidth(), getHeight(), trail);
+			densityTick = -1;
+		}
+		if (camera.getLeft() != densityLeft || camera.getTop() != densityTop || camera.getScale() != densityScale) {
+			density.clear();
+			densityLeft = camera.getLeft();
+			densityTop = camera.getTop();
+			densityScale = camera.getScale();
+		}
+		if (frame != null && frame.getTick() != densityTick) {
+			density.fade();
+			density.accumulate(frame, camera);
+			densityTick = frame.getTick();
+		}
+		g2.drawImage(density.toImage(), 0, 0, null);
+	}
+
+	private double screenX(double x) {
+		return camera == null ? x : camera.toScreenX(x);
+	}
+
+	private double screenY(double y) {
+		return camera == null ? y : camera.toScreenY(y);
+	}
+
+	/**
+	 * Sets the world shown on the canvas. A camera is created looking at the world,
+	 * which can be panned by dragging the canvas and zoomed with the mouse wheel.
+	 *
+	 * @param world
+	 *            The world to show.
+	 */
+	public void setWorld(World world) {
+		camera = new Camera(world);
+		frames = new FrameTripleBuffer(world);
+		cameraMouseListener listener = new cameraMouseListener();
+		addMouseListener(listener);
+		addMouseMotionListener(listener);
+		addMouseWheelListener(listener);
+	}
+
+	/**
+	 * The simulation fills in the back frame of this buffer and publishes it, then
+	 * calls repaint().
+	 *
+	 * @return The frames handed from the simulation to the canvas, or null if no
+	 *         world has been set.
+	 */
+	public FrameTripleBuffer getFrameBuffer() {
+		return frames;
+	}
+
+	/**
+	 * Sets an image drawn behind the entities, placed in the world so it pans and
+	 * zooms with the camera.
+	 *
+	 * @param image
+	 *            The image to draw.
+	 * @param x
+	 *            World x coordinate of the top left of the image.
+	 * @param y
+	 *            World y coordinate of the top left of the image.
+	 */
+	public void setBackdrop(Image image, double x, double y) {
+		renderer.setBackdrop(image, x, y);
+		repaint();
+	}
+
+	/**
+	 * @return The renderer the canvas draws entities with, which can also be used to
+	 *         draw them offscreen.
+	 */
+	public FrameRenderer getRenderer() {
+		return renderer;
+	}
+
+	/**
+	 * Switches between drawing each entity and drawing the density view.
+	 *
+	 * @param densityView
+	 *            True to draw the density view.
+	 */
+	public void setDensityView(boolean densityView) {
+		this.densityView = densityView;
+		if (density != null) {
+			density.clear();
+		}
+		repaint();
+	}
+
+	/**
+	 * Switches between drawing the entities with Java2D and drawing them into one
+	 * image in parallel tiles (see TileRasterizer).
+	 *
+	 * @param tiledRendering
+	 *            True to draw in parallel tiles.
+	 */
+	public void setTiledRendering(boolean tiledRendering) {
+		this.tiledRendering = tiledRendering;
+		repaint();
+	}
+
+	/**
+	 * Sets how long the trails in the density view last.
+	 *
+	 * @param trail
+	 *            The fraction of the density kept from one frame to the next, 0 for
+	 *            no trails, up to 0.99 for long trails.
+	 */
+	public void setTrail(double trail) {
+		this.trail = trail;
+		if (density != null) {
+			density.setTrail(trail);
+		}
+	}
+
+	/**
+	 * @return True if the density view is being drawn.
+	 */
+	public boolean isDensityView() {
+		return densityView;
+	}
+
+	/**
+	 * @return True if the entities are drawn in parallel tiles.
+	 */
+	public boolean isTiledRendering() {
+		return tiledRendering;
+	}
+
+	/**
+	 * @return The camera, or null if no world has been set.
+	 */
+	public Camera getCamera() {
+		return camera;
+	}
+
+	/**
+	 * Pans the camera when the canvas is dragged and zooms it with the mouse wheel.
+	 */
+	private class cameraMouseListener extends MouseAdapter {
+		private int lastX, lastY;
+
+		@Override
+		public void mousePressed(MouseEvent e) {
+			lastX = e.getX();
+			lastY = e.getY();
+		}
+
+		@Override
+		public void mouseDragged(MouseEvent e) {
+			camera.pan(lastX - e.getX(), lastY - e.getY());
+			lastX = e.getX();
+			lastY = e.getY();
+			repaint();
+		}
+
+		@Override
+		public void mouseWheelMoved(MouseWheelEvent e) {
+			camera.zoom(Math.pow(1.1, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+			repaint();
+		}
+	}
+
+	/**
+	 * Draws a line between two CartesianCoordinates to the canvas.
+	 * 
+	 * @param startPoint
+	 *            Starting coordinate.
+	 * @param endPoint
+	 *            Ending coordinate.
+	 */
+	public void drawLineBetweenPoints(CartesianCoordinate startPoint, CartesianCoordinate endPoint) {
+		lines.add(new LineSegment(startPoint, endPoint));
+		repaint();
+	}
+
+	/**
+	 * Draws a line segment to the canvas.
+	 * 
+	 * @param lineSegment
+	 *            The LineSegment to draw.
+	 */
+	public void drawLineSegment(LineSegment lineSegment) {
+		lines.add(lineSegment);
+		repaint();
+	}
+
+	/**
+	 * Draws multiple line segments to the canvas.
+	 * 
+	 * @param lineSegments
+	 *            An array of LineSegment.
+	 */
+	public void drawLineSegments(LineSegment[] lineSegments) {
+		lines.addAll(Arrays.asList(lineSegments));
+		repaint();
+	}
+
+	/**
+	 * Removes the most recently added line from the drawing.
+	 */
+	public void removeMostRecentLine() {
+		lines.remove(lines.size() - 1);
+	}
+
+	/**
+	 * Clears the canvas of all drawing.
+	 */
+	public void clear() {
+		lines.clear();
+		repaint();
+	}
+}
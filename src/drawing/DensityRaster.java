@@ -0,0 +1,136 @@
+package drawing;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * <h2>DensityRaster</h2> This class represents a heatmap of how many entities are at
+ * each pixel of the canvas.
+ *
+ * <P>Every entity in a frame adds to a counter for the pixel it is on, so the cost of a
+ * frame is one array increment per entity however many entities overlap. The counters
+ * are then coloured through a lookup table straight into the pixels of a single image.
+ * The counters can fade away a little each frame rather than being cleared, leaving
+ * trails behind moving entities.
+ */
+public class DensityRaster {
+	private int width, height;
+	private int[] counts;
+	private BufferedImage image;
+	private int[] pixels;
+	private int retain;
+	private final static int ENTITY_WEIGHT = 16;
+	private final static int MAX_COUNT = 1 << 20;
+	private final static int[] COLOURS = buildColours(4096);
+
+	/**
+	 * Constructor which produces an empty raster.
+	 *
+	 * @param width
+	 *            Width in pixels.
+	 * @param height
+	 *            Height in pixels.
+	 * @param trail
+	 *            The fraction of each count kept from one frame to the next, 0 for
+	 *            no trails, up to 0.99 for long trails.
+	 */
+	public DensityRaster(int width, int height, double trail) {
+		this.width = Math.max(1, width);
+		this.height = Math.max(1, height);
+		counts = new int[this.width * this.height];
+		image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_RGB);
+		pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+		setTrail(trail);
+	}
+
+	/**
+	 * Fades (or clears) the counts ready for the next frame.
+	 */
+	public void fade() {
+		if (retain == 0) {
+			Arrays.fill(counts, 0);
+			return;
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = (Math.min(counts[i], MAX_COUNT) * retain) >>> 8;
+		}
+	}
+
+	/**
+	 * Adds every entity in a frame to the count of the pixel it is drawn on.
+	 *
+	 * @param frame
+	 *            The entities to add.
+	 * @param camera
+	 *            The camera the canvas is looking through.
+	 */
+	public void accumulate(EntityFrame frame, Camera camera) {
+		for (int i = 0; i < frame.getCount(); i++) {
+			double x = camera.toScreenX(frame.getX(i));
+			double y = camera.toScreenY(frame.getY(i));
+			if (x >= 0 && y >= 0 && x < width && y < height) {
+				counts[(int) y * width + (int) x] += ENTITY_WEIGHT;
+			}
+		}
+	}
+
+	/**
+	 * Colours the counts into the image.
+	 *
+	 * @return The image, reused from frame to frame.
+	 */
+	public BufferedImage toImage() {
+		int last = COLOURS.length - 1;
+		for (int i = 0; i < counts.length; i++) {
+			int count = counts[i];
+			pixels[i] = COLOURS[count < last ? count : last];
+		}
+		return image;
+	}
+
+	/**
+	 * Clears the counts, e.g. when the camera moves and the trails no longer line up.
+	 */
+	public void clear() {
+		Arrays.fill(counts, 0);
+	}
+
+	/**
+	 * @param trail
+	 *            The fraction of each count kept from one frame to the next.
+	 */
+	public void setTrail(double trail) {
+		retain = (int) Math.round(Math.max(0, Math.min(0.99, trail)) * 256);
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Builds the colour map, white through blue, red and yellow. The colour follows the
+	 * logarithm of the count so single entities stay visible next to dense flocks.
+	 */
+	private static int[] buildColours(int size) {
+		int[][] stops = { { 255, 255, 255 }, { 40, 60, 200 }, { 220, 30, 30 }, { 255, 230, 40 } };
+		int[] colours = new int[size];
+		double top = Math.log1p(size - 1);
+		for (int count = 0; count < size; count++) {
+			double position = Math.log1p(count) / top * (stops.length - 1);
+			int stop = Math.min(stops.length - 2, (int) position);
+			double fraction = position - stop;
+			int rgb = 0;
+			for (int channel = 0; channel < 3; channel++) {
+				int value = (int) Math.round(stops[stop][channel] + (stops[stop + 1][channel] - stops[stop][channel]) * fraction);
+				rgb = (rgb << 8) | value;
+			}
+			colours[count] = rgb;
+		}
+		return colours;
+	}
+}
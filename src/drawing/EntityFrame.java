@@ -0,0 +1,184 @@
+package drawing;
+
+import java.util.Arrays;
+
+import geometry.World;
+
+/**
+ * <h2>EntityFrame</h2> This class represents a snapshot of every entity at the end
+ * of one tick, ready to be drawn.
+ *
+ * <P>The simulation fills in a frame and hands it to the canvas (see
+ * FrameTripleBuffer, which reuses frames from tick to tick). As well as the
+ * location, angle and type of each entity, the frame sorts the entities into a coarse
+ * grid of cells so the canvas can find the entities in view without looking at the
+ * ones that are not, and can draw a whole cell as one block when zoomed far out.
+ */
+public class EntityFrame {
+	private World world;
+	private long tick;
+	private int count;
+	private double[] x, y, angle;
+	private boolean[] predator;
+	private int cellsAcross, cellsDown;
+	private double cellWidth, cellHeight;
+	private int[] cellStart;
+	private int[] cellOrder;
+	private int[] cellNext;
+	private final static int MAX_CELLS_ACROSS = 512;
+	private final static double MIN_CELL_SIZE = 8;
+
+	/**
+	 * Constructor which produces an empty frame for a world.
+	 *
+	 * @param world
+	 *            The world the entities live in.
+	 */
+	public EntityFrame(World world) {
+		this.world = world;
+		cellsAcross = cellCount(world.getWidth());
+		cellsDown = cellCount(world.getHeight());
+		cellWidth = world.getWidth() / cellsAcross;
+		cellHeight = world.getHeight() / cellsDown;
+		cellStart = new int[cellsAcross * cellsDown + 1];
+		cellNext = new int[cellsAcross * cellsDown];
+		setCapacity(16);
+	}
+
+	/**
+	 * Copies the entities into the frame and sorts them into cells.
+	 *
+	 * @param x
+	 *            The x coordinate of each entity.
+	 * @param y
+	 *            The y coordinate of each entity.
+	 * @param angle
+	 *            The movement angle of each entity.
+	 * @param predator
+	 *            Whether each entity is a predator.
+	 * @param count
+	 *            The number of entities.
+	 * @param tick
+	 *            The tick the snapshot was taken at.
+	 */
+	public void copyFrom(double[] x, double[] y, double[] angle, boolean[] predator, int count, long tick) {
+		if (count > this.x.length) {
+			setCapacity(Math.max(count, this.x.length * 2));
+		}
+		System.arraycopy(x, 0, this.x, 0, count);
+		System.arraycopy(y, 0, this.y, 0, count);
+		System.arraycopy(angle, 0, this.angle, 0, count);
+		System.arraycopy(predator, 0, this.predator, 0, count);
+		this.count = count;
+		this.tick = tick;
+		sortIntoCells();
+	}
+
+	/**
+	 * Counting sort of the entities by cell. Afterwards the entities in cell c are
+	 * cellOrder[cellStart[c]] up to (not including) cellOrder[cellStart[c + 1]].
+	 */
+	private void sortIntoCells() {
+		Arrays.fill(cellStart, 0);
+		for (int i = 0; i < count; i++) {
+			cellStart[cellOf(i) + 1]++;
+		}
+		for (int c = 0; c < cellsAcross * cellsDown; c++) {
+			cellStart[c + 1] += cellStart[c];
+		}
+		System.arraycopy(cellStart, 0, cellNext, 0, cellNext.length);
+		for (int i = 0; i < count; i++) {
+			cellOrder[cellNext[cellOf(i)]++] = i;
+		}
+	}
+
+	private int cellOf(int i) {
+		int column = Math.min(cellsAcross - 1, Math.max(0, (int) (x[i] / cellWidth)));
+		int row = Math.min(cellsDown - 1, Math.max(0, (int) (y[i] / cellHeight)));
+		return row * cellsAcross + column;
+	}
+
+	private static int cellCount(double size) {
+		return (int) Math.max(1, Math.min(MAX_CELLS_ACROSS, Math.floor(size / MIN_CELL_SIZE)));
+	}
+
+	private void setCapacity(int capacity) {
+		x = new double[capacity];
+		y = new double[capacity];
+		angle = new double[capacity];
+		predator = new boolean[capacity];
+		cellOrder = new int[capacity];
+	}
+
+	/**
+	 * @return The cell number of a cell column and row, wrapping around the world.
+	 */
+	public int getCell(int column, int row) {
+		return Math.floorMod(row, cellsDown) * cellsAcross + Math.floorMod(column, cellsAcross);
+	}
+
+	/**
+	 * @return The index into getCellOrder() of the first entity in a cell.
+	 */
+	public int getCellStart(int cell) {
+		return cellStart[cell];
+	}
+
+	/**
+	 * @return The index into getCellOrder() just past the last entity in a cell.
+	 */
+	public int getCellEnd(int cell) {
+		return cellStart[cell + 1];
+	}
+
+	/**
+	 * @return The entities sorted by cell, see getCellStart().
+	 */
+	public int[] getCellOrder() {
+		return cellOrder;
+	}
+
+	public int getCellsAcross() {
+		return cellsAcross;
+	}
+
+	public int getCellsDown() {
+		return cellsDown;
+	}
+
+	public double getCellWidth() {
+		return cellWidth;
+	}
+
+	public double getCellHeight() {
+		return cellHeight;
+	}
+
+	public World getWorld() {
+		return world;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public double getX(int i) {
+		return x[i];
+	}
+
+	public double getY(int i) {
+		return y[i];
+	}
+
+	public double getAngle(int i) {
+		return angle[i];
+	}
+
+	public boolean isPredator(int i) {
+		return predator[i];
+	}
+}
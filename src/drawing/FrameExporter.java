@@ -0,0 +1,307 @@
+package drawing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import geometry.World;
+import tools.Settings;
+
+/**
+ * <h2>FrameExporter</h2> This class renders ticks of the simulation offscreen and
+ * saves them as numbered image files, e.g. to be joined into a video.
+ *
+ * <P>The simulation copies a tick into a spare EntityFrame and hands it over. The
+ * frame is then drawn (with a FrameRenderer) and encoded on a fixed pool of
+ * threads, so the simulation never waits for encoding. There is a fixed number of
+ * spare frames. If they are all queued or being encoded, the tick is dropped
+ * rather than slowing the simulation down, and the number of dropped ticks is
+ * counted. The depth of the encoding queue is also tracked.
+ *
+ * <P>Frames are saved as PNG ("png"), or as raw 8 bit RGB pixels with no header
+ * ("raw"). Raw is much quicker to write. A run of raw frames can be turned into a
+ * video with, for example,
+ * <code>cat frames/*.rgb | ffmpeg -f rawvideo -pix_fmt rgb24 -s WIDTHxHEIGHT -r 50 -i - run.mp4</code>
+ */
+public class FrameExporter {
+	private final World world;
+	private final Path directory;
+	private final int width, height;
+	private final int every;
+	private final boolean raw;
+	private final FrameRenderer renderer;
+	private final ThreadPoolExecutor pool;
+	private final BlockingQueue<EntityFrame> spareFrames;
+	private final ThreadLocal<Target> targets;
+	private final AtomicLong exported = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private volatile int maxQueueDepth;
+
+	/**
+	 * Constructor which starts the encoding threads.
+	 *
+	 * @param world
+	 *            The world being exported.
+	 * @param renderer
+	 *            Draws the frames (shared with the canvas so they look the same).
+	 * @param directory
+	 *            Where to save the frames, created if needed.
+	 * @param width
+	 *            Width of each frame in pixels.
+	 * @param height
+	 *            Height of each frame in pixels.
+	 * @param every
+	 *            Export every this many ticks, 1 for every tick.
+	 * @param format
+	 *            "png" or "raw".
+	 * @param threads
+	 *            The number of encoding threads.
+	 * @param queueSize
+	 *            How many frames can wait for an encoding thread before ticks are
+	 *            dropped.
+	 * @throws IOException
+	 *             If the directory cannot be created.
+	 */
+	public FrameExporter(World world, FrameRenderer renderer, Path directory, int width, int height, int every,
+			String format, int threads, int queueSize) throws IOException {
+		this.world = world;
+		this.renderer = renderer;
+		this.directory = directory;
+		this.width = width;
+		this.height = height;
+		this.every = Math.max(1, every);
+		this.raw = format.equalsIgnoreCase("raw");
+		Files.createDirectories(directory);
+
+		spareFrames = new ArrayBlockingQueue<EntityFrame>(threads + queueSize);
+		for (int i = 0; i < threads + queueSize; i++) {
+			spareFrames.add(new EntityFrame(world));
+		}
+		//A frame is spare again just before its task finishes, so the queue must have room for every
+		//frame, not only the ones waiting, or a frame taken straight away could be rejected.
+		pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(threads + queueSize), runnable -> {
+					Thread thread = new Thread(runnable, "frame-exporter");
+					thread.setDaemon(true);
+					return thread;
+				});
+		targets = ThreadLocal.withInitial(Target::new);
+	}
+
+	/**
+	 * Creates an exporter using the "export." settings.
+	 *
+	 * @param world
+	 *            The world being exported.
+	 * @param renderer
+	 *            Draws the frames.
+	 * @return The exporter, or null if exporting is turned off or cannot start.
+	 */
+	public static FrameExporter fromSettings(World world, FrameRenderer renderer) {
+		String path = Settings.getString("export.path", "");
+		if (path.isEmpty()) {
+			return null;
+		}
+
+		//By default frames are the size of the world, shrunk to at most 1920 pixels across.
+		double shrink = Math.min(1, 1920 / world.getWidth());
+		int width = Settings.getInt("export.width", 0);
+		int height = Settings.getInt("export.height", 0);
+		if (width <= 0 || height <= 0) {
+			width = (int) Math.round(world.getWidth() * shrink);
+			height = (int) Math.round(world.getHeight() * shrink);
+		}
+		int threads = Settings.getInt("export.threads", 0);
+		if (threads <= 0) {
+			threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		}
+
+		try {
+			return new FrameExporter(world, renderer, Paths.get(path), width, height,
+					Settings.getInt("export.every", 1), Settings.getString("export.format", "png"), threads,
+					Settings.getInt("export.queue", 8));
+		} catch (IOException e) {
+			System.out.println("Cannot export frames to " + path + " (" + e + ").");
+			return null;
+		}
+	}
+
+	/**
+	 * @param tick
+	 *            The tick just finished.
+	 * @return True if this tick should be exported.
+	 */
+	public boolean wants(long tick) {
+		return tick % every == 0;
+	}
+
+	/**
+	 * Takes a spare frame to copy a tick into. Never waits.
+	 *
+	 * @return The frame, or null if none are spare (the tick is counted as dropped).
+	 */
+	public EntityFrame takeFrame() {
+		EntityFrame frame = spareFrames.poll();
+		if (frame == null) {
+			dropped.incrementAndGet();
+		}
+		return frame;
+	}
+
+	/**
+	 * Queues a filled in frame (from takeFrame()) to be drawn and saved. The caller
+	 * must not touch the frame afterwards. Once the exporter is closed the frame is
+	 * dropped instead.
+	 *
+	 * @param frame
+	 *            The frame to export.
+	 */
+	public void export(EntityFrame frame) {
+		try {
+			pool.execute(() -> encode(frame));
+		} catch (RejectedExecutionException e) {
+			spareFrames.add(frame);
+			dropped.incrementAndGet();
+			return;
+		}
+		maxQueueDepth = Math.max(maxQueueDepth, pool.getQueue().size());
+	}
+
+	/**
+	 * Draws and saves a frame, then returns it to the spares. The frame is spare
+	 * again while its task is still finishing, so the frames queued can briefly
+	 * outnumber the frames waiting, which is why the pool's queue has room for every
+	 * frame.
+	 */
+	private void encode(EntityFrame frame) {
+		Target target = targets.get();
+		Path file = directory.resolve(String.format("frame-%08d.%s", frame.getTick(), raw ? "rgb" : "png"));
+		try {
+			Graphics2D g2 = target.image.createGraphics();
+			g2.setColor(Color.WHITE);
+			g2.fillRect(0, 0, width, height);
+			renderer.render(g2, frame, target.camera, width, height);
+			g2.dispose();
+
+			if (raw) {
+				writeRaw(target, file);
+			} else {
+				ImageIO.write(target.image, "png", file.toFile());
+			}
+			exported.incrementAndGet();
+		} catch (IOException e) {
+			if (failed.getAndIncrement() == 0) {
+				System.out.println("Cannot export frames to " + directory + " (" + e + ").");
+			}
+		} finally {
+			spareFrames.add(frame);
+		}
+	}
+
+	/**
+	 * Writes the pixels as 3 bytes (red, green, blue) each, row by row.
+	 */
+	private void writeRaw(Target target, Path file) throws IOException {
+		int[] pixels = ((DataBufferInt) target.image.getRaster().getDataBuffer()).getData();
+		byte[] bytes = target.bytes;
+		for (int i = 0, b = 0; i < pixels.length; i++) {
+			int rgb = pixels[i];
+			bytes[b++] = (byte) (rgb >> 16);
+			bytes[b++] = (byte) (rgb >> 8);
+			bytes[b++] = (byte) rgb;
+		}
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+			out.write(bytes);
+		}
+	}
+
+	/**
+	 * Stops accepting frames and waits for the queued ones to be saved.
+	 *
+	 * @param timeout
+	 *            The longest time to wait in milliseconds.
+	 */
+	public void close(long timeout) {
+		pool.shutdown();
+		try {
+			pool.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return The number of frames waiting for an encoding thread right now.
+	 */
+	public int getQueueDepth() {
+		return pool.getQueue().size();
+	}
+
+	/**
+	 * @return The most frames that have waited for an encoding thread at once.
+	 */
+	public int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 * @return The number of frames saved.
+	 */
+	public long getExported() {
+		return exported.get();
+	}
+
+	/**
+	 * @return The number of ticks dropped because every spare frame was in use, or
+	 *         the exporter was closed.
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+
+	/**
+	 * @return The number of frames which could not be saved.
+	 */
+	public long getFailed() {
+		return failed.get();
+	}
+
+	/**
+	 * @return A one line summary of the exporter's metrics.
+	 */
+	@Override
+	public String toString() {
+		return "Exported " + getExported() + " frames to " + directory + ", queue depth " + getQueueDepth() + " (max "
+				+ getMaxQueueDepth() + "), dropped " + getDropped() + ", failed " + getFailed();
+	}
+
+	/**
+	 * The image and camera each encoding thread draws with, reused for every frame.
+	 */
+	private class Target {
+		private final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		private final Camera camera = new Camera(world);
+		private final byte[] bytes = new byte[raw ? width * height * 3 : 0];
+
+		private Target() {
+			camera.setView(width, height);
+			camera.zoomToFit();
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package drawing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Image;
+
+import geometry.World;
+
+/**
+ * <h2>FrameRenderer</h2> This class draws an EntityFrame through a Camera, on the
+ * canvas or on an image offscreen (see FrameExporter).
+ *
+ * <P>Only the cells of the frame that are in view are visited (wrapping around the
+ * edges of the world). Depending on the zoom, each entity is drawn as a sprite (an
+ * arrow pointing the way it is moving, see SpriteAtlas), as a single point, or each
+ * cell as one shaded block. A backdrop image placed in the world is drawn behind
+ * the entities.
+ *
+ * <P>Rendering does not change the renderer, so one renderer can draw on several
+ * threads at once as long as each has its own camera.
+ */
+public class FrameRenderer {
+	private final SpriteAtlas sprites = new SpriteAtlas(32);
+	private volatile Image backdrop;
+	private volatile double backdropX, backdropY;
+	private final static double GLYPH_SCALE = 0.5;
+	private final static double AGGREGATE_CELL_PIXELS = 3;
+
+	/**
+	 * Draws the backdrop and then the entities of a frame that are in view.
+	 *
+	 * @param g2
+	 *            The graphics to draw on.
+	 * @param frame
+	 *            The entities to draw.
+	 * @param camera
+	 *            The camera to draw through, its view must already be set.
+	 * @param width
+	 *            Width of the area being drawn in pixels.
+	 * @param height
+	 *            Height of the area being drawn in pixels.
+	 */
+	public void render(Graphics2D g2, EntityFrame frame, Camera camera, int width, int height) {
+		renderBackdrop(g2, camera, width, height);
+		renderEntities(g2, frame, camera, width, height);
+	}
+
+	/**
+	 * Draws the entities of a frame that are in view.
+	 */
+	public void renderEntities(Graphics2D g2, EntityFrame frame, Camera camera, int viewWidth, int viewHeight) {
+		double scale = camera.getScale();
+		double cellWidth = frame.getCellWidth();
+		double cellHeight = frame.getCellHeight();
+		int firstColumn = (int) Math.floor(camera.getLeft() / cellWidth);
+		int firstRow = (int) Math.floor(camera.getTop() / cellHeight);
+		int columns = Math.min(frame.getCellsAcross(),
+				(int) Math.floor((camera.getLeft() + camera.getVisibleWidth()) / cellWidth) - firstColumn + 1);
+		int rows = Math.min(frame.getCellsDown(),
+				(int) Math.floor((camera.getTop() + camera.getVisibleHeight()) / cellHeight) - firstRow + 1);
+		boolean aggregate = Math.min(cellWidth, cellHeight) * scale < AGGREGATE_CELL_PIXELS;
+		boolean glyphs = scale >= GLYPH_SCALE;
+		int[] order = frame.getCellOrder();
+
+		g2.setColor(Color.BLACK);
+
+		for (int row = firstRow; row < firstRow + rows; row++) {
+			for (int column = firstColumn; column < firstColumn + columns; column++) {
+				int cell = frame.getCell(column, row);
+				int start = frame.getCellStart(cell);
+				int end = frame.getCellEnd(cell);
+				if (start == end) {
+					continue;
+				}
+				if (aggregate) {
+					renderCell(g2, camera, column, row, end - start, frame);
+					continue;
+				}
+				for (int k = start; k < end; k++) {
+					int i = order[k];
+					double x = camera.toScreenX(frame.getX(i));
+					double y = camera.toScreenY(frame.getY(i));
+					if (x < -8 || y < -8 || x > viewWidth + 8 || y > viewHeight + 8) {
+						continue;
+					}
+					if (glyphs) {
+						sprites.draw(g2, x, y, frame.getAngle(i), frame.isPredator(i));
+					} else {
+						g2.fillRect((int) x, (int) y, frame.isPredator(i) ? 2 : 1, frame.isPredator(i) ? 2 : 1);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws a whole cell as one block, darker the more entities it holds.
+	 */
+	private void renderCell(Graphics2D g2, Camera camera, int column, int row, int entities, EntityFrame frame) {
+		double scale = camera.getScale();
+		int x = (int) Math.floor((column * frame.getCellWidth() - camera.getLeft()) * scale);
+		int y = (int) Math.floor((row * frame.getCellHeight() - camera.getTop()) * scale);
+		int width = (int) Math.ceil(frame.getCellWidth() * scale);
+		int height = (int) Math.ceil(frame.getCellHeight() * scale);
+		int alpha = (int) Math.min(255, 60 + 30 * (Math.log(entities) / Math.log(2)));
+		g2.setColor(new Color(0, 0, 0, alpha));
+		g2.fillRect(x, y, Math.max(1, width), Math.max(1, height));
+	}
+
+	/**
+	 * Draws the backdrop image, repeated either side of it so it wraps with the world.
+	 */
+	public void renderBackdrop(Graphics2D g2, Camera camera, int viewWidth, int viewHeight) {
+		Image backdrop = this.backdrop;
+		if (backdrop == null) {
+			return;
+		}
+		World world = camera.getWorld();
+		double scale = camera.getScale();
+		int width = (int) Math.round(backdrop.getWidth(null) * scale);
+		int height = (int) Math.round(backdrop.getHeight(null) * scale);
+		double x = camera.toScreenX(backdropX);
+		double y = camera.toScreenY(backdropY);
+		for (int across = -1; across <= 1; across++) {
+			for (int down = -1; down <= 1; down++) {
+				int left = (int) Math.round(x + across * world.getWidth() * scale);
+				int top = (int) Math.round(y + down * world.getHeight() * scale);
+				if (left < viewWidth && top < viewHeight && left + width > 0 && top + height > 0) {
+					g2.drawImage(backdrop, left, top, width, height, null);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The sprites entities are drawn with.
+	 */
+	public SpriteAtlas getSprites() {
+		return sprites;
+	}
+
+	/**
+	 * Sets an image drawn behind the entities, placed in the world so it pans and
+	 * zooms with the camera.
+	 *
+	 * @param image
+	 *            The image to draw.
+	 * @param x
+	 *            World x coordinate of the top left of the image.
+	 * @param y
+	 *            World y coordinate of the top left of the image.
+	 */
+	public void setBackdrop(Image image, double x, double y) {
+		backdropX = x;
+		backdropY = y;
+		backdrop = image;
+	}
+}
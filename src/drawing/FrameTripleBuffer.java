@@ -0,0 +1,72 @@
+package drawing;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import geometry.World;
+
+/**
+ * <h2>FrameTripleBuffer</h2> This class represents three EntityFrames passed
+ * between the simulation and the canvas without either side ever waiting.
+ *
+ * <P>The simulation fills in the back frame and publishes it. The canvas takes the
+ * latest published frame whenever it paints. At any moment one frame belongs to the
+ * simulation, one to the canvas, and the third is the latest complete frame waiting
+ * to be picked up. Publishing swaps the back frame with the waiting one, and taking
+ * swaps the front frame with it. Each swap is a single atomic operation, so there
+ * are no locks. A frame is only ever written or read by one side at a time. The
+ * canvas always sees a whole tick. If it paints less often than the simulation
+ * publishes, it skips the ticks in between. The frames are reused, so publishing
+ * allocates nothing.
+ */
+public class FrameTripleBuffer {
+	private final EntityFrame[] frames = new EntityFrame[3];
+	private final AtomicInteger waiting;
+	private int back, front;
+	private final static int FRESH = 4;
+	private final static int INDEX = 3;
+
+	/**
+	 * Constructor which produces three empty frames for a world.
+	 *
+	 * @param world
+	 *            The world the entities live in.
+	 */
+	public FrameTripleBuffer(World world) {
+		for (int i = 0; i < frames.length; i++) {
+			frames[i] = new EntityFrame(world);
+		}
+		back = 0;
+		waiting = new AtomicInteger(1);
+		front = 2;
+	}
+
+	/**
+	 * Only called by the simulation.
+	 *
+	 * @return The frame to fill in before calling publish().
+	 */
+	public EntityFrame getBackFrame() {
+		return frames[back];
+	}
+
+	/**
+	 * Publishes the back frame as the latest complete frame. Only called by the
+	 * simulation, which must not touch the frame afterwards.
+	 */
+	public void publish() {
+		back = waiting.getAndSet(back | FRESH) & INDEX;
+	}
+
+	/**
+	 * Takes the latest complete frame. Only called by the canvas, the frame stays
+	 * valid until the next call.
+	 *
+	 * @return The latest frame (empty if nothing has been published yet).
+	 */
+	public EntityFrame getLatestFrame() {
+		if ((waiting.get() & FRESH) != 0) {
+			front = waiting.getAndSet(front) & INDEX;
+		}
+		return frames[front];
+	}
+}
@@ -0,0 +1,151 @@
+package drawing;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * <h2>SpriteAtlas</h2> This class represents the pictures used to draw entities,
+ * drawn once and then copied onto the canvas.
+ *
+ * <P>Each type of entity is drawn as an arrow in its own colour, pointing in the
+ * direction it is moving. The arrows are drawn (anti-aliased) when the atlas is made,
+ * once for each of a number of headings, into a single image. Drawing an entity is
+ * then a copy of the sprite for its type and nearest heading, rather than stroking
+ * lines for every entity every frame.
+ *
+ * <P>The pixels of each sprite are also kept as premultiplied ARGB arrays, for
+ * drawing without Java2D (see TileRasterizer).
+ */
+public class SpriteAtlas {
+	private BufferedImage atlas;
+	private BufferedImage[][] sprites;
+	private int[][][] pixels;
+	private int[] sizes;
+	private int headings;
+	private final static int TYPES = 2;
+	private final static int ENTITY = 0;
+	private final static int PREDATOR = 1;
+	private final static Color ENTITY_COLOUR = new Color(30, 60, 140);
+	private final static Color PREDATOR_COLOUR = new Color(200, 30, 30);
+
+	/**
+	 * Constructor which draws every sprite.
+	 *
+	 * @param headings
+	 *            The number of headings each type is drawn at, more gives smoother
+	 *            turning.
+	 */
+	public SpriteAtlas(int headings) {
+		this.headings = headings;
+		sizes = new int[] { 7, 13 };
+		int cell = Math.max(sizes[ENTITY], sizes[PREDATOR]);
+		atlas = new BufferedImage(cell * headings, cell * TYPES, BufferedImage.TYPE_INT_ARGB_PRE);
+		sprites = new BufferedImage[TYPES][headings];
+		pixels = new int[TYPES][headings][];
+
+		Graphics2D g2 = atlas.createGraphics();
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		for (int type = 0; type < TYPES; type++) {
+			for (int heading = 0; heading < headings; heading++) {
+				int size = sizes[type];
+				int x = heading * cell;
+				int y = type * cell;
+				drawArrow(g2, x + size / 2.0, y + size / 2.0, size, heading * 360.0 / headings,
+						type == PREDATOR ? PREDATOR_COLOUR : ENTITY_COLOUR);
+				sprites[type][heading] = atlas.getSubimage(x, y, size, size);
+			}
+		}
+		g2.dispose();
+
+		int[] atlasPixels = ((DataBufferInt) atlas.getRaster().getDataBuffer()).getData();
+		for (int type = 0; type < TYPES; type++) {
+			int size = sizes[type];
+			for (int heading = 0; heading < headings; heading++) {
+				pixels[type][heading] = new int[size * size];
+				for (int row = 0; row < size; row++) {
+					System.arraycopy(atlasPixels, (type * cell + row) * atlas.getWidth() + heading * cell,
+							pixels[type][heading], row * size, size);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Draws an arrow pointing along a movement angle (0 is up the screen, 90 is to the
+	 * right, as for the entities).
+	 */
+	private static void drawArrow(Graphics2D g2, double centreX, double centreY, int size, double angle, Color colour) {
+		double length = size / 2.0 - 0.5;
+		Path2D.Double arrow = new Path2D.Double();
+		arrow.moveTo(0, -length);
+		arrow.lineTo(length * 0.75, length);
+		arrow.lineTo(0, length * 0.45);
+		arrow.lineTo(-length * 0.75, length);
+		arrow.closePath();
+
+		Graphics2D g = (Graphics2D) g2.create();
+		g.translate(centreX, centreY);
+		g.rotate(Math.toRadians(angle));
+		g.setColor(colour);
+		g.fill(arrow);
+		g.dispose();
+	}
+
+	/**
+	 * Draws an entity centred on a point.
+	 *
+	 * @param g2
+	 *            The graphics to draw on.
+	 * @param x
+	 *            The x pixel of the centre of the entity.
+	 * @param y
+	 *            The y pixel of the centre of the entity.
+	 * @param angle
+	 *            The movement angle of the entity in degrees.
+	 * @param predator
+	 *            True to draw a predator.
+	 */
+	public void draw(Graphics2D g2, double x, double y, double angle, boolean predator) {
+		int type = predator ? PREDATOR : ENTITY;
+		int size = sizes[type];
+		g2.drawImage(sprites[type][getHeading(angle)], (int) Math.round(x - size / 2.0),
+				(int) Math.round(y - size / 2.0), null);
+	}
+
+	/**
+	 * @return The pixels of the sprite for an entity, premultiplied ARGB row by row,
+	 *         getSize() pixels square.
+	 */
+	public int[] getPixels(double angle, boolean predator) {
+		return pixels[predator ? PREDATOR : ENTITY][getHeading(angle)];
+	}
+
+	/**
+	 * @return The width and height of the sprite for a type of entity, in pixels.
+	 */
+	public int getSize(boolean predator) {
+		return sizes[predator ? PREDATOR : ENTITY];
+	}
+
+	/**
+	 * @return The nearest heading drawn for a movement angle, an invalid angle points up.
+	 */
+	private int getHeading(double angle) {
+		if (angle != angle || Double.isInfinite(angle)) {
+			return 0;
+		}
+		long heading = Math.round(angle * headings / 360.0);
+		return (int) Math.floorMod(heading, (long) headings);
+	}
+
+	/**
+	 * @return The image holding every sprite.
+	 */
+	public BufferedImage getAtlas() {
+		return atlas;
+	}
+}
@@ -0,0 +1,207 @@
+package drawing;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * <h2>TileRasterizer</h2> This class draws the entities of an EntityFrame straight
+ * into the pixels of one image, without Java2D, on every processor at once.
+ *
+ * <P>The image is split into square tiles, and the tiles are drawn in parallel on the
+ * common fork-join pool. Each tile only visits the cells of the frame under it (plus
+ * a margin, as a sprite can hang over the edge of its tile) and only writes its own
+ * pixels, clipping anything that crosses into another tile, so no two threads ever
+ * write the same pixel and no locking is needed. The canvas then draws the image in
+ * one go.
+ *
+ * <P>Entities are drawn as FrameRenderer draws them, sprites from the SpriteAtlas
+ * blended over what is below them, single points when zoomed out, or each cell as
+ * one shaded block when zoomed out further. The parts of the image with no entity
+ * are left transparent, so a backdrop drawn first shows through.
+ */
+public class TileRasterizer {
+	private final SpriteAtlas sprites;
+	private BufferedImage image;
+	private int[] pixels;
+	private int width, height;
+	private int tilesAcross, tilesDown;
+	private final static int TILE_SIZE = 64;
+	private final static int MARGIN = 8;
+	private final static double GLYPH_SCALE = 0.5;
+	private final static double AGGREGATE_CELL_PIXELS = 3;
+	private final static int BLACK = 0xFF000000;
+
+	/**
+	 * Constructor which produces a rasterizer drawing with a set of sprites.
+	 *
+	 * @param sprites
+	 *            The sprites entities are drawn with.
+	 */
+	public TileRasterizer(SpriteAtlas sprites) {
+		this.sprites = sprites;
+	}
+
+	/**
+	 * Draws the entities of a frame that are in view into the image.
+	 *
+	 * @param frame
+	 *            The entities to draw.
+	 * @param camera
+	 *            The camera to draw through, its view must already be set.
+	 * @param width
+	 *            Width of the area being drawn in pixels.
+	 * @param height
+	 *            Height of the area being drawn in pixels.
+	 * @return The image, reused from frame to frame (and replaced if the size changes).
+	 */
+	public BufferedImage render(EntityFrame frame, Camera camera, int width, int height) {
+		if (image == null || width != this.width || height != this.height) {
+			this.width = Math.max(1, width);
+			this.height = Math.max(1, height);
+			image = new BufferedImage(this.width, this.height, BufferedImage.TYPE_INT_ARGB_PRE);
+			pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+			tilesAcross = (this.width + TILE_SIZE - 1) / TILE_SIZE;
+			tilesDown = (this.height + TILE_SIZE - 1) / TILE_SIZE;
+		}
+
+		if (frame == null) {
+			Arrays.fill(pixels, 0);
+			return image;
+		}
+
+		IntStream.range(0, tilesAcross * tilesDown).parallel().forEach(tile -> renderTile(tile, frame, camera));
+		return image;
+	}
+
+	/**
+	 * Clears one tile and draws every entity that touches it.
+	 */
+	private void renderTile(int tile, EntityFrame frame, Camera camera) {
+		int left = tile % tilesAcross * TILE_SIZE;
+		int top = tile / tilesAcross * TILE_SIZE;
+		int right = Math.min(width, left + TILE_SIZE);
+		int bottom = Math.min(height, top + TILE_SIZE);
+
+		for (int row = top; row < bottom; row++) {
+			Arrays.fill(pixels, row * width + left, row * width + right, 0);
+		}
+
+		double scale = camera.getScale();
+		double cellWidth = frame.getCellWidth();
+		double cellHeight = frame.getCellHeight();
+		boolean aggregate = Math.min(cellWidth, cellHeight) * scale < AGGREGATE_CELL_PIXELS;
+		boolean glyphs = scale >= GLYPH_SCALE;
+
+		//The cells in view, as FrameRenderer finds them, so a view wider than the world shows each cell once.
+		int viewColumn = (int) Math.floor(camera.getLeft() / cellWidth);
+		int viewRow = (int) Math.floor(camera.getTop() / cellHeight);
+		int lastViewColumn = viewColumn + Math.min(frame.getCellsAcross(),
+				(int) Math.floor((camera.getLeft() + camera.getVisibleWidth()) / cellWidth) - viewColumn + 1) - 1;
+		int lastViewRow = viewRow + Math.min(frame.getCellsDown(),
+				(int) Math.floor((camera.getTop() + camera.getVisibleHeight()) / cellHeight) - viewRow + 1) - 1;
+
+		//The cells in view under the tile and its margin.
+		int firstColumn = Math.max(viewColumn, (int) Math.floor((camera.getLeft() + (left - MARGIN) / scale) / cellWidth));
+		int firstRow = Math.max(viewRow, (int) Math.floor((camera.getTop() + (top - MARGIN) / scale) / cellHeight));
+		int columns = Math.min(lastViewColumn, (int) Math.floor((camera.getLeft() + (right + MARGIN) / scale) / cellWidth)) - firstColumn + 1;
+		int rows = Math.min(lastViewRow, (int) Math.floor((camera.getTop() + (bottom + MARGIN) / scale) / cellHeight)) - firstRow + 1;
+		int[] order = frame.getCellOrder();
+
+		for (int row = firstRow; row < firstRow + rows; row++) {
+			for (int column = firstColumn; column < firstColumn + columns; column++) {
+				int cell = frame.getCell(column, row);
+				int start = frame.getCellStart(cell);
+				int end = frame.getCellEnd(cell);
+				if (start == end) {
+					continue;
+				}
+				if (aggregate) {
+					int x = (int) Math.floor((column * cellWidth - camera.getLeft()) * scale);
+					int y = (int) Math.floor((row * cellHeight - camera.getTop()) * scale);
+					int alpha = (int) Math.min(255, 60 + 30 * (Math.log(end - start) / Math.log(2)));
+					fillRect(x, y, Math.max(1, (int) Math.ceil(cellWidth * scale)), Math.max(1, (int) Math.ceil(cellHeight * scale)),
+							alpha << 24, left, top, right, bottom);
+					continue;
+				}
+				for (int k = start; k < end; k++) {
+					int i = order[k];
+					double x = camera.toScreenX(frame.getX(i));
+					double y = camera.toScreenY(frame.getY(i));
+					if (!(x >= left - MARGIN && y >= top - MARGIN && x < right + MARGIN && y < bottom + MARGIN)) {
+						continue;
+					}
+					if (glyphs) {
+						drawSprite(x, y, frame.getAngle(i), frame.isPredator(i), left, top, right, bottom);
+					} else {
+						int size = frame.isPredator(i) ? 2 : 1;
+						fillRect((int) x, (int) y, size, size, BLACK, left, top, right, bottom);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Blends a sprite centred on a point into the pixels inside a tile.
+	 */
+	private void drawSprite(double x, double y, double angle, boolean predator, int left, int top, int right, int bottom) {
+		int size = sprites.getSize(predator);
+		int[] sprite = sprites.getPixels(angle, predator);
+		int spriteLeft = (int) Math.round(x - size / 2.0);
+		int spriteTop = (int) Math.round(y - size / 2.0);
+		int fromX = Math.max(left, spriteLeft);
+		int toX = Math.min(right, spriteLeft + size);
+		int fromY = Math.max(top, spriteTop);
+		int toY = Math.min(bottom, spriteTop + size);
+		for (int row = fromY; row < toY; row++) {
+			int source = (row - spriteTop) * size - spriteLeft;
+			int target = row * width;
+			for (int column = fromX; column < toX; column++) {
+				pixels[target + column] = blend(sprite[source + column], pixels[target + column]);
+			}
+		}
+	}
+
+	/**
+	 * Blends a rectangle of one colour into the pixels inside a tile.
+	 */
+	private void fillRect(int x, int y, int rectWidth, int rectHeight, int colour, int left, int top, int right, int bottom) {
+		int fromX = Math.max(left, x);
+		int toX = Math.min(right, x + rectWidth);
+		int fromY = Math.max(top, y);
+		int toY = Math.min(bottom, y + rectHeight);
+		for (int row = fromY; row < toY; row++) {
+			int target = row * width;
+			for (int column = fromX; column < toX; column++) {
+				pixels[target + column] = blend(colour, pixels[target + column]);
+			}
+		}
+	}
+
+	/**
+	 * Draws a premultiplied ARGB colour over another (source over), two channels at a
+	 * time.
+	 */
+	private static int blend(int source, int target) {
+		int alpha = source >>> 24;
+		if (alpha == 255) {
+			return source;
+		}
+		if (alpha == 0) {
+			return target;
+		}
+		int inverse = 255 - alpha;
+		int redBlue = ((target & 0x00FF00FF) * inverse >>> 8) & 0x00FF00FF;
+		int alphaGreen = (((target >>> 8) & 0x00FF00FF) * inverse) & 0xFF00FF00;
+		return source + (redBlue | alphaGreen);
+	}
+
+	/**
+	 * @return The number of tiles the image is split into.
+	 */
+	public int getTiles() {
+		return tilesAcross * tilesDown;
+	}
+}
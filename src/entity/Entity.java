@@ -1,559 +1,659 @@
-/*The entity package contains anything related to the creation and manipulation
- * of the entities.*/
-package entity;
-
-//Import everything needed for the list of predators.
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-
-//Import canvas to draw the entities 
-import drawing.Canvas;
-
-//Import Cartesian coordinate to give the entities locations.
-import geometry.CartesianCoordinate;
-
-public class Entity{
-
-	//Create a local variable to store the canvas, it is protected so it can be 
-	//Accessed by predatorialEntity().
-	protected Canvas canvas;
-
-	//Create Cartesian coordinates to store the old and current locations of the entity.
-	CartesianCoordinate currentLocation = new CartesianCoordinate();
-	CartesianCoordinate oldLocation = new CartesianCoordinate();
-	
-	//Store the movement angle of the entity, it is protected so it can be accessed by predator.
-	protected double entityMovementAngle;
-	
-	//Create a flock diameter - This is used to create a box around an entity which, if any other
-	//entity is inside of, it will be considered in the line of sight of the current entity and
-	//be used to effect the behaviour of the current entity.
-	//In essence, this is the size of the flock.
-	double flockDiameter = 50;
-	
-	//Local variables to store the average movement angle total movement angle of birds within the "flock box".
-	double flockMovementAngle, sumOfAnglesInFlock;
-	
-	//Local variables to store the angles needed for entity to head towards or avoid something.
-	double angleRequiredForAllignment, angleRequiredForCohesion, angleRequiredForSeperation, angleRequiredForNest, angleRequiredForObstacleAvoidance;
-
-	//Local variables to store the quantity of entities, their total x coordinates and their total y coordinates.
-	double entitiesInFlock, sumOfXDistances, sumOfYDistances;
-	
-	//Local variables to store the calculated centre of the flock.
-	protected CartesianCoordinate centreOfFlock = new CartesianCoordinate();
-
-	//Once calculated, these store the coordinates of the corners of the "flock box" (see double flockDiameter).
-	double xLowerBound;
-	double xUpperBound;
-	double yLowerBound;
-	double yUpperBound;
-	
-	//Used to tell entities apart from predatorialEntities during detection.
-	protected boolean isAPredator = false;
-	
-	//Create a list to store any predators in sight of the entity, so its behaviour can be altered accordingly. 
-	private List<PredatorialEntity> predatorsInSight;
-	
-	/*
-	 * Constructor used by the RandomEntity and PredatorialEntity class. 
-	 * It will create an entity with completely default values.
-	 * e.g. movementAngle = 0
-	 * @param Canvas, the canvas the entities will be drawn on.
-	 */
-	public Entity(Canvas canvas) {
-		this.canvas = canvas;
-		
-		//Synchronise the predatorsInSight list to avoid any issues.
-		predatorsInSight = Collections.synchronizedList(new ArrayList<PredatorialEntity>());
-		
-	}
-
-	/*
-	 * Move the entity at the desired speed. This is done using trigonometry to find the distance and 
-	 * multiplying it by the speed. If the speed is 0, the entity will not move.
-	 * @param speed, the desired speed for the entity to move.
-	 */
-	public void move(double speed) {
-		
-		//Set the entities current location equal to its old location so it can be used as reference below.
-		oldLocation.setX(currentLocation.getX());
-		oldLocation.setY(currentLocation.getY());
-
-		/*
-		 * The problem here is the entity needs to be moved with only a known location and a desired movement angle.
-		 * Using these two pieces of data we can break the problem down into a right angled triangle. As speed is
-		 * in pixels a seconds the value of speed dictates how far the entity should move. This will be the hypotunuse 
-		 * of the triangle. The angle, theta, of the triangle is the entities current movement angle. This produces
-		 * a trigonometry question. We know by using 
-		 * 
-		 * 		sin(theta) = opp/hyp		and		cos(theta) = adj/hyp
-		 * 
-		 * we can find the sizes of the two remaining sides of the triangle, which will be our movement values 
-		 * in terms of x and y coordinates. The final issue is that this only works if theta is less than 90,
-		 * else it wont make part of a triangle. Therefore theta must be reduced accordingly. When the size of
-		 * the x and y distances is found they can be multiplied by speed, as speed = pixels per refresh.
-		 */
-		
-		//Check if the movementAngle is 90 or less, meaning it will not need adjustment.
-		if (entityMovementAngle <= 90) {
-			
-			//Set the new x location to the sum of the old x location and the calculated size of the adjacent side of the triangle,
-			//multiplied by the speed/distance factor to get the true size.
-			currentLocation.setX(oldLocation.getX() + Math.sin(Math.toRadians(entityMovementAngle)) * speed);
-			
-			//Set the new y location to the sum of the old x location and the calculated size of the opposite side of the triangle,
-			//multiplied by the speed/distance factor to get the true size.
-			currentLocation.setY(oldLocation.getY() - Math.cos(Math.toRadians(entityMovementAngle)) * speed);
-			
-			//Check if the movementAngle between 90 and 180 degrees, meaning it will need to be reduced by a factor of 90 to make
-			//the triangle described above.
-		} else if (entityMovementAngle <= 180 && entityMovementAngle > 90) {
-			
-			currentLocation.setX(oldLocation.getX() + Math.cos(Math.toRadians(entityMovementAngle - 90)) * speed);
-			currentLocation.setY(oldLocation.getY() + Math.sin(Math.toRadians(entityMovementAngle - 90)) * speed);
-			
-			//Reduce by factor of 180 if true
-		} else if (entityMovementAngle <= 270 && entityMovementAngle > 180) {
-			
-			currentLocation.setX(oldLocation.getX() - Math.sin(Math.toRadians(entityMovementAngle- 180)) * speed);
-			currentLocation.setY(oldLocation.getY() + Math.cos(Math.toRadians(entityMovementAngle- 180)) * speed);
-			
-			//Reduce by factor of 270 if true.
-		} else if (entityMovementAngle >= 270) {
-			
-			currentLocation.setX(oldLocation.getX() - Math.cos(Math.toRadians(entityMovementAngle - 270)) * speed);
-			currentLocation.setY(oldLocation.getY() - Math.sin(Math.toRadians(entityMovementAngle - 270)) * speed);
-			
-		}
-
-	}
-
-	/*
-	 * Adjusts the entities movementAngle by the specified value, if a reduction is required, input a negative value.
-	 * @param, entityMovementAngleAdjustment, the angle of adjustment to be applied.
-	 */
-	public void turn(double entityMovementAngleAdjustment) {
-		
-		//Apply the adjustment.
-		entityMovementAngle = entityMovementAngleAdjustment + entityMovementAngle;
-		
-		//Check if the value has gone above or below the limits of degrees and adjust accordingly.
-		if (entityMovementAngle > 360) {
-			entityMovementAngle = entityMovementAngle - 360;
-		} else if (this.entityMovementAngle < 0) {
-			entityMovementAngle = entityMovementAngle + 360;
-		} 
-
-	}
-
-	/*
-	 * Checks if an entity has lefts the confines of the screen. If it has, it is placed 
-	 * on the opposing side of the screen.
-	 */
-	public void wrapPosition() {
-		
-		//Check is an entity has left the left hand side of the screen
-		if (currentLocation.getX() <= 0) {
-			
-			//Move entity to the left hand side of the screen.
-			currentLocation.setX(698);
-			
-		}
-		
-		//Check is an entity has left the upper side of the screen
-		if (currentLocation.getY() <= 0) {
-			
-			//Move entity to the right upper of the screen.
-			currentLocation.setY(498);
-			
-		}
-		
-		//Check is an entity has left the right hand side of the screen
-		if (currentLocation.getX() >= 699) {
-			
-			//Move entity to the right hand side of the screen.
-			currentLocation.setX(0);
-			
-		}
-		
-		//Check is an entity has left the lower side of the screen
-		if (currentLocation.getY() >= 499) {
-			
-			//Move entity to the lower side of the screen.
-			currentLocation.setY(0);
-			
-		}
-		
-	}
-
-	/*
-	 * Draws the entity at the current location. This must be done before calling undraw()
-	 * and any entity drawn must be undrawn if it is to move, else the simulatonLoop will be 
-	 * out of sync.
-	 */
-	public void draw() {
-		canvas.drawLineBetweenPoints(currentLocation, currentLocation);
-	}
-
-	/*
-	 * Removes the entity from view.
-	 */
-	public void undraw() {
-		
-		//Remove the line (dot) representing the entity.
-		canvas.removeMostRecentLine();
-		
-		//Repaint the canvas to show the changes.
-		canvas.repaint();
-	}
-
-	/*
-	 * This will calculate the data needed to then calculate the required Cohesion, separation etc.
-	 * This is done separately to allow control over which behavioural methods to call during
-	 * testing. It works by first calculating the coordinates of the box around the entity or
-	 * the "flock box" (if an entity if inside the box its behaviour will affect the behaviour of the
-	 * selected entity) and then by making a list of entities and predators inside of the box.
-	 * Average movement angles and the centre of the flock are then calculated.
-	 * @param Entity, a list of all entities in existence.
-	 */
-	public void calculateFlockParameters(List<Entity> entities) {
-		
-		//Sync the list to avoid issues.
-		entities = Collections.synchronizedList(new ArrayList<Entity>());
-
-		//Zero the total entities inside the flock box.
-		entitiesInFlock = 0; 
-		
-		//Zero the total x/y values inside the box, which when divided by the total entities gives the average x/y position
-		sumOfXDistances = 0; 
-		sumOfYDistances = 0;
-		
-		//Zero the sum of angles
-		sumOfAnglesInFlock = 0;
-
-		/*
-		 * Iterates over every entity and checks if it is inside the "flock box". If it is its values are taken and
-		 * added to the variables used for calculation of the averages.
-		 */
-		synchronized (entities) { 
-			for (Entity entity : entities) {
-
-				//Calculates the size of the flock box.
-				xLowerBound = entity.getX() - flockDiameter/2;
-				xUpperBound = entity.getX() + flockDiameter/2;
-				yLowerBound = entity.getY() - flockDiameter/2;
-				yUpperBound = entity.getY() + flockDiameter/2;
-
-						//Checks if an entity is within the x bounds of the flock box.
-						if (entity.getX() >= xLowerBound && entity.getX() <= xUpperBound) {
-							
-							//Checks if an entity is within the y bounds of the flock box.
-							if (entity.getY() >= yLowerBound && entity.getY() <= yUpperBound) {
-						
-								//Add the entities x and y values to the rest of the flocks, for later average calculation.
-								sumOfXDistances = sumOfXDistances + entity.getX();
-								sumOfYDistances = sumOfYDistances + entity.getY();
-								
-								//Add the entities movement angle to the rest of the flocks, for later average calculation.
-								sumOfAnglesInFlock = sumOfAnglesInFlock + entity.getEntityMovementAngle();
-								
-								//Add 1 to the entities in flock counter, for later average calculation.
-								entitiesInFlock++;
-
-								//Checks if the entity is a predator.
-								if (entity.isAPredator == true) {
-									
-									//Adds the predator to a list of visible predators, to run away from shortly.
-									predatorsInSight.add((PredatorialEntity) entity);
-									
-								}
-
-								
-							}
-						}
-			}				
-		}
-		
-		//The centre of the flock is found by dividing the sum by the quantity.
-		centreOfFlock.setX(sumOfXDistances / entitiesInFlock);
-		centreOfFlock.setY(sumOfYDistances / entitiesInFlock);
-		
-		//The same principle is applied to find the average flock movement angle.
-		flockMovementAngle = sumOfAnglesInFlock / entitiesInFlock;
-		
-	}
-
-	/*
-	 * Use after calculateFlockParameters(). Will calculate the angle of travel required to move the entity towards 
-	 * the centre of its flock then reduce it by the cohesion factor.
-	 * @param cohesionFactor, the factor which the cohesion will be reduced by.
-	 */
-	public void applyCohesion(double cohesionFactor) {
-
-		//Calculate the x and y distances between the centre of the flock and the entity.
-		double xDist = centreOfFlock.getX() - currentLocation.getX();
-		double yDist = centreOfFlock.getY() - currentLocation.getY();
-
-		//Apply trigonometry, treating the x value as the opposite side of the triangle and 
-		//the y distance as the adjacent side to find the angle required.
-		angleRequiredForCohesion = Math.toDegrees(Math.atan(xDist/yDist));
-
-		//Apply the calculated angle, but reduced by the cohesion factor.
-		entityMovementAngle = entityMovementAngle + cohesionFactor * angleRequiredForCohesion;
-
-	}
-
-	/*
-	 * Use after calculateFlockParameters(). Will calculate the angle of travel required to move the entity away from 
-	 * the centre of its flock then reduce it by the separation factor.
-	 * @param seperationFactor, the factor which the separation will be reduced by.
-	 */
-	public void applySeperation(double seperationFactor) {
-
-		//Calculate the x and y distances between the centre of the flock and the entity.
-		double xDist = centreOfFlock.getX() - currentLocation.getX();
-		double yDist = centreOfFlock.getY() - currentLocation.getY();
-
-		//Apply trigonometry, treating the x value as the opposite side of the triangle and 
-		//the y distance as the adjacent side to find the angle required.
-		angleRequiredForSeperation = (Math.toDegrees(Math.atan(xDist/yDist)));
-
-		//Apply the calculated angle, but reduced by the separation factor.
-		entityMovementAngle = entityMovementAngle - seperationFactor * angleRequiredForSeperation;
-
-	}
-
-	/*
-	 * Use after calculateFlockParameters(). Will calculate the angle of travel required to make the entity travel in the 
-	 * same direction as its flock then reduce it by the alignment factor.
-	 * @param alignmentFactor, the factor which the alignment will be reduced by.
-	 */
-	public void applyAlignment(double alignmentFactor) {
-
-		//Calculate the angle required to align the flock and the entity.
-		angleRequiredForAllignment = flockMovementAngle - entityMovementAngle;
-
-		//Apply the calculated angle, but reduced by the alignment factor.
-		entityMovementAngle = entityMovementAngle + alignmentFactor * angleRequiredForAllignment;
-
-	}
-	
-	/*
-	 * Will calculate the angle of travel required to make the entity 
-	 * travel towards the nest then reduce it by the nest attraction factor.
-	 * @param nestAttractionFactor, the factor which the nest attraction will be reduced by.
-	 */
-	public void applyNestAttraction(CartesianCoordinate nestLocation, double nestAttractionFactor) {
-		
-		//Calculate the x and y distances between the nest and the entity.
-		double xDist = nestLocation.getX() - currentLocation.getX();
-		double yDist = nestLocation.getY() - currentLocation.getY();
-
-		//Apply trigonometry, treating the x value as the opposite side of the triangle and 
-		//the y distance as the adjacent side to find the angle required.
-		angleRequiredForNest = (Math.toDegrees(Math.atan(xDist/yDist)));
-		
-		//Apply the calculated angle, but reduced by the nest attraction factor.
-		entityMovementAngle = entityMovementAngle + nestAttractionFactor * angleRequiredForNest;
-		
-	}
-	
-	/*
-	 * Calculates and applies the angle needed to avoid the obstacle, also checks for a collision
-	 * between the entity and the obstacle.
-	 */
-	public void applyObstacleAvoidance() {
-
-		//Calculate the x and y distances between the obstacle and the entity.
-		double xDistFromObstacle = 350 - currentLocation.getX();
-		double yDistFromObstacle = 250 - currentLocation.getY();
-		
-		//Use Pythagoras theorem to find the distance between the obstacle and the entity for obstacle detection.
-		double distFromObstacle = Math.sqrt(xDistFromObstacle * xDistFromObstacle + yDistFromObstacle * yDistFromObstacle);
-
-		//Apply trigonometry, treating the x value as the opposite side of the triangle and 
-		//the y distance as the adjacent side to find the angle required.
-		angleRequiredForObstacleAvoidance = (Math.toDegrees(Math.atan(xDistFromObstacle / yDistFromObstacle)));
-
-		//Apply the calculated angle, but reduced by a set factor.
-		entityMovementAngle = entityMovementAngle - 0.03 * angleRequiredForObstacleAvoidance;
-		
-		//Check is the distance to the centre of the obstacle is less than the radius.
-		if (distFromObstacle <= 80) {
-			
-			//Invert the angle of travel, bouncing the entity off. 
-			entityMovementAngle = entityMovementAngle - 180;
-			
-		}
-		
-	}
-
-	/*
-	 * If collisions are enabled this will run, it will check every entity to see if there has been a
-	 * collision and react by separating them via their movement angles. 
-	 * @param entities, a list of every entity in existence. 
-	 * @param collisionDetection, a boolean which, if true, enables collision detection.
-	 */
-	public void applyCollisions(List<Entity> entities, boolean collisionDetection) {
-		
-		//Check is collision detection is enabled.
-		if (collisionDetection == true) {
-
-			//Synchronise the entities list to avoid any issues.
-			entities = Collections.synchronizedList(new ArrayList<Entity>());
-			
-			/*
-			 * This loop within a loop takes one entity out of one loop and compares it to
-			 * every entity in the second list. Then the first list moves to the second 
-			 * entity it then compares it to every entity in the second list again etc.
-			 */
-			synchronized (entities) { 
-				for (Entity entity : entities) {
-
-					//Create the entity for comparison and set it to the entity from the loop,
-					//else it cannot be seen within the second loop.
-					Entity entityForComparasonOne = new Entity(canvas);
-					entityForComparasonOne = entity;
-
-					//Run the second loop and the comparison.
-					synchronized (entities) { 
-						for (Entity entityForComparasonTwo : entities) {
-
-							//Check if the entities current locations are the same.
-							if (entityForComparasonOne.getCurrentLocation() == entityForComparasonTwo.getCurrentLocation()) {
-
-								//If they are the same split them up.
-								entityForComparasonOne.turn(90);
-								entityForComparasonTwo.turn(-90);
-
-							}
-
-						}
-
-					}
-					
-				}
-
-			}
-			
-		}	
-		
-	}
-	
-	/*
-	 * If a predator is nearby, an angle of avoidance will be calculated and applied.
-	 */
-	public void applyPredator() {
-		
-		//Check if any predators have been spotted
-		if (predatorsInSight.size() != 0) {
-			
-			//Iterate over all the predators, calculating an avoidance angle and apply them all
-			//as an entity would want to get away from a predator. 
-			synchronized (predatorsInSight) { 
-				for (PredatorialEntity predator : predatorsInSight) {
-
-					//Calculate the x and y distances between the predator and the entity.
-					double xDist = predator.getX() - currentLocation.getX();
-					double yDist = predator.getY() - currentLocation.getY();
-
-					//Apply trigonometry, treating the x value as the opposite side of the triangle and 
-					//the y distance as the adjacent side to find the angle required.
-					angleRequiredForSeperation = (Math.toDegrees(Math.atan(xDist/yDist)));
-
-					//Apply the calculated angle, but reduced by a factor of 0.5 so movement is gradual.
-					entityMovementAngle = entityMovementAngle - 0.5 * angleRequiredForSeperation;
-
-				}
-
-			}
-
-		}
-		
-		//Clear the list of predators in sight to prevent any errors.
-		predatorsInSight.clear();
-		
-	}
-	
-	
-	/*
-	 * Getters and Setters
-	 */
-	
-	/*
-	 * Gets the current location of the entity.
-	 * @return currentLocation CartesianCoordinate
-	 */
-	public CartesianCoordinate getCurrentLocation() {
-		return currentLocation;
-	}
-	
-	/*
-	 * Sets the current location of the entity.
-	 * @param currentLocation CartesianCoordinate
-	 */
-	public void setCurrentLocation(CartesianCoordinate currentLocation) {
-		this.currentLocation = currentLocation;
-	}
-
-	/*
-	 * Gets the x location of the entity.
-	 * @return x double
-	 */
-	public double getX() {
-
-		return currentLocation.getX();
-
-	}
-
-	/*
-	 * Gets the y location of the entity.
-	 * @return y double
-	 */
-	public double getY() {
-
-		return currentLocation.getY();
-
-	}
-	
-	/*
-	 * Gets the entities movement angle.
-	 * @return entityMovementAngle double 
-	 */
-	public double getEntityMovementAngle() {
-		
-		return entityMovementAngle;
-	}
-	
-	/*
-	 * Sets the entity movement angle.
-	 * @param entityMovementAngle double
-	 */
-	public void setEntityMovementAngle(double entityMovementAngle) {
-		
-		this.entityMovementAngle = entityMovementAngle;
-		
-	}
-
-	/*
-	 * Gets the average flock movement angle.
-	 * @return flockMovementAngle
-	 */
-	public double getFlockAngle() {
-
-		return flockMovementAngle;
-	}
-	
-	/*
-	 * Checks if the entity is a predator.
-	 * @return isAPredator boolean
-	 */
-	public boolean getPredator() {
-		
-		return isAPredator;
-		
-	}
-
-}
+/*The entity package contains anything related to the creation and manipulation
+ * of the entities.*/
+package entity;
+
+//Import everything needed for the list of predators.
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+//Import canvas to draw the entities 
+import drawing.Canvas;
+
+//Import Cartesian coordinate to give the entities locations.
+import geometry.CartesianCoordinate;
+
+//Import the quadtree used to calculate long range pulls.
+import geometry.QuadTree;
+
+//Import the spatial grid used to find nearby entities and the world they live in.
+import geometry.SpatialGrid;
+import geometry.World;
+
+//Import the signed distance field used to find the obstacles.
+import geometry.SignedDistanceField;
+
+public class Entity{
+
+	//Create a local variable to store the canvas, it is protected so it can be 
+	//Accessed by predatorialEntity().
+	protected Canvas canvas;
+	
+	//The world the entity lives in, used to wrap it around the edges.
+	protected World world;
+
+	//The location and movement angle of the entity are stored in a slot of a flock state, alongside
+	//every other entity in the simulation, so they can all be moved at once (see FlockState).
+	FlockState state;
+	int slot;
+
+	//Where the entity is in its simulation's list of entities, so it can be removed from the list at once.
+	int listIndex = -1;
+	
+	//Create a flock diameter - This is used to create a box around an entity which, if any other
+	//entity is inside of, it will be considered in the line of sight of the current entity and
+	//be used to effect the behaviour of the current entity.
+	//In essence, this is the size of the flock.
+	double flockDiameter = 50;
+	
+	//Local variables to store the average movement angle total movement angle of birds within the "flock box".
+	double flockMovementAngle, sumOfAnglesInFlock;
+	
+	//Local variables to store the angles needed for entity to head towards or avoid something.
+	double angleRequiredForAllignment, angleRequiredForCohesion, angleRequiredForSeperation, angleRequiredForNest, angleRequiredForObstacleAvoidance;
+	double angleRequiredForLongRangeAttraction;
+	
+	//Stores the total pull on the entity from every other entity, filled in by the quadtree.
+	private CartesianCoordinate longRangePull = new CartesianCoordinate();
+
+	//Local variables to store the quantity of entities, their total x coordinates and their total y coordinates.
+	double entitiesInFlock, sumOfXDistances, sumOfYDistances;
+	
+	//Local variables to store the calculated centre of the flock.
+	protected CartesianCoordinate centreOfFlock = new CartesianCoordinate();
+
+	//The size of an entity, two entities closer than this have collided.
+	double collisionDiameter = 3;
+
+	//How close to the edge of an obstacle an entity can get before it bounces off.
+	static final double obstacleMargin = 7;
+	
+	//Used to tell entities apart from predatorialEntities during detection.
+	protected boolean isAPredator = false;
+	
+	//Create a list to store any predators in sight of the entity, so its behaviour can be altered accordingly. 
+	private List<PredatorialEntity> predatorsInSight;
+
+	//Whether a predator was in sight last time, so an event is only published when one comes into sight.
+	private boolean predatorWasInSight;
+	
+	/*
+	 * Constructor used by the RandomEntity and PredatorialEntity class. 
+	 * It will create an entity with completely default values.
+	 * e.g. movementAngle = 0
+	 * @param Canvas, the canvas the entities will be drawn on.
+	 * @param world, the world the entity lives in.
+	 */
+	public Entity(Canvas canvas, World world) {
+		this.canvas = canvas;
+		this.world = world;
+		
+		//Start off in a state of its own, the simulation adopts the entity when it is added.
+		state = new FlockState(1);
+		slot = state.add(this, 0, 0, 0, false);
+		
+		//Synchronise the predatorsInSight list to avoid any issues.
+		predatorsInSight = Collections.synchronizedList(new ArrayList<PredatorialEntity>());
+		
+	}
+
+	/*
+	 * Move the entity at the desired speed. This is done using trigonometry to find the distance and 
+	 * multiplying it by the speed. If the speed is 0, the entity will not move.
+	 * @param speed, the desired speed for the entity to move.
+	 */
+	public void move(double speed) {
+		
+		//Store the entities current location as its old location so it can be used as reference below.
+		double oldX = getX();
+		double oldY = getY();
+		double entityMovementAngle = getEntityMovementAngle();
+
+		/*
+		 * The problem here is the entity needs to be moved with only a known location and a desired movement angle.
+		 * Using these two pieces of data we can break the problem down into a right angled triangle. As speed is
+		 * in pixels a seconds the value of speed dictates how far the entity should move. This will be the hypotunuse 
+		 * of the triangle. The angle, theta, of the triangle is the entities current movement angle. This produces
+		 * a trigonometry question. We know by using 
+		 * 
+		 * 		sin(theta) = opp/hyp		and		cos(theta) = adj/hyp
+		 * 
+		 * we can find the sizes of the two remaining sides of the triangle, which will be our movement values 
+		 * in terms of x and y coordinates. The final issue is that this only works if theta is less than 90,
+		 * else it wont make part of a triangle. Therefore theta must be reduced accordingly. When the size of
+		 * the x and y distances is found they can be multiplied by speed, as speed = pixels per refresh.
+		 */
+		
+		//Check if the movementAngle is 90 or less, meaning it will not need adjustment.
+		if (entityMovementAngle <= 90) {
+			
+			//Set the new x location to the sum of the old x location and the calculated size of the adjacent side of the triangle,
+			//multiplied by the speed/distance factor to get the true size.
+			setX(oldX + Math.sin(Math.toRadians(entityMovementAngle)) * speed);
+			
+			//Set the new y location to the sum of the old x location and the calculated size of the opposite side of the triangle,
+			//multiplied by the speed/distance factor to get the true size.
+			setY(oldY - Math.cos(Math.toRadians(entityMovementAngle)) * speed);
+			
+			//Check if the movementAngle between 90 and 180 degrees, meaning it will need to be reduced by a factor of 90 to make
+			//the triangle described above.
+		} else if (entityMovementAngle <= 180 && entityMovementAngle > 90) {
+			
+			setX(oldX + Math.cos(Math.toRadians(entityMovementAngle - 90)) * speed);
+			setY(oldY + Math.sin(Math.toRadians(entityMovementAngle - 90)) * speed);
+			
+			//Reduce by factor of 180 if true
+		} else if (entityMovementAngle <= 270 && entityMovementAngle > 180) {
+			
+			setX(oldX - Math.sin(Math.toRadians(entityMovementAngle- 180)) * speed);
+			setY(oldY + Math.cos(Math.toRadians(entityMovementAngle- 180)) * speed);
+			
+			//Reduce by factor of 270 if true.
+		} else if (entityMovementAngle >= 270) {
+			
+			setX(oldX - Math.cos(Math.toRadians(entityMovementAngle - 270)) * speed);
+			setY(oldY - Math.sin(Math.toRadians(entityMovementAngle - 270)) * speed);
+			
+		}
+
+	}
+
+	/*
+	 * Adjusts the entities movementAngle by the specified value, if a reduction is required, input a negative value.
+	 * @param, entityMovementAngleAdjustment, the angle of adjustment to be applied.
+	 */
+	public void turn(double entityMovementAngleAdjustment) {
+		
+		//Apply the adjustment.
+		double entityMovementAngle = entityMovementAngleAdjustment + getEntityMovementAngle();
+		
+		//Check if the value has gone above or below the limits of degrees and adjust accordingly.
+		if (entityMovementAngle > 360) {
+			entityMovementAngle = entityMovementAngle - 360;
+		} else if (entityMovementAngle < 0) {
+			entityMovementAngle = entityMovementAngle + 360;
+		} 
+		
+		setEntityMovementAngle(entityMovementAngle);
+
+	}
+
+	/*
+	 * Checks if an entity has left the confines of the world. If it has, it is placed 
+	 * on the opposing side of the world.
+	 */
+	public void wrapPosition() {
+		
+		//Wrap the entity around the left/right and top/bottom edges of the world.
+		setX(world.wrapX(getX()));
+		setY(world.wrapY(getY()));
+		
+	}
+
+	/*
+	 * This will calculate the data needed to then calculate the required Cohesion, separation etc.
+	 * This is done separately to allow control over which behavioural methods to call during
+	 * testing. It works by asking the spatial grid for every entity inside the box around the entity,
+	 * the "flock box" (if an entity is inside the box its behaviour will affect the behaviour of the
+	 * selected entity), and then adds up the locations and angles of the entities and predators inside it.
+	 * The box wraps around the edges of the world, so a flock crossing an edge is still treated as one flock.
+	 * Average movement angles and the centre of the flock are then calculated.
+	 * @param grid, a spatial grid holding every entity in the simulation, numbered by its slot.
+	 */
+	public void calculateFlockParameters(SpatialGrid grid) {
+		calculateFlockParameters(grid, 0);
+	}
+
+	/*
+	 * The same as calculateFlockParameters(grid), but if nearest is more than 0 only that many of the
+	 * nearest entities inside the flock box are counted as the flock, however many are in it.
+	 * @param grid, a spatial grid holding every entity in the simulation, numbered by its slot.
+	 * @param nearest, the most entities in the flock, 0 for every entity in the flock box.
+	 */
+	public void calculateFlockParameters(SpatialGrid grid, int nearest) {
+
+		//Zero the total entities inside the flock box.
+		entitiesInFlock = 0; 
+		
+		//Zero the total x/y values inside the box, which when divided by the total entities gives the average x/y position
+		sumOfXDistances = 0; 
+		sumOfYDistances = 0;
+		
+		//Zero the sum of angles
+		sumOfAnglesInFlock = 0;
+
+		//Find every entity inside the flock box, or the nearest few.
+		int found = nearest > 0 ? grid.findNearest(getX(), getY(), nearest, flockDiameter/2, slot)
+				: grid.findNeighbours(getX(), getY(), flockDiameter/2);
+		int[] neighbours = grid.getNeighbours();
+
+		/*
+		 * Iterates over every entity inside the "flock box". Its values are taken and
+		 * added to the variables used for calculation of the averages.
+		 */
+		for (int index = 0; index < found; index++) {
+
+			int neighbour = neighbours[index];
+
+			//An entity is not part of its own flock.
+			if (neighbour == slot) {
+				continue;
+			}
+
+			//Add the entities x and y values to the rest of the flocks, for later average calculation. They are measured
+			//from this entity so a flock-mate just over the edge of the world counts as being next to it.
+			sumOfXDistances = sumOfXDistances + getX() + world.deltaX(getX(), state.x[neighbour]);
+			sumOfYDistances = sumOfYDistances + getY() + world.deltaY(getY(), state.y[neighbour]);
+
+			//Add the entities movement angle to the rest of the flocks, for later average calculation.
+			sumOfAnglesInFlock = sumOfAnglesInFlock + state.angle[neighbour];
+
+			//Add 1 to the entities in flock counter, for later average calculation.
+			entitiesInFlock++;
+
+			//Checks if the entity is a predator.
+			if (state.predator[neighbour] == true) {
+
+				//Adds the predator to a list of visible predators, to run away from shortly.
+				predatorsInSight.add((PredatorialEntity) state.owners[neighbour]);
+
+			}
+
+		}
+
+		//An entity on its own has no flock, so cohesion, separation and alignment will do nothing.
+		if (entitiesInFlock == 0) {
+			return;
+		}
+		
+		//The centre of the flock is found by dividing the sum by the quantity.
+		centreOfFlock.setX(sumOfXDistances / entitiesInFlock);
+		centreOfFlock.setY(sumOfYDistances / entitiesInFlock);
+		
+		//The same principle is applied to find the average flock movement angle.
+		flockMovementAngle = sumOfAnglesInFlock / entitiesInFlock;
+		
+	}
+
+	/*
+	 * Use after calculateFlockParameters(). Will calculate the angle of travel required to move the entity towards 
+	 * the centre of its flock then reduce it by the cohesion factor.
+	 * @param cohesionFactor, the factor which the cohesion will be reduced by.
+	 */
+	public void applyCohesion(double cohesionFactor) {
+
+		//Nothing to do if the entity has no flock.
+		if (entitiesInFlock == 0) {
+			return;
+		}
+
+		//Calculate the x and y distances between the centre of the flock and the entity.
+		double xDist = centreOfFlock.getX() - getX();
+		double yDist = centreOfFlock.getY() - getY();
+
+		//Apply trigonometry, treating the x value as the opposite side of the triangle and 
+		//the y distance as the adjacent side to find the angle required.
+		angleRequiredForCohesion = Math.toDegrees(Math.atan(xDist/yDist));
+
+		//Apply the calculated angle, but reduced by the cohesion factor.
+		setEntityMovementAngle(getEntityMovementAngle() + cohesionFactor * angleRequiredForCohesion);
+
+	}
+
+	/*
+	 * Use after calculateFlockParameters(). Will calculate the angle of travel required to move the entity away from 
+	 * the centre of its flock then reduce it by the separation factor.
+	 * @param seperationFactor, the factor which the separation will be reduced by.
+	 */
+	public void applySeperation(double seperationFactor) {
+
+		//Nothing to do if the entity has no flock.
+		if (entitiesInFlock == 0) {
+			return;
+		}
+
+		//Calculate the x and y distances between the centre of the flock and the entity.
+		double xDist = centreOfFlock.getX() - getX();
+		double yDist = centreOfFlock.getY() - getY();
+
+		//Apply trigonometry, treating the x value as the opposite side of the triangle and 
+		//the y distance as the adjacent side to find the angle required.
+		angleRequiredForSeperation = (Math.toDegrees(Math.atan(xDist/yDist)));
+
+		//Apply the calculated angle, but reduced by the separation factor.
+		setEntityMovementAngle(getEntityMovementAngle() - seperationFactor * angleRequiredForSeperation);
+
+	}
+
+	/*
+	 * Use after calculateFlockParameters(). Will calculate the angle of travel required to make the entity travel in the 
+	 * same direction as its flock then reduce it by the alignment factor.
+	 * @param alignmentFactor, the factor which the alignment will be reduced by.
+	 */
+	public void applyAlignment(double alignmentFactor) {
+
+		//Nothing to do if the entity has no flock.
+		if (entitiesInFlock == 0) {
+			return;
+		}
+
+		//Calculate the angle required to align the flock and the entity.
+		angleRequiredForAllignment = flockMovementAngle - getEntityMovementAngle();
+
+		//Apply the calculated angle, but reduced by the alignment factor.
+		setEntityMovementAngle(getEntityMovementAngle() + alignmentFactor * angleRequiredForAllignment);
+
+	}
+	
+	/*
+	 * Will calculate the angle of travel required to make the entity 
+	 * travel towards the nest then reduce it by the nest attraction factor.
+	 * @param nestAttractionFactor, the factor which the nest attraction will be reduced by.
+	 */
+	public void applyNestAttraction(CartesianCoordinate nestLocation, double nestAttractionFactor) {
+		
+		//Calculate the x and y distances between the nest and the entity.
+		double xDist = nestLocation.getX() - getX();
+		double yDist = nestLocation.getY() - getY();
+
+		//Apply trigonometry, treating the x value as the opposite side of the triangle and 
+		//the y distance as the adjacent side to find the angle required.
+		angleRequiredForNest = (Math.toDegrees(Math.atan(xDist/yDist)));
+		
+		//Apply the calculated angle, but reduced by the nest attraction factor.
+		setEntityMovementAngle(getEntityMovementAngle() + nestAttractionFactor * angleRequiredForNest);
+		
+	}
+	
+	/*
+	 * Will calculate the angle of travel required to make the entity travel towards the pull of every
+	 * other entity in the world then reduce it by the attraction factor. The pull is found using a
+	 * Barnes-Hut quadtree, so distant flocks are treated as a single heavy point and the whole world
+	 * can be considered without comparing the entity against every other entity.
+	 * @param quadTree, a quadtree containing every entity, built once per tick.
+	 * @param openingAngle, how coarse the approximation is allowed to be (0 compares against every entity).
+	 * @param attractionFactor, the factor which the long range attraction will be reduced by.
+	 */
+	public void applyLongRangeAttraction(QuadTree quadTree, double openingAngle, double attractionFactor) {
+		
+		//Ask the quadtree for the total pull on this entity.
+		quadTree.calculatePull(getX(), getY(), openingAngle, longRangePull);
+		
+		//If nothing is pulling the entity (it is alone) there is nothing to do.
+		if (longRangePull.getX() == 0 && longRangePull.getY() == 0) {
+			return;
+		}
+
+		//Apply trigonometry, treating the x pull as the opposite side of the triangle and 
+		//the y pull as the adjacent side to find the angle required.
+		angleRequiredForLongRangeAttraction = Math.toDegrees(Math.atan(longRangePull.getX() / longRangePull.getY()));
+		
+		//Apply the calculated angle, but reduced by the attraction factor.
+		setEntityMovementAngle(getEntityMovementAngle() + attractionFactor * angleRequiredForLongRangeAttraction);
+		
+	}
+	
+	/*
+	 * Calculates and applies the angle needed to avoid the nearest obstacle, also checks for a collision
+	 * between the entity and the obstacle. The obstacles are looked up in the world's signed distance
+	 * field, so this takes the same time however many obstacles there are and whatever their shape.
+	 */
+	public void applyObstacleAvoidance() {
+
+		//Nothing to avoid if the world has no obstacles.
+		SignedDistanceField obstacles = world.getObstacles();
+		if (obstacles == null || !obstacles.hasObstacles()) {
+			return;
+		}
+
+		//Look up the direction towards the nearest obstacle (the opposite of the gradient) and how far away its edge is.
+		double xDistFromObstacle = -obstacles.getGradientX(getX(), getY());
+		double yDistFromObstacle = -obstacles.getGradientY(getX(), getY());
+		double distFromObstacle = obstacles.getDistance(getX(), getY());
+
+		//Where the direction is unclear (e.g. exactly between two obstacles) there is nothing to steer by.
+		if (xDistFromObstacle == 0 && yDistFromObstacle == 0) {
+			return;
+		}
+
+		//Apply trigonometry, treating the x value as the opposite side of the triangle and 
+		//the y distance as the adjacent side to find the angle required.
+		angleRequiredForObstacleAvoidance = (Math.toDegrees(Math.atan(xDistFromObstacle / yDistFromObstacle)));
+
+		//Apply the calculated angle, but reduced by a set factor.
+		setEntityMovementAngle(getEntityMovementAngle() - 0.03 * angleRequiredForObstacleAvoidance);
+		
+		//Check if the entity is at (or within a few units of) the edge of the obstacle.
+		if (distFromObstacle <= obstacleMargin) {
+			
+			//Invert the angle of travel, bouncing the entity off. 
+			setEntityMovementAngle(getEntityMovementAngle() - 180);
+			publish(EventRing.OBSTACLE_BOUNCE, -1);
+			
+		}
+		
+	}
+
+	/*
+	 * If collisions are enabled this will run, it will check the entities around this one to see if there has been a
+	 * collision and react by turning away via its movement angle. The entity on the left of a collision turns one
+	 * way and the entity on the right turns the other, so the pair always separates.
+	 * @param grid, a spatial grid holding every entity in the simulation, numbered by its slot.
+	 * @param collisionDetection, a boolean which, if true, enables collision detection.
+	 */
+	public void applyCollisions(SpatialGrid grid, boolean collisionDetection) {
+		
+		//Check is collision detection is enabled.
+		if (collisionDetection == true) {
+
+			//Find every entity close enough to have collided with this one, including across the edges of the world.
+			int found = grid.findNeighbours(getX(), getY(), collisionDiameter/2);
+			int[] neighbours = grid.getNeighbours();
+
+			//Only one turn is made per tick, however many entities have been hit, away from the nearest
+			//(the lowest id if several are as near), so the grid's order does not matter.
+			int nearest = -1;
+			double nearestDistance = 0;
+
+			for (int index = 0; index < found; index++) {
+
+				int neighbour = neighbours[index];
+
+				//An entity cannot collide with itself.
+				if (neighbour == slot) {
+					continue;
+				}
+
+				double xDist = world.deltaX(getX(), state.x[neighbour]);
+				double yDist = world.deltaY(getY(), state.y[neighbour]);
+				double distance = xDist * xDist + yDist * yDist;
+
+				if (nearest < 0 || distance < nearestDistance
+						|| (distance == nearestDistance && state.ids[neighbour] < state.ids[nearest])) {
+					nearest = neighbour;
+					nearestDistance = distance;
+				}
+
+			}
+
+			//Split them up, turning away from the side the other entity is on.
+			if (nearest >= 0) {
+				if (world.deltaX(getX(), state.x[nearest]) >= 0) {
+					turn(-90);
+				} else {
+					turn(90);
+				}
+				publish(EventRing.COLLISION, nearest);
+			}
+			
+		}	
+		
+	}
+	
+	/*
+	 * If a predator is nearby, an angle of avoidance will be calculated and applied.
+	 */
+	public void applyPredator() {
+		
+		//Check if any predators have been spotted
+		if (predatorsInSight.size() != 0) {
+
+			//Tell anything watching when the first predator comes into sight.
+			if (!predatorWasInSight) {
+				publish(EventRing.PREDATOR_SIGHTED, predatorsInSight.get(0).slot);
+			}
+			
+			//Iterate over all the predators, calculating an avoidance angle and apply them all
+			//as an entity would want to get away from a predator. 
+			synchronized (predatorsInSight) { 
+				for (PredatorialEntity predator : predatorsInSight) {
+
+					//Calculate the x and y distances between the predator and the entity.
+					double xDist = predator.getX() - getX();
+					double yDist = predator.getY() - getY();
+
+					//Apply trigonometry, treating the x value as the opposite side of the triangle and 
+					//the y distance as the adjacent side to find the angle required.
+					angleRequiredForSeperation = (Math.toDegrees(Math.atan(xDist/yDist)));
+
+					//Apply the calculated angle, but reduced by a factor of 0.5 so movement is gradual.
+					setEntityMovementAngle(getEntityMovementAngle() - 0.5 * angleRequiredForSeperation);
+
+				}
+
+			}
+
+		}
+		
+		//Clear the list of predators in sight to prevent any errors.
+		predatorWasInSight = predatorsInSight.size() != 0;
+		predatorsInSight.clear();
+		
+	}
+	
+	
+	/*
+	 * Getters and Setters
+	 */
+	
+	/*
+	 * Gets the current location of the entity.
+	 * @return currentLocation CartesianCoordinate
+	 */
+	public CartesianCoordinate getCurrentLocation() {
+		return new CartesianCoordinate(getX(), getY());
+	}
+	
+	/*
+	 * Sets the current location of the entity.
+	 * @param currentLocation CartesianCoordinate
+	 */
+	public void setCurrentLocation(CartesianCoordinate currentLocation) {
+		setX(currentLocation.getX());
+		setY(currentLocation.getY());
+	}
+
+	/*
+	 * Gets the x location of the entity.
+	 * @return x double
+	 */
+	public double getX() {
+
+		return state.x[slot];
+
+	}
+	
+	/*
+	 * Sets the x location of the entity.
+	 * @param x double
+	 */
+	protected void setX(double x) {
+
+		state.x[slot] = x;
+
+	}
+
+	/*
+	 * Gets the y location of the entity.
+	 * @return y double
+	 */
+	public double getY() {
+
+		return state.y[slot];
+
+	}
+	
+	/*
+	 * Sets the y location of the entity.
+	 * @param y double
+	 */
+	protected void setY(double y) {
+
+		state.y[slot] = y;
+
+	}
+	
+	/*
+	 * Gets the entities movement angle.
+	 * @return entityMovementAngle double 
+	 */
+	public double getEntityMovementAngle() {
+		
+		return state.angle[slot];
+	}
+	
+	/*
+	 * Sets the entity movement angle.
+	 * @param entityMovementAngle double
+	 */
+	public void setEntityMovementAngle(double entityMovementAngle) {
+		
+		state.angle[slot] = entityMovementAngle;
+		
+	}
+
+	/*
+	 * Gets the average flock movement angle.
+	 * @return flockMovementAngle
+	 */
+	public double getFlockAngle() {
+
+		return flockMovementAngle;
+	}
+	
+	/*
+	 * Checks if the entity is a predator.
+	 * @return isAPredator boolean
+	 */
+	public boolean getPredator() {
+		
+		return isAPredator;
+		
+	}
+
+	/*
+	 * Publishes an event about this entity, if the simulation it is in publishes events (see EventRing).
+	 * @param type, the type of event.
+	 * @param other, the slot of the other entity involved, -1 if none.
+	 */
+	void publish(int type, int other) {
+
+		EventRing events = state.events;
+		if (events != null) {
+			events.publish(type, state.getHandle(slot), other < 0 ? -1 : state.getHandle(other), getX(), getY());
+		}
+
+	}
+
+	/*
+	 * Gets the entity's handle, which still refers to it when it moves to another slot and goes
+	 * stale when it is removed (see FlockState).
+	 * @return handle long
+	 */
+	public long getHandle() {
+		
+		return state.getHandle(slot);
+		
+	}
+
+}
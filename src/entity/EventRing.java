@@ -0,0 +1,294 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Used to order the writes to the ring against the counters read by other threads.
+import java.lang.invoke.VarHandle;
+
+//Import settings for the size of the ring.
+import tools.Settings;
+
+/*
+ * A ring of the things that happen to entities during a tick (an entity added, two entities colliding,
+ * a predator coming into an entity's sight, an entity bouncing off an obstacle, a predator catching an
+ * entity), so other threads can watch the simulation without slowing it down.
+ *
+ * The ring is made once, with room for "events.capacity" events (rounded up to a power of two), and
+ * each event is a row of primitive columns, as in FlockState, so publishing an event is a handful of
+ * array writes and never makes an object. Only the thread running the simulation publishes (every
+ * publish is made inside the simulation's lock), and it never waits for a reader. When the ring is
+ * full the oldest events are written over, and a reader which has fallen that far behind counts them
+ * as lost rather than holding the simulation up.
+ *
+ * Events are numbered in the order they are published. Two counters are shared with the readers:
+ * "published", every event before it is finished, which the simulation moves on once at the end of
+ * each tick (see commit()), and "claimed", every event before it may be being written. Claimed is
+ * moved on in blocks of CLAIM_BLOCK events before any of them are written, so most events only write
+ * to the columns. A reader copies a batch of finished events, then reads claimed again, and throws
+ * away any event in its batch which may have been written over while it was copying.
+ *
+ * Each reader is a Reader from newReader(), which keeps its own place in the ring, so any number can
+ * read at once. A reader only sees events published after it was made.
+ */
+public class EventRing {
+
+	//The types of event.
+	public static final int SPAWN = 0;
+	public static final int COLLISION = 1;
+	public static final int PREDATOR_SIGHTED = 2;
+	public static final int OBSTACLE_BOUNCE = 3;
+	public static final int CAUGHT = 4;
+
+	//The name of each type of event.
+	public static final String[] NAMES = {"spawn", "collision", "predator sighted", "obstacle bounce", "caught"};
+
+	//How many events are claimed at once.
+	private static final int CLAIM_BLOCK = 64;
+
+	//The number of events the ring holds, and the mask finding an event's row from its number.
+	private final int capacity;
+	private final int mask;
+
+	//The columns, one row per event. The subject and other are handles (see FlockState.getHandle()),
+	//except for the other of a spawn which is the number of entities added.
+	private final int[] type;
+	private final long[] tick;
+	private final long[] subject;
+	private final long[] other;
+	private final float[] x;
+	private final float[] y;
+
+	//Only used by the simulation: the number of the next event, the end of the events claimed so far
+	//and the tick events are being published in.
+	private long next;
+	private long claimLimit;
+	private long currentTick;
+
+	//Shared with the readers: the events before "published" are finished, those before "claimed" may be
+	//being written.
+	private volatile long published;
+	private volatile long claimed;
+
+	/*
+	 * Constructor for an empty ring.
+	 * @param capacity, how many events the ring can hold, rounded up to a power of two.
+	 */
+	public EventRing(int capacity) {
+
+		this.capacity = Integer.highestOneBit(Math.max(CLAIM_BLOCK, Math.min(1 << 28, capacity) * 2 - 1));
+		mask = this.capacity - 1;
+
+		type = new int[this.capacity];
+		tick = new long[this.capacity];
+		subject = new long[this.capacity];
+		other = new long[this.capacity];
+		x = new float[this.capacity];
+		y = new float[this.capacity];
+
+	}
+
+	/*
+	 * Creates a ring using the "events.capacity" setting.
+	 * @return ring EventRing, or null if the capacity is 0 (no events are published).
+	 */
+	public static EventRing fromSettings() {
+
+		int capacity = Settings.getInt("events.capacity", 65536);
+		return capacity > 0 ? new EventRing(capacity) : null;
+
+	}
+
+	/*
+	 * Sets the tick the events published from now on happened in. Only called by the simulation.
+	 * @param tick, the tick.
+	 */
+	void setTick(long tick) {
+		currentTick = tick;
+	}
+
+	/*
+	 * Publishes an event. Readers do not see it until commit() is called. Only called by the simulation.
+	 * @param type, the type of event.
+	 * @param subject, the handle of the entity it happened to.
+	 * @param other, the handle of the other entity involved, -1 if none (or the number added, for a spawn).
+	 * @param x, the x coordinate it happened at.
+	 * @param y, the y coordinate it happened at.
+	 */
+	void publish(int type, long subject, long other, double x, double y) {
+
+		//Claim the next block before writing into it, so a reader copying those rows can tell.
+		if (next == claimLimit) {
+			claimLimit = next + CLAIM_BLOCK;
+			claimed = claimLimit;
+			VarHandle.storeStoreFence();
+		}
+
+		int row = (int) next & mask;
+		this.type[row] = type;
+		this.tick[row] = currentTick;
+		this.subject[row] = subject;
+		this.other[row] = other;
+		this.x[row] = (float) x;
+		this.y[row] = (float) y;
+		next++;
+
+	}
+
+	/*
+	 * Lets the readers see every event published so far. Only called by the simulation.
+	 */
+	void commit() {
+
+		if (published != next) {
+			published = next;
+		}
+
+	}
+
+	/*
+	 * Makes a reader which reads the events published from now on.
+	 * @param batchSize, the most events each read() copies.
+	 * @return reader Reader
+	 */
+	public Reader newReader(int batchSize) {
+		return new Reader(batchSize);
+	}
+
+	/*
+	 * Getters for the size of the ring and the number of events published.
+	 */
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public long getPublished() {
+		return published;
+	}
+
+	/*
+	 * Reads the ring from another thread, a batch of events at a time. Each reader must only be used by
+	 * one thread.
+	 */
+	public class Reader {
+
+		//The number of the next event to read, and how many events were written over before they were read.
+		private long cursor;
+		private long lost;
+
+		//The batch of events copied by the last read().
+		private final int[] batchType;
+		private final long[] batchTick;
+		private final long[] batchSubject;
+		private final long[] batchOther;
+		private final float[] batchX;
+		private final float[] batchY;
+
+		/*
+		 * Constructor for a reader starting at the events published from now on.
+		 * @param batchSize, the most events each read() copies.
+		 */
+		private Reader(int batchSize) {
+
+			batchSize = Math.max(1, batchSize);
+			cursor = published;
+
+			batchType = new int[batchSize];
+			batchTick = new long[batchSize];
+			batchSubject = new long[batchSize];
+			batchOther = new long[batchSize];
+			batchX = new float[batchSize];
+			batchY = new float[batchSize];
+
+		}
+
+		/*
+		 * Copies the next batch of finished events, read with the getters below. Returns 0 straight away
+		 * if there are none, it never waits.
+		 * @return read int, how many events were copied.
+		 */
+		public int read() {
+
+			long end = published;
+
+			//Skip the events which have already been written over.
+			long start = Math.max(cursor, claimed - capacity);
+			if (start >= end) {
+				lost = lost + Math.max(0, end - cursor);
+				cursor = Math.max(cursor, end);
+				return 0;
+			}
+			lost = lost + (start - cursor);
+
+			int copied = (int) Math.min(batchType.length, end - start);
+			for (int index = 0; index < copied; index++) {
+
+				int row = (int) (start + index) & mask;
+				batchType[index] = type[row];
+				batchTick[index] = tick[row];
+				batchSubject[index] = subject[row];
+				batchOther[index] = other[row];
+				batchX[index] = x[row];
+				batchY[index] = y[row];
+
+			}
+
+			//Any event claimed since the copy started may have written over the rows of the oldest events
+			//copied, so throw those away.
+			VarHandle.loadLoadFence();
+			int overwritten = (int) Math.max(0, Math.min(copied, claimed - capacity - start));
+			if (overwritten > 0) {
+
+				int kept = copied - overwritten;
+				System.arraycopy(batchType, overwritten, batchType, 0, kept);
+				System.arraycopy(batchTick, overwritten, batchTick, 0, kept);
+				System.arraycopy(batchSubject, overwritten, batchSubject, 0, kept);
+				System.arraycopy(batchOther, overwritten, batchOther, 0, kept);
+				System.arraycopy(batchX, overwritten, batchX, 0, kept);
+				System.arraycopy(batchY, overwritten, batchY, 0, kept);
+				lost = lost + overwritten;
+
+			}
+
+			cursor = start + copied;
+			return copied - overwritten;
+
+		}
+
+		/*
+		 * Getters for an event in the last batch read.
+		 * @param index, the event's position in the batch.
+		 */
+		public int getType(int index) {
+			return batchType[index];
+		}
+
+		public long getTick(int index) {
+			return batchTick[index];
+		}
+
+		public long getSubject(int index) {
+			return batchSubject[index];
+		}
+
+		public long getOther(int index) {
+			return batchOther[index];
+		}
+
+		public float getX(int index) {
+			return batchX[index];
+		}
+
+		public float getY(int index) {
+			return batchY[index];
+		}
+
+		/*
+		 * Gets how many events were written over before this reader read them.
+		 * @return lost long
+		 */
+		public long getLost() {
+			return lost;
+		}
+
+	}
+
+}
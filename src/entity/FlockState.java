@@ -0,0 +1,493 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Used to grow the columns.
+import java.util.Arrays;
+
+//Used to hand the columns to the canvas.
+import drawing.EntityFrame;
+
+//Used to find which cell of the world each entity is in when sorting.
+import geometry.World;
+
+/*
+ * Stores the location and movement angle of a group of entities in "columns", one array of x
+ * coordinates, one of y coordinates and one of angles, rather than inside each entity object.
+ * Each entity has a slot, its position in the arrays. Storing the values side by side means
+ * a whole flock can be moved in one tight loop over primitive arrays (see Integrator), which
+ * is far quicker than visiting every entity object in turn.
+ *
+ * An entity starts off in its own single slot state when it is created. When it is added to
+ * the simulation the simulation's state adopts it, copying its values into a new slot, and
+ * from then on the entity reads and writes that slot.
+ *
+ * Slots are handed out in the order entities are added, so entities next to each other in the world
+ * end up scattered through the columns and reading a flock jumps all over memory. sortByLocation()
+ * reorders the slots along a Z-order (Morton) curve through the cells of the world, which keeps
+ * entities in nearby cells in nearby slots, and points every entity at its new slot.
+ *
+ * Removing an entity moves the entity in the last slot into its slot ("swap remove"), so the slots
+ * in use are always 0 to count - 1 with no gaps and removing takes the same time however many
+ * entities there are. As slots move, anything kept for longer than a tick should remember an
+ * entity's handle rather than its slot. A handle is an id, which stays with the entity whichever
+ * slot it is in, and the id's generation. When an entity is removed its id is put in a pool to be
+ * handed to a new entity, and the id's generation goes up, so handles to the removed entity are
+ * "stale" and getSlot() returns -1 for them rather than the slot of whichever entity has the id now.
+ */
+public class FlockState {
+
+	//The columns, only the first "count" values are in use.
+	double[] x;
+	double[] y;
+	double[] angle;
+	boolean[] predator;
+
+	//The entity using each slot (can be null for entities which only exist in the columns).
+	Entity[] owners;
+
+	//The id of the entity in each slot.
+	int[] ids;
+
+	//How many slots are in use.
+	int count;
+
+	//Where the simulation's events are published, null for none (and for an entity's own state).
+	EventRing events;
+
+	//The slot each id is in, each id's generation, and the ids free to be reused (a stack).
+	private int[] slotOfId;
+	private int[] generationOfId;
+	private int[] freeIds;
+	private int freeCount;
+	private int nextId;
+
+	//Spare columns the slots are sorted into, swapped with the columns in use after sorting.
+	private double[] spareX = new double[0];
+	private double[] spareY = new double[0];
+	private double[] spareAngle = new double[0];
+	private boolean[] sparePredator = new boolean[0];
+	private Entity[] spareOwners = new Entity[0];
+	private int[] spareIds = new int[0];
+	private long[] sortKeys = new long[0];
+
+	/*
+	 * Constructor for an empty state.
+	 * @param capacity, how many entities to make room for, the columns grow as needed.
+	 */
+	public FlockState(int capacity) {
+
+		capacity = Math.max(1, capacity);
+		x = new double[capacity];
+		y = new double[capacity];
+		angle = new double[capacity];
+		predator = new boolean[capacity];
+		owners = new Entity[capacity];
+		ids = new int[capacity];
+
+		slotOfId = new int[capacity];
+		generationOfId = new int[capacity];
+		freeIds = new int[capacity];
+
+	}
+
+	/*
+	 * Adds an entity to the next free slot.
+	 * @param owner, the entity object the slot belongs to (can be null).
+	 * @param x, the x coordinate of the entity.
+	 * @param y, the y coordinate of the entity.
+	 * @param angle, the movement angle of the entity.
+	 * @param predator, true if the entity is a predator.
+	 * @return slot int, the slot the entity was added to.
+	 */
+	public int add(Entity owner, double x, double y, double angle, boolean predator) {
+
+		if (count == this.x.length) {
+			grow(count * 2);
+		}
+
+		int slot = count++;
+		this.x[slot] = x;
+		this.y[slot] = y;
+		this.angle[slot] = angle;
+		this.predator[slot] = predator;
+		owners[slot] = owner;
+		assignId(slot);
+
+		return slot;
+
+	}
+
+	/*
+	 * Adds many entities at once, without entity objects, to be filled in by the caller (see
+	 * Population). The columns grow once, rather than doubling over and over.
+	 * @param number, how many slots to add.
+	 * @return slot int, the first slot added, the rest follow it.
+	 */
+	int reserve(int number) {
+
+		if ((long) count + number > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Cannot store " + number + " more entities");
+		}
+		if (count + number > x.length) {
+			grow(Math.max(count + number, (int) Math.min(Integer.MAX_VALUE - 8, x.length * 2L)));
+		}
+
+		int first = count;
+		count = count + number;
+
+		//Slots past the count may still hold old values from before a sort or removal.
+		Arrays.fill(predator, first, count, false);
+		Arrays.fill(owners, first, count, null);
+
+		for (int slot = first; slot < count; slot++) {
+			assignId(slot);
+		}
+
+		return first;
+
+	}
+
+	/*
+	 * Removes every slot from a slot onwards, e.g. the reserved slots a Population could not fill.
+	 * @param slot, the first slot to remove.
+	 */
+	void truncate(int slot) {
+
+		while (count > slot) {
+			remove(count - 1);
+		}
+
+	}
+
+	/*
+	 * Gives the entity in a slot an id, reusing a free one if there is one.
+	 */
+	private void assignId(int slot) {
+
+		int id;
+		if (freeCount > 0) {
+			id = freeIds[--freeCount];
+		} else {
+			id = nextId++;
+			if (id == slotOfId.length) {
+				slotOfId = Arrays.copyOf(slotOfId, id * 2);
+				generationOfId = Arrays.copyOf(generationOfId, id * 2);
+				freeIds = Arrays.copyOf(freeIds, id * 2);
+			}
+		}
+		ids[slot] = id;
+		slotOfId[id] = slot;
+
+	}
+
+	/*
+	 * Removes the entity in a slot, moving the entity in the last slot into it. The removed entity's
+	 * object, if it has one, is given a state of its own holding its last values, so it can still be
+	 * read (and added to a simulation again). Its handle becomes stale.
+	 * @param slot, the slot to empty.
+	 */
+	public void remove(int slot) {
+
+		Entity owner = owners[slot];
+		if (owner != null) {
+			FlockState own = new FlockState(1);
+			owner.slot = own.add(owner, x[slot], y[slot], angle[slot], predator[slot]);
+			owner.state = own;
+		}
+
+		//Retire the id, so handles to it are stale, and keep it to hand out again.
+		int id = ids[slot];
+		generationOfId[id]++;
+		freeIds[freeCount++] = id;
+
+		//Move the last entity into the empty slot.
+		int last = --count;
+		if (slot != last) {
+
+			x[slot] = x[last];
+			y[slot] = y[last];
+			angle[slot] = angle[last];
+			predator[slot] = predator[last];
+			owners[slot] = owners[last];
+			ids[slot] = ids[last];
+
+			slotOfId[ids[slot]] = slot;
+			if (owners[slot] != null) {
+				owners[slot].slot = slot;
+			}
+
+		}
+
+		//Do not keep the entity alive through the empty slot.
+		owners[last] = null;
+
+		//Give memory back once far fewer slots are used than there is room for.
+		if (x.length > 64 && count < x.length / 4) {
+			grow(x.length / 2);
+			spareX = new double[0];
+			spareY = new double[0];
+			spareAngle = new double[0];
+			sparePredator = new boolean[0];
+			spareOwners = new Entity[0];
+			spareIds = new int[0];
+			sortKeys = new long[0];
+		}
+
+	}
+
+	/*
+	 * Removes the entity a handle refers to.
+	 * @param handle, the entity's handle from getHandle().
+	 * @return removed boolean, false if the handle was stale.
+	 */
+	public boolean remove(long handle) {
+
+		int slot = getSlot(handle);
+		if (slot < 0) {
+			return false;
+		}
+
+		remove(slot);
+		return true;
+
+	}
+
+	/*
+	 * Gets the handle of the entity in a slot, which stays the same while the entity moves between slots.
+	 * @param slot, the slot.
+	 * @return handle long, the generation in the top 32 bits and the id in the bottom 32.
+	 */
+	public long getHandle(int slot) {
+
+		int id = ids[slot];
+		return (long) generationOfId[id] << 32 | id;
+
+	}
+
+	/*
+	 * Gets the slot of the entity a handle refers to.
+	 * @param handle, the entity's handle from getHandle().
+	 * @return slot int, or -1 if the entity has been removed.
+	 */
+	public int getSlot(long handle) {
+
+		int id = (int) handle;
+		int generation = (int) (handle >>> 32);
+
+		if (id < 0 || id >= nextId || generationOfId[id] != generation || slotOfId[id] >= count || ids[slotOfId[id]] != id) {
+			return -1;
+		}
+
+		return slotOfId[id];
+
+	}
+
+	/*
+	 * Checks whether the entity a handle refers to is still in this state.
+	 * @param handle, the entity's handle from getHandle().
+	 * @return alive boolean
+	 */
+	public boolean isAlive(long handle) {
+		return getSlot(handle) >= 0;
+	}
+
+	/*
+	 * Moves an entity into this state. Its current values are copied into a new slot and
+	 * the entity is pointed at that slot.
+	 * @param entity, the entity to adopt.
+	 */
+	public void adopt(Entity entity) {
+
+		int slot = add(entity, entity.getX(), entity.getY(), entity.getEntityMovementAngle(), entity.getPredator());
+
+		entity.state = this;
+		entity.slot = slot;
+
+	}
+
+	/*
+	 * Copies every slot into a frame for the canvas to draw.
+	 * @param frame, the frame to fill in.
+	 * @param tick, the tick being drawn.
+	 */
+	public void copyTo(EntityFrame frame, long tick) {
+		frame.copyFrom(x, y, angle, predator, count, tick);
+	}
+
+	/*
+	 * Copies the location and angle in every slot from another state with the same number of slots,
+	 * e.g. to start two simulations of the same entities from the same place.
+	 * @param other, the state to copy.
+	 */
+	public void copyFrom(FlockState other) {
+
+		System.arraycopy(other.x, 0, x, 0, count);
+		System.arraycopy(other.y, 0, y, 0, count);
+		System.arraycopy(other.angle, 0, angle, 0, count);
+
+	}
+
+	/*
+	 * Gets how many ids there is room for, every id handed out is below it. The columns shrink as
+	 * entities are removed but ids are kept to be reused, so this can be more than the slots.
+	 * @return idCapacity int
+	 */
+	int getIdCapacity() {
+		return slotOfId.length;
+	}
+
+	/*
+	 * Gets the number of slots in use.
+	 * @return count int
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/*
+	 * Gets the x coordinate of the entity in a slot.
+	 * @return x double
+	 */
+	public double getX(int slot) {
+		return x[slot];
+	}
+
+	/*
+	 * Gets the y coordinate of the entity in a slot.
+	 * @return y double
+	 */
+	public double getY(int slot) {
+		return y[slot];
+	}
+
+	/*
+	 * Gets the movement angle of the entity in a slot.
+	 * @return angle double
+	 */
+	public double getAngle(int slot) {
+		return angle[slot];
+	}
+
+	/*
+	 * Checks if the entity in a slot is a predator.
+	 * @return predator boolean
+	 */
+	public boolean isPredator(int slot) {
+		return predator[slot];
+	}
+
+	/*
+	 * Gets the entity object using a slot.
+	 * @return owner Entity, or null if the slot has no entity object.
+	 */
+	public Entity getOwner(int slot) {
+		return owners[slot];
+	}
+
+	/*
+	 * Sorts the slots by the Z-order (Morton) key of the cell each entity is in, interleaving the
+	 * bits of the cell's column and row so cells close together in the world have close keys.
+	 * Entities in the same cell keep their order. Every entity object is pointed at its new slot,
+	 * anything else remembering slots (e.g. a NeighbourList) must be rebuilt.
+	 * @param world, the world the entities live in.
+	 * @param cellSize, the size of the cells, usually the flock box.
+	 */
+	public void sortByLocation(World world, double cellSize) {
+
+		if (spareX.length < x.length) {
+			spareX = new double[x.length];
+			spareY = new double[x.length];
+			spareAngle = new double[x.length];
+			sparePredator = new boolean[x.length];
+			spareOwners = new Entity[x.length];
+			spareIds = new int[x.length];
+		}
+		if (sortKeys.length < count) {
+			sortKeys = new long[x.length];
+		}
+
+		//Key each slot by its cell's Morton key, with the slot in the low bits so the order is stable.
+		for (int slot = 0; slot < count; slot++) {
+
+			int column = (int) Math.min(0xFFFF, Math.max(0, world.wrapX(x[slot]) / cellSize));
+			int row = (int) Math.min(0xFFFF, Math.max(0, world.wrapY(y[slot]) / cellSize));
+			long key = (spreadBits(column) | spreadBits(row) << 1) & 0xFFFFFFFFL;
+			sortKeys[slot] = key << 31 | slot;
+
+		}
+
+		Arrays.sort(sortKeys, 0, count);
+
+		//Copy each slot to its new position, then swap the sorted columns in.
+		for (int slot = 0; slot < count; slot++) {
+
+			int from = (int) (sortKeys[slot] & 0x7FFFFFFF);
+			spareX[slot] = x[from];
+			spareY[slot] = y[from];
+			spareAngle[slot] = angle[from];
+			sparePredator[slot] = predator[from];
+			spareOwners[slot] = owners[from];
+			spareIds[slot] = ids[from];
+			slotOfId[ids[from]] = slot;
+
+			if (owners[from] != null) {
+				owners[from].slot = slot;
+			}
+
+		}
+
+		double[] swapX = x;
+		double[] swapY = y;
+		double[] swapAngle = angle;
+		boolean[] swapPredator = predator;
+		Entity[] swapOwners = owners;
+		int[] swapIds = ids;
+
+		x = spareX;
+		y = spareY;
+		angle = spareAngle;
+		predator = sparePredator;
+		owners = spareOwners;
+		ids = spareIds;
+
+		spareX = swapX;
+		spareY = swapY;
+		spareAngle = swapAngle;
+		sparePredator = swapPredator;
+		spareOwners = swapOwners;
+		spareIds = swapIds;
+
+		//Do not keep entities alive through the spare column.
+		Arrays.fill(spareOwners, 0, count, null);
+
+	}
+
+	/*
+	 * Spreads the 16 bits of a number out to every other bit, so two can be interleaved.
+	 */
+	private static int spreadBits(int value) {
+
+		value = (value | (value << 8)) & 0x00FF00FF;
+		value = (value | (value << 4)) & 0x0F0F0F0F;
+		value = (value | (value << 2)) & 0x33333333;
+		value = (value | (value << 1)) & 0x55555555;
+		return value;
+
+	}
+
+	/*
+	 * Grows (or shrinks) the columns, keeping the values already stored.
+	 * @param capacity, the new number of slots, at least count.
+	 */
+	private void grow(int capacity) {
+
+		x = Arrays.copyOf(x, capacity);
+		y = Arrays.copyOf(y, capacity);
+		angle = Arrays.copyOf(angle, capacity);
+		predator = Arrays.copyOf(predator, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+		ids = Arrays.copyOf(ids, capacity);
+
+	}
+
+}
@@ -0,0 +1,51 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Import the world so entities can be wrapped around its edges and settings to pick the integrator.
+import geometry.World;
+import tools.Settings;
+
+/*
+ * An integrator moves every entity in a FlockState forward along its movement angle and wraps
+ * it around the edges of the world, all in one pass over the columns. There are two:
+ *
+ * 		ScalarIntegrator - a plain loop, works everywhere.
+ * 		VectorIntegrator - uses the incubating Java Vector API (jdk.incubator.vector) to move
+ * 						   several entities per instruction. It is only compiled and used if
+ * 						   asked for, see README.txt.
+ */
+public interface Integrator {
+
+	/*
+	 * Moves every entity in the state along its movement angle at the given speed, then wraps
+	 * it around the edges of the world. An entity whose angle is not a number does not move,
+	 * the same as Entity.move().
+	 * @param state, the entities to move.
+	 * @param speed, the distance to move each entity.
+	 * @param world, the world to wrap the entities around.
+	 */
+	void moveAndWrap(FlockState state, double speed, World world);
+
+	/*
+	 * Creates the integrator named by the "integrator" setting, "scalar" (the default) or
+	 * "vector". If the vector integrator cannot be loaded (it was not compiled, or the program
+	 * was not run with --add-modules jdk.incubator.vector) the scalar one is used instead.
+	 * @return integrator Integrator
+	 */
+	static Integrator fromSettings() {
+
+		if (Settings.getString("integrator", "scalar").equals("vector")) {
+
+			try {
+				return (Integrator) Class.forName("entity.VectorIntegrator").getDeclaredConstructor().newInstance();
+			} catch (ReflectiveOperationException | LinkageError e) {
+				System.out.println("Vector integrator unavailable (" + e + "), using the scalar integrator.");
+			}
+
+		}
+
+		return new ScalarIntegrator();
+
+	}
+
+}
@@ -0,0 +1,756 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Imports for reading a population from a memory mapped file.
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+//Imports for filling the columns in parallel, each part with its own random numbers.
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+//Import the world the entities are placed in, and its obstacles.
+import geometry.SignedDistanceField;
+import geometry.World;
+
+//Import settings for the population made at the start.
+import tools.Settings;
+
+/*
+ * Makes a large number of entities at once, straight into the flock state's columns (see
+ * Simulation.populate()). Making each entity as an object with its own random number generators
+ * and adding them one at a time takes minutes for millions of entities, this takes seconds. The
+ * entities have no entity objects, so they are only steered by the steering kernel, and none of
+ * them are predators. The kinds of population are:
+ *
+ * 		uniform  - entities spread evenly over the world, heading anywhere.
+ * 		clusters - entities gathered around a number of random centres, with a normal (Gaussian)
+ * 		           spread around each centre, heading anywhere.
+ * 		poisson  - entities spread evenly but never closer than a minimum distance to each other
+ * 		           (Poisson disk sampling), heading anywhere.
+ * 		flocks   - flocks of entities each packed into a 20x20 box, as the "Add Flock" button does,
+ * 		           every entity in a flock heading the same way.
+ * 		file     - entities read from a file, see below.
+ *
+ * The slots are split into parts filled at the same time on every processor. Each part has random
+ * numbers of its own made from the seed and the part's number, so the same seed always makes the
+ * same population however many processors there are. Entities made inside an obstacle are pushed
+ * out of it, as RandomEntity does.
+ *
+ * A file is memory mapped and read in parts at the same time too. A file ending in ".csv" has a line
+ * for each entity, "x,y,angle" (the angle in degrees, random if left out). Lines not starting with a
+ * number (a header, comments, blank lines) are skipped. Any other file is binary, 12 bytes for each
+ * entity, the x, y and angle as little endian 32 bit floats one after another. Locations outside the
+ * world are wrapped into it. Files can be up to 2 GB.
+ */
+public class Population {
+
+	//The most entities in each part filled at the same time.
+	private static final int PART_SIZE = 1 << 16;
+
+	//The size of the box each flock is packed into, as the "Add Flock" button does.
+	private static final double FLOCK_BOX = 20;
+
+	//How far apart Poisson disk entities are, as a fraction of the space each would get if spread evenly, and
+	//how many tries each entity gets at finding a space.
+	private static final double POISSON_SPACING = 0.6;
+	private static final int POISSON_TRIES = 30;
+
+	//The least number of grid cells across each tile filled at the same time by Poisson disk sampling.
+	private static final int POISSON_TILE = 8;
+
+	//The size of each part of a CSV file read at the same time, and of each binary entity.
+	private static final int CSV_PART_SIZE = 1 << 20;
+	private static final int BINARY_SIZE = 12;
+
+	//Used to spread the seed of each part.
+	private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+	//The kind of population, how many entities, and the seed of the random numbers.
+	private String kind;
+	private int number;
+	private long seed;
+
+	//The number of clusters and their spread, and the number of entities in each flock.
+	private int clusters = 20;
+	private double spread = 30;
+	private int flockSize = 20;
+
+	//The file being read, where each part of it starts and how many entities are in each part (CSV only).
+	private Path path;
+	private MappedByteBuffer buffer;
+	private int[] partStart;
+	private int[] partFirst;
+
+	/*
+	 * Constructor for a population made at random.
+	 * @param kind, one of "uniform", "clusters", "poisson" or "flocks".
+	 * @param number, how many entities to make.
+	 * @param seed, the seed of the random numbers.
+	 */
+	private Population(String kind, int number, long seed) {
+
+		this.kind = kind;
+		this.number = Math.max(0, number);
+		this.seed = seed;
+
+	}
+
+	/*
+	 * Creates a population spread evenly over the world.
+	 * @param number, how many entities to make.
+	 * @param seed, the seed of the random numbers.
+	 * @return population Population
+	 */
+	public static Population uniform(int number, long seed) {
+		return new Population("uniform", number, seed);
+	}
+
+	/*
+	 * Creates a population gathered around random centres.
+	 * @param number, how many entities to make.
+	 * @param clusters, how many centres.
+	 * @param spread, the standard deviation of the distance from the centre, in x and in y.
+	 * @param seed, the seed of the random numbers.
+	 * @return population Population
+	 */
+	public static Population clusters(int number, int clusters, double spread, long seed) {
+
+		Population population = new Population("clusters", number, seed);
+		population.clusters = Math.max(1, clusters);
+		population.spread = Math.max(0, spread);
+		return population;
+
+	}
+
+	/*
+	 * Creates a population spread evenly with a minimum distance between entities. If there is not
+	 * room for every entity (e.g. around obstacles) fewer are made.
+	 * @param number, how many entities to make.
+	 * @param seed, the seed of the random numbers.
+	 * @return population Population
+	 */
+	public static Population poisson(int number, long seed) {
+		return new Population("poisson", number, seed);
+	}
+
+	/*
+	 * Creates a population of flocks, each heading its own way.
+	 * @param number, how many entities to make.
+	 * @param flockSize, how many entities in each flock.
+	 * @param seed, the seed of the random numbers.
+	 * @return population Population
+	 */
+	public static Population flocks(int number, int flockSize, long seed) {
+
+		Population population = new Population("flocks", number, seed);
+		population.flockSize = Math.max(1, flockSize);
+		return population;
+
+	}
+
+	/*
+	 * Creates a population read from a file, which is mapped into memory and counted straight away.
+	 * @param path, a ".csv" file or a binary file (see the class comment).
+	 * @param seed, the seed of the random numbers, for CSV lines without an angle.
+	 * @return population Population
+	 * @throws IOException if the file cannot be read or is larger than 2 GB.
+	 */
+	public static Population fromFile(Path path, long seed) throws IOException {
+
+		Population population = new Population("file", 0, seed);
+		population.path = path;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			if (channel.size() > Integer.MAX_VALUE) {
+				throw new IOException(path + " is larger than 2 GB, split it into smaller files");
+			}
+			population.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			population.buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+		}
+
+		if (path.toString().toLowerCase().endsWith(".csv")) {
+			population.countLines();
+		} else {
+			population.number = population.buffer.capacity() / BINARY_SIZE;
+		}
+
+		return population;
+
+	}
+
+	/*
+	 * Creates the population to start with from the "population" settings.
+	 * @return population Population, or null if no population is asked for.
+	 * @throws IOException if "population.file" cannot be read.
+	 */
+	public static Population fromSettings() throws IOException {
+
+		long seed = Settings.getInt("population.seed", 0);
+		if (seed == 0) {
+			seed = System.nanoTime();
+		}
+
+		String file = Settings.getString("population.file", "");
+		if (!file.isEmpty()) {
+			return fromFile(Paths.get(file), seed);
+		}
+
+		int number = Settings.getInt("population.size", 0);
+		if (number <= 0) {
+			return null;
+		}
+
+		String kind = Settings.getString("population.generator", "uniform").toLowerCase();
+		switch (kind) {
+		case "clusters":
+			return clusters(number, Settings.getInt("population.clusters", 20), Settings.getDouble("population.spread", 30), seed);
+		case "poisson":
+			return poisson(number, seed);
+		case "flocks":
+			return flocks(number, Settings.getInt("population.flock", 20), seed);
+		default:
+			return uniform(number, seed);
+		}
+
+	}
+
+	/*
+	 * Fills reserved slots with the population.
+	 * @param state, the state the slots are in.
+	 * @param first, the first reserved slot, the rest follow it.
+	 * @param world, the world to place the entities in.
+	 * @return filled int, how many slots were filled, from the first on. The rest should be removed.
+	 */
+	int fill(FlockState state, int first, World world) {
+
+		int filled;
+
+		switch (kind) {
+		case "poisson":
+			return fillPoisson(state, first, world);
+		case "file":
+			filled = partStart != null ? fillCsv(state, first, world) : fillBinary(state, first, world);
+			break;
+		default:
+			fillRandom(state, first, world);
+			filled = number;
+			break;
+		}
+
+		pushOutOfObstacles(state, first, filled, world);
+		return filled;
+
+	}
+
+	/*
+	 * Fills the slots for the uniform, clusters and flocks populations, each part at the same time.
+	 */
+	private void fillRandom(FlockState state, int first, World world) {
+
+		double width = world.getWidth();
+		double height = world.getHeight();
+		double[] x = state.x;
+		double[] y = state.y;
+		double[] angle = state.angle;
+
+		//The cluster centres are shared by every part, so are made first.
+		double[] centreX = new double[clusters];
+		double[] centreY = new double[clusters];
+		SplittableRandom centres = new SplittableRandom(seed);
+		for (int cluster = 0; cluster < clusters; cluster++) {
+			centreX[cluster] = centres.nextDouble() * width;
+			centreY[cluster] = centres.nextDouble() * height;
+		}
+
+		boolean isClusters = kind.equals("clusters");
+		boolean isFlocks = kind.equals("flocks");
+		int parts = (number + PART_SIZE - 1) / PART_SIZE;
+
+		IntStream.range(0, parts).parallel().forEach(part -> {
+
+			SplittableRandom random = new SplittableRandom(seed ^ (part + 1) * GOLDEN);
+			int from = part * PART_SIZE;
+			int to = Math.min(number, from + PART_SIZE);
+
+			//The current flock's box and heading, made from the flock's own number so a flock split
+			//between two parts is the same in both.
+			int flock = -1;
+			double boxX = 0;
+			double boxY = 0;
+			double heading = 0;
+
+			for (int index = from; index < to; index++) {
+
+				int slot = first + index;
+
+				if (isClusters) {
+
+					int cluster = random.nextInt(clusters);
+					x[slot] = world.wrapX(centreX[cluster] + random.nextGaussian() * spread);
+					y[slot] = world.wrapY(centreY[cluster] + random.nextGaussian() * spread);
+					angle[slot] = random.nextDouble() * 360;
+
+				} else if (isFlocks) {
+
+					if (index / flockSize != flock) {
+						flock = index / flockSize;
+						SplittableRandom flockRandom = new SplittableRandom(seed ^ (flock + 1) * GOLDEN * 31);
+						boxX = flockRandom.nextDouble() * width;
+						boxY = flockRandom.nextDouble() * height;
+						heading = flockRandom.nextDouble() * 360;
+					}
+					x[slot] = world.wrapX(boxX + random.nextDouble() * FLOCK_BOX);
+					y[slot] = world.wrapY(boxY + random.nextDouble() * FLOCK_BOX);
+					angle[slot] = heading;
+
+				} else {
+
+					x[slot] = random.nextDouble() * width;
+					y[slot] = random.nextDouble() * height;
+					angle[slot] = random.nextDouble() * 360;
+
+				}
+
+			}
+
+		});
+
+	}
+
+	/*
+	 * Fills the slots with Poisson disk samples. The world is covered by a grid of cells small enough
+	 * to hold one entity each, and the grid is split into tiles. Each tile is given its share of the
+	 * entities, and tries random locations inside itself, keeping those far enough from every entity
+	 * already kept. Tiles next to each other would check each other's entities, so the tiles are
+	 * coloured like a chess board (with a third colour for the last row and column if they would meet
+	 * a tile of their own colour across the edge of the world) and the tiles of each colour are
+	 * filled at the same time. Tiles are at least as wide as the distance checked, so two tiles of
+	 * the same colour never check the same cells. Each tile keeps its entities in its own range of slots, which are
+	 * moved together at the end.
+	 */
+	private int fillPoisson(FlockState state, int first, World world) {
+
+		if (number == 0) {
+			return 0;
+		}
+
+		double width = world.getWidth();
+		double height = world.getHeight();
+		double distance = POISSON_SPACING * Math.sqrt(width * height / number);
+		double distanceSquared = distance * distance;
+
+		//Cells no wider than distance / sqrt(2), so no cell can hold two entities.
+		int columns = Math.max(1, (int) Math.ceil(width / (distance / Math.sqrt(2))));
+		int rows = Math.max(1, (int) Math.ceil(height / (distance / Math.sqrt(2))));
+		double cellWidth = width / columns;
+		double cellHeight = height / rows;
+
+		//How many cells away an entity can be and still be too close.
+		int reachX = (int) Math.ceil(distance / cellWidth);
+		int reachY = (int) Math.ceil(distance / cellHeight);
+
+		if ((long) columns * rows > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many entities for a Poisson disk population: " + number);
+		}
+
+		//The slot of the entity in each cell, -1 for none.
+		int[] cells = new int[columns * rows];
+		Arrays.fill(cells, -1);
+
+		//The tiles split the cells as evenly as they can, tile i across covers columns tileLeft[i] to tileLeft[i + 1].
+		int tilesAcross = Math.max(1, columns / Math.max(POISSON_TILE, reachX));
+		int tilesDown = Math.max(1, rows / Math.max(POISSON_TILE, reachY));
+		int tiles = tilesAcross * tilesDown;
+		int[] tileLeft = new int[tilesAcross + 1];
+		int[] tileTop = new int[tilesDown + 1];
+		for (int tile = 0; tile <= tilesAcross; tile++) {
+			tileLeft[tile] = (int) ((long) tile * columns / tilesAcross);
+		}
+		for (int tile = 0; tile <= tilesDown; tile++) {
+			tileTop[tile] = (int) ((long) tile * rows / tilesDown);
+		}
+
+		//Each tile's share of the entities, by its number of cells, and where its slots start.
+		int[] tileStart = new int[tiles + 1];
+		int[] tileFilled = new int[tiles];
+		long cellsBefore = 0;
+		for (int tile = 0; tile < tiles; tile++) {
+
+			int tileColumns = tileLeft[tile % tilesAcross + 1] - tileLeft[tile % tilesAcross];
+			int tileRows = tileTop[tile / tilesAcross + 1] - tileTop[tile / tilesAcross];
+			tileStart[tile] = (int) (number * cellsBefore / ((long) columns * rows));
+			cellsBefore = cellsBefore + (long) tileColumns * tileRows;
+
+		}
+		tileStart[tiles] = number;
+
+		double[] x = state.x;
+		double[] y = state.y;
+		double[] angle = state.angle;
+		SignedDistanceField obstacles = world.getObstacles();
+		boolean hasObstacles = obstacles != null && obstacles.hasObstacles();
+
+		for (int colour = 0; colour < 9; colour++) {
+
+			int tileColour = colour;
+
+			IntStream.range(0, tiles).filter(tile -> colourOf(tile % tilesAcross, tilesAcross) * 3
+					+ colourOf(tile / tilesAcross, tilesDown) == tileColour).parallel().forEach(tile -> {
+
+				SplittableRandom random = new SplittableRandom(seed ^ (tile + 1) * GOLDEN);
+				int left = tileLeft[tile % tilesAcross];
+				int top = tileTop[tile / tilesAcross];
+				int tileColumns = tileLeft[tile % tilesAcross + 1] - left;
+				int tileRows = tileTop[tile / tilesAcross + 1] - top;
+				int share = tileStart[tile + 1] - tileStart[tile];
+				int kept = 0;
+
+				for (int tries = share * POISSON_TRIES; tries > 0 && kept < share; tries--) {
+
+					double pointX = (left + random.nextDouble() * tileColumns) * cellWidth;
+					double pointY = (top + random.nextDouble() * tileRows) * cellHeight;
+					int column = Math.min(columns - 1, (int) (pointX / cellWidth));
+					int row = Math.min(rows - 1, (int) (pointY / cellHeight));
+
+					if (cells[row * columns + column] >= 0
+							|| hasObstacles && obstacles.getDistance(pointX, pointY) <= Entity.obstacleMargin) {
+						continue;
+					}
+
+					//Check every cell close enough to hold an entity too close, across the edges of the world.
+					boolean tooClose = false;
+					for (int down = -reachY; down <= reachY && !tooClose; down++) {
+						int nearRow = Math.floorMod(row + down, rows);
+						for (int across = -reachX; across <= reachX; across++) {
+
+							int near = cells[nearRow * columns + Math.floorMod(column + across, columns)];
+							if (near < 0) {
+								continue;
+							}
+
+							double deltaX = world.deltaX(pointX, x[near]);
+							double deltaY = world.deltaY(pointY, y[near]);
+							if (deltaX * deltaX + deltaY * deltaY < distanceSquared) {
+								tooClose = true;
+								break;
+							}
+
+						}
+					}
+
+					if (!tooClose) {
+
+						int slot = first + tileStart[tile] + kept++;
+						x[slot] = pointX;
+						y[slot] = pointY;
+						angle[slot] = random.nextDouble() * 360;
+						cells[row * columns + column] = slot;
+
+					}
+
+				}
+
+				tileFilled[tile] = kept;
+
+			});
+
+		}
+
+		//Move each tile's entities down to follow the tile before, leaving no gaps.
+		int filled = 0;
+		for (int tile = 0; tile < tiles; tile++) {
+
+			int from = first + tileStart[tile];
+			System.arraycopy(x, from, x, first + filled, tileFilled[tile]);
+			System.arraycopy(y, from, y, first + filled, tileFilled[tile]);
+			System.arraycopy(angle, from, angle, first + filled, tileFilled[tile]);
+			filled = filled + tileFilled[tile];
+
+		}
+
+		return filled;
+
+	}
+
+	/*
+	 * Gets the colour of a tile along one direction, 0 or 1 alternately, or 2 for the last of an
+	 * odd number of tiles so it never meets a tile of its own colour across the edge of the world.
+	 */
+	private static int colourOf(int tile, int tiles) {
+		return tiles > 1 && tiles % 2 == 1 && tile == tiles - 1 ? 2 : tile % 2;
+	}
+
+	/*
+	 * Fills the slots from a binary file, each part at the same time.
+	 */
+	private int fillBinary(FlockState state, int first, World world) {
+
+		double[] x = state.x;
+		double[] y = state.y;
+		double[] angle = state.angle;
+		int parts = (number + PART_SIZE - 1) / PART_SIZE;
+
+		IntStream.range(0, parts).parallel().forEach(part -> {
+
+			int to = Math.min(number, (part + 1) * PART_SIZE);
+
+			for (int index = part * PART_SIZE; index < to; index++) {
+
+				int position = index * BINARY_SIZE;
+				x[first + index] = world.wrapX(buffer.getFloat(position));
+				y[first + index] = world.wrapY(buffer.getFloat(position + 4));
+				angle[first + index] = buffer.getFloat(position + 8);
+
+			}
+
+		});
+
+		return number;
+
+	}
+
+	/*
+	 * Splits a CSV file into parts which each start at the beginning of a line, and counts the entities
+	 * in each part at the same time.
+	 */
+	private void countLines() {
+
+		int size = buffer.capacity();
+		int parts = Math.max(1, (size + CSV_PART_SIZE - 1) / CSV_PART_SIZE);
+
+		partStart = new int[parts + 1];
+		for (int part = 1; part < parts; part++) {
+
+			int position = Math.max(partStart[part - 1], part * CSV_PART_SIZE);
+			while (position < size && buffer.get(position - 1) != '\n') {
+				position++;
+			}
+			partStart[part] = position;
+
+		}
+		partStart[parts] = size;
+
+		int[] counts = new int[parts];
+		IntStream.range(0, parts).parallel().forEach(part -> counts[part] = readCsv(part, null, 0, null));
+
+		partFirst = new int[parts + 1];
+		for (int part = 0; part < parts; part++) {
+			partFirst[part + 1] = partFirst[part] + counts[part];
+		}
+		number = partFirst[parts];
+
+	}
+
+	/*
+	 * Fills the slots from a CSV file, each part at the same time.
+	 */
+	private int fillCsv(FlockState state, int first, World world) {
+
+		IntStream.range(0, partStart.length - 1).parallel().forEach(part -> readCsv(part, state, first + partFirst[part], world));
+		return number;
+
+	}
+
+	/*
+	 * Reads the entities in one part of a CSV file.
+	 * @param part, the part to read.
+	 * @param state, the state to fill, or null to only count the entities.
+	 * @param slot, the slot of the part's first entity.
+	 * @param world, the world to wrap locations into.
+	 * @return count int, the number of entities in the part.
+	 */
+	private int readCsv(int part, FlockState state, int slot, World world) {
+
+		int position = partStart[part];
+		int end = partStart[part + 1];
+		int count = 0;
+		SplittableRandom random = state == null ? null : new SplittableRandom(seed ^ (part + 1) * GOLDEN);
+		double[] values = new double[3];
+
+		while (position < end) {
+
+			//Skip spaces, then skip the line if it does not start with a number.
+			while (position < end && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+				position++;
+			}
+			if (position == end) {
+				break;
+			}
+
+			byte first = buffer.get(position);
+			boolean entity = first >= '0' && first <= '9' || first == '-' || first == '+' || first == '.';
+
+			if (entity && state != null) {
+
+				//Read up to three numbers separated by commas (and spaces).
+				int read = 0;
+				while (read < 3 && position < end && buffer.get(position) != '\n' && buffer.get(position) != '\r') {
+
+					long mantissa = 0;
+					int exponent = 0;
+					int digits = 0;
+					boolean negative = false;
+					boolean point = false;
+
+					byte next = buffer.get(position);
+					if (next == '-' || next == '+') {
+						negative = next == '-';
+						position++;
+					}
+
+					for (; position < end; position++) {
+
+						next = buffer.get(position);
+						if (next >= '0' && next <= '9') {
+
+							//Past 18 digits a long would overflow, and the digits no longer matter.
+							if (mantissa < 100000000000000000L) {
+								mantissa = mantissa * 10 + (next - '0');
+								exponent = point ? exponent - 1 : exponent;
+							} else if (!point) {
+								exponent++;
+							}
+							digits++;
+
+						} else if (next == '.' && !point) {
+							point = true;
+						} else {
+							break;
+						}
+
+					}
+
+					if (position < end && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+
+						position++;
+						boolean negativeExponent = position < end && buffer.get(position) == '-';
+						if (position < end && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+							position++;
+						}
+						int power = 0;
+						while (position < end && buffer.get(position) >= '0' && buffer.get(position) <= '9') {
+							power = Math.min(1000, power * 10 + (buffer.get(position++) - '0'));
+						}
+						exponent = negativeExponent ? exponent - power : exponent + power;
+
+					}
+
+					if (digits == 0) {
+						throw new IllegalArgumentException("Cannot read a number at byte " + position + " of " + path);
+					}
+
+					double value = exponent == 0 ? mantissa : exponent > 0 ? mantissa * Math.pow(10, exponent) : mantissa / Math.pow(10, -exponent);
+					values[read++] = negative ? -value : value;
+
+					//Skip the spaces and comma before the next number.
+					while (position < end && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+						position++;
+					}
+					if (position < end && buffer.get(position) == ',') {
+						position++;
+					}
+					while (position < end && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+						position++;
+					}
+
+				}
+
+				if (read < 2) {
+					throw new IllegalArgumentException("Expected x,y[,angle] at byte " + position + " of " + path);
+				}
+
+				state.x[slot + count] = world.wrapX(values[0]);
+				state.y[slot + count] = world.wrapY(values[1]);
+				state.angle[slot + count] = read == 3 ? values[2] : random.nextDouble() * 360;
+
+			}
+
+			if (entity) {
+				count++;
+			}
+
+			//Move on to the next line.
+			while (position < end && buffer.get(position++) != '\n') {
+			}
+
+		}
+
+		return count;
+
+	}
+
+	/*
+	 * Pushes entities made inside an obstacle out of it, as RandomEntity does, each part at the same time.
+	 */
+	private static void pushOutOfObstacles(FlockState state, int first, int number, World world) {
+
+		SignedDistanceField obstacles = world.getObstacles();
+		if (obstacles == null || !obstacles.hasObstacles()) {
+			return;
+		}
+
+		double[] x = state.x;
+		double[] y = state.y;
+		int parts = (number + PART_SIZE - 1) / PART_SIZE;
+
+		IntStream.range(0, parts).parallel().forEach(part -> {
+
+			int to = first + Math.min(number, (part + 1) * PART_SIZE);
+
+			for (int slot = first + part * PART_SIZE; slot < to; slot++) {
+				for (int attempt = 0; attempt < 4; attempt++) {
+
+					double distance = obstacles.getDistance(x[slot], y[slot]);
+					if (distance > Entity.obstacleMargin) {
+						break;
+					}
+
+					//At the very centre of an obstacle there is no direction away, so move well out of the way.
+					double push = Entity.obstacleMargin - distance + 1;
+					double pushX = obstacles.getGradientX(x[slot], y[slot]) * push;
+					double pushY = obstacles.getGradientY(x[slot], y[slot]) * push;
+					if (pushX == 0 && pushY == 0) {
+						pushX = -100;
+						pushY = -100;
+					}
+
+					x[slot] = world.wrapX(x[slot] + pushX);
+					y[slot] = world.wrapY(y[slot] + pushY);
+
+				}
+			}
+
+		});
+
+	}
+
+	/*
+	 * Getters for the population.
+	 */
+	public String getKind() {
+		return kind;
+	}
+
+	public int getNumber() {
+		return number;
+	}
+
+	public long getSeed() {
+		return seed;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Population: %d entities (%s%s)", number, kind, path == null ? "" : " " + path);
+	}
+
+}
@@ -0,0 +1,185 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Import settings for the tick budget.
+import tools.Settings;
+
+/*
+ * Keeps the time taken by each tick within a budget by trading quality for speed. Without it, adding
+ * flocks faster than the machine can steer them makes every tick take longer and the window stops
+ * responding.
+ *
+ * The time of every tick is given to record(), which keeps a smoothed average. When the average has
+ * been over the budget ("quality.budget", in milliseconds) for a few ticks the quality drops one
+ * level, and when it has been well under the budget for a couple of seconds it rises one level again.
+ * Falling is quick so a sudden spike (e.g. several large flocks added at once) is caught within a
+ * few ticks, rising is slow and needs plenty of headroom so the quality does not flicker between two
+ * levels. Each level is cheaper than the one before:
+ *
+ * 		0 full       - every setting as chosen.
+ * 		1 coarse     - the quadtree's opening angle is doubled so distant flocks are grouped into
+ * 		               fewer, larger clumps.
+ * 		2 steering   - as coarse, and each entity is only steered every other tick, half of them
+ * 		               one tick and half the next (they still move every tick).
+ * 		3 lowest     - three times the opening angle, steering every other tick and only every other
+ * 		               tick is drawn.
+ *
+ * apply() sets the level on a simulation and shouldRender() says whether to draw a tick. No level
+ * limits how many neighbours each entity looks at (see SteeringKernel.setMaxNeighbours()), as picking
+ * the nearest from the neighbour lists costs about as much as walking the whole list, and looking at
+ * whichever come first in the list steers every flock the same way.
+ */
+public class QualityController {
+
+	//The names of the levels, and what each changes.
+	private static final String[] NAMES = {"full", "coarse", "steering", "lowest"};
+	private static final double[] OPENING_ANGLE_SCALE = {1, 2, 2, 3};
+	private static final int[] STEERING_SPREAD = {1, 1, 2, 2};
+	private static final int[] RENDER_INTERVAL = {1, 1, 1, 2};
+
+	//How many ticks over, or under, the budget before the level changes.
+	private static final int FALL_AFTER = 5;
+	private static final int RISE_AFTER = 100;
+
+	//The fraction of the budget the average must stay under before the level rises.
+	private static final double HEADROOM = 0.5;
+
+	//The budget for each tick and the smoothed time taken, in nanoseconds.
+	private double budget;
+	private double average = -1;
+
+	//The current level and how many ticks in a row have been over or under the budget.
+	private int level;
+	private int ticksOver;
+	private int ticksUnder;
+
+	//The simulation's own number of steering groups, the levels multiply it.
+	private int steeringGroups;
+
+	//How many times the level has changed.
+	private long changes;
+
+	/*
+	 * Constructor for a controller starting at full quality.
+	 * @param budgetMillis, the most time each tick should take, in milliseconds.
+	 */
+	public QualityController(double budgetMillis) {
+		this.budget = budgetMillis * 1e6;
+	}
+
+	/*
+	 * Creates a controller using the "quality.budget" setting.
+	 * @return controller QualityController, or null if the budget is 0 (always full quality).
+	 */
+	public static QualityController fromSettings() {
+
+		double budget = Settings.getDouble("quality.budget", 15);
+		return budget > 0 ? new QualityController(budget) : null;
+
+	}
+
+	/*
+	 * Records how long a tick took and changes the level if needed.
+	 * @param tickNanos, the time taken by the tick, in nanoseconds.
+	 * @return changed boolean, true if the level changed.
+	 */
+	public boolean record(long tickNanos) {
+
+		//Smooth the times, so a single slow tick (e.g. a garbage collection) does not change the level.
+		average = average < 0 ? tickNanos : average * 0.8 + tickNanos * 0.2;
+
+		if (average > budget) {
+			ticksOver++;
+			ticksUnder = 0;
+		} else if (average < budget * HEADROOM) {
+			ticksUnder++;
+			ticksOver = 0;
+		} else {
+			ticksOver = 0;
+			ticksUnder = 0;
+		}
+
+		if (ticksOver >= FALL_AFTER && level < NAMES.length - 1) {
+			setLevel(level + 1);
+			return true;
+		}
+		if (ticksUnder >= RISE_AFTER && level > 0) {
+			setLevel(level - 1);
+			return true;
+		}
+
+		return false;
+
+	}
+
+	/*
+	 * Sets the level of quality, 0 for full.
+	 * @param level, the new level.
+	 */
+	public void setLevel(int level) {
+
+		this.level = Math.max(0, Math.min(NAMES.length - 1, level));
+		ticksOver = 0;
+		ticksUnder = 0;
+		changes++;
+
+	}
+
+	/*
+	 * Sets the current level on a simulation. Call after giving the simulation the on screen
+	 * controls' values, as the opening angle is scaled from the control's value.
+	 * @param simulation, the simulation to set.
+	 */
+	public void apply(Simulation simulation) {
+
+		if (steeringGroups == 0) {
+			steeringGroups = simulation.getSteeringGroups();
+		}
+		simulation.setSteeringGroups(steeringGroups * STEERING_SPREAD[level]);
+		simulation.setOpeningAngle(simulation.getOpeningAngle() * OPENING_ANGLE_SCALE[level]);
+
+	}
+
+	/*
+	 * Checks whether a tick should be drawn at the current level.
+	 * @param tick, the tick.
+	 * @return render boolean
+	 */
+	public boolean shouldRender(long tick) {
+		return tick % RENDER_INTERVAL[level] == 0;
+	}
+
+	/*
+	 * Getters for the level, its name and the time taken.
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	public int getLowestLevel() {
+		return NAMES.length - 1;
+	}
+
+	public String getLevelName() {
+		return NAMES[level];
+	}
+
+	public double getBudgetMillis() {
+		return budget / 1e6;
+	}
+
+	public double getAverageMillis() {
+		return Math.max(0, average) / 1e6;
+	}
+
+	public long getChanges() {
+		return changes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Quality %d of %d (%s), ticks taking %.1f ms of %.1f ms", level, NAMES.length - 1, getLevelName(),
+				getAverageMillis(), getBudgetMillis());
+	}
+
+}
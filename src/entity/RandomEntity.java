@@ -1,96 +1,116 @@
-/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
-package entity;
-
-//Import "Canvas" so the entities can be drawn, "CartesianCoordinate" so they can be given locations
-//and the random number generator to provide random locations and movement angles.
-import drawing.Canvas;
-import geometry.CartesianCoordinate;
-import tools.RandomNumberGenerator;
-
-//A random entity is an entity thus extends it.
-public class RandomEntity extends Entity {
-	
-	//Create storage space for the random number generators.
-	private RandomNumberGenerator randomX;
-	private RandomNumberGenerator randomY;
-	private RandomNumberGenerator randomAngle;
-
-	/*
-	 * Constructor for a random entity with no set values whatsoever.
-	 * @param canvas, a sheet to draw the entity on.
-	 */
-	public RandomEntity(Canvas canvas) {
-		super(canvas);
-		
-		//Generate random coordinates and a random movement angle.
-		randomX = new RandomNumberGenerator(0, 700);
-		randomY = new RandomNumberGenerator(500, 0);
-		randomAngle = new RandomNumberGenerator(0, 360);
-		
-		//Assign the randomly generated coordinates.
-		currentLocation.setX(randomX.get());
-		currentLocation.setY(randomY.get());
-		
-		//Set the entities movement angle to the randomly generated one.
-		setEntityMovementAngle(randomAngle.get());
-		
-		//Checks if the random entity has been created inside the obstacle. 
-		checkIfInsideObstacle();
-		
-	}
-	
-	/*
-	 * Constructor for a random entity which will be created within a given space. The space can 
-	 * be thought of as a box with a top left and bottom right coordinate. The entity will also 
-	 * be given movement angle. Useful for creating entities in the same direction and proximity (flocks).
-	 * @param canvas, to draw the entity on.
-	 * @param topLeftLimit, the upper left corner of the limiting "box".
-	 * @param bottomRightLimit, the bottom right corner of the limiting "box".
-	 * @param movementAngle, the desired entity movement angle.
-	 */
-	public RandomEntity(Canvas canvas, CartesianCoordinate topLeftLimit, CartesianCoordinate bottomRightLimit, double movementAngle) {
-		super(canvas);
-		
-			//Generate two random coordinates for the entity
-			randomX = new RandomNumberGenerator(topLeftLimit.getX(), bottomRightLimit.getX());
-			randomY = new RandomNumberGenerator(topLeftLimit.getY(), bottomRightLimit.getY());
-		
-		//Assign the randomly generated coordinates.
-		currentLocation.setX(randomX.get());
-		currentLocation.setY(randomY.get());
-		
-		//Set the entities movement angle to the desired one.
-		setEntityMovementAngle(movementAngle);
-		
-		//Checks if the random entity has been created inside the obstacle. 
-		checkIfInsideObstacle();
-		
-	}
-	
-	/*
-	 * Checks if the random entity has been created inside the obstacle. If it has been its coordinates are
-	 * altered to a fixed point. As attempts at using another random number created stack overflow errors.
-	 * Possibly due to random numbers being in a similar range.
-	 */
-	private void checkIfInsideObstacle() {
-		
-		//Gets x and y distances between the new entity and the centre of the obstacle.
-		double xDistFromObstacle = 350 - currentLocation.getX();
-		double yDistFromObstacle = 250 - currentLocation.getY();
-		
-		//Use Pythagoras theorem to find the distance between the obstacle and the entity for obstacle detection.
-		double distFromObstacle = Math.sqrt(xDistFromObstacle * xDistFromObstacle + yDistFromObstacle * yDistFromObstacle);
-		
-		//Check is the distance to the centre of the obstacle is less than the radius.
-		if (distFromObstacle <= 80) {
-
-			//Sets the current location well out of the way of the obstacle (-100).
-			currentLocation.setX(currentLocation.getX() - 100);
-			currentLocation.setY(currentLocation.getY() - 100);
-				
-		}
-
-	}
-	
-}
-
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Import "Canvas" so the entities can be drawn, "CartesianCoordinate" so they can be given locations
+//and the random number generator to provide random locations and movement angles.
+import drawing.Canvas;
+import geometry.CartesianCoordinate;
+import geometry.World;
+import geometry.SignedDistanceField;
+import tools.RandomNumberGenerator;
+
+//A random entity is an entity thus extends it.
+public class RandomEntity extends Entity {
+	
+	//Create storage space for the random number generators.
+	private RandomNumberGenerator randomX;
+	private RandomNumberGenerator randomY;
+	private RandomNumberGenerator randomAngle;
+
+	/*
+	 * Constructor for a random entity with no set values whatsoever.
+	 * @param canvas, a sheet to draw the entity on.
+	 * @param world, the world the entity lives in, it will appear anywhere inside it.
+	 */
+	public RandomEntity(Canvas canvas, World world) {
+		super(canvas, world);
+		
+		//Generate random coordinates anywhere in the world and a random movement angle.
+		randomX = new RandomNumberGenerator(0, world.getWidth());
+		randomY = new RandomNumberGenerator(world.getHeight(), 0);
+		randomAngle = new RandomNumberGenerator(0, 360);
+		
+		//Assign the randomly generated coordinates.
+		setX(randomX.get());
+		setY(randomY.get());
+		
+		//Set the entities movement angle to the randomly generated one.
+		setEntityMovementAngle(randomAngle.get());
+		
+		//Checks if the random entity has been created inside the obstacle. 
+		checkIfInsideObstacle();
+		
+	}
+	
+	/*
+	 * Constructor for a random entity which will be created within a given space. The space can 
+	 * be thought of as a box with a top left and bottom right coordinate. The entity will also 
+	 * be given movement angle. Useful for creating entities in the same direction and proximity (flocks).
+	 * @param canvas, to draw the entity on.
+	 * @param world, the world the entity lives in.
+	 * @param topLeftLimit, the upper left corner of the limiting "box".
+	 * @param bottomRightLimit, the bottom right corner of the limiting "box".
+	 * @param movementAngle, the desired entity movement angle.
+	 */
+	public RandomEntity(Canvas canvas, World world, CartesianCoordinate topLeftLimit, CartesianCoordinate bottomRightLimit, double movementAngle) {
+		super(canvas, world);
+		
+			//Generate two random coordinates for the entity
+			randomX = new RandomNumberGenerator(topLeftLimit.getX(), bottomRightLimit.getX());
+			randomY = new RandomNumberGenerator(topLeftLimit.getY(), bottomRightLimit.getY());
+		
+		//Assign the randomly generated coordinates.
+		setX(randomX.get());
+		setY(randomY.get());
+		
+		//Set the entities movement angle to the desired one.
+		setEntityMovementAngle(movementAngle);
+		
+		//Checks if the random entity has been created inside the obstacle. 
+		checkIfInsideObstacle();
+		
+	}
+	
+	/*
+	 * Checks if the random entity has been created inside an obstacle. If it has been it is pushed out
+	 * along the direction away from the obstacle. As attempts at using another random number created 
+	 * stack overflow errors. Possibly due to random numbers being in a similar range.
+	 */
+	private void checkIfInsideObstacle() {
+		
+		SignedDistanceField obstacles = world.getObstacles();
+		if (obstacles == null || !obstacles.hasObstacles()) {
+			return;
+		}
+		
+		//The field gives the distance to the edge of the nearest obstacle, a few pushes is always enough
+		//as the distance is exact apart from the blending between grid points.
+		for (int attempt = 0; attempt < 4; attempt++) {
+			
+			double distFromObstacle = obstacles.getDistance(getX(), getY());
+			
+			//Check if the entity is outside the obstacle and its margin.
+			if (distFromObstacle > Entity.obstacleMargin) {
+				return;
+			}
+
+			//Push the entity just past the margin, away from the obstacle. At the very centre of an
+			//obstacle there is no direction away, so it is moved well out of the way instead (-100).
+			double push = Entity.obstacleMargin - distFromObstacle + 1;
+			double xPush = obstacles.getGradientX(getX(), getY()) * push;
+			double yPush = obstacles.getGradientY(getX(), getY()) * push;
+			
+			if (xPush == 0 && yPush == 0) {
+				xPush = -100;
+				yPush = -100;
+			}
+			
+			setX(world.wrapX(getX() + xPush));
+			setY(world.wrapY(getY() + yPush));
+				
+		}
+
+	}
+	
+}
+
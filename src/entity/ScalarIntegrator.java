@@ -0,0 +1,41 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Import the world so entities can be wrapped around its edges.
+import geometry.World;
+
+/*
+ * Moves every entity using a plain loop over the FlockState columns. This is the fallback
+ * used when the vector integrator is not available.
+ */
+public class ScalarIntegrator implements Integrator {
+
+	/*
+	 * Moves every entity along its movement angle then wraps it around the world.
+	 * Entity.move() splits the angle into quarters to build a right angled triangle, but each
+	 * quarter works out to the same thing, x + sin(angle) * speed and y - cos(angle) * speed,
+	 * so that is used directly here.
+	 */
+	@Override
+	public void moveAndWrap(FlockState state, double speed, World world) {
+
+		double[] x = state.x;
+		double[] y = state.y;
+		double[] angle = state.angle;
+
+		for (int slot = 0; slot < state.count; slot++) {
+
+			//An entity with an invalid angle stays where it is.
+			if (Double.isNaN(angle[slot])) {
+				continue;
+			}
+
+			double radians = Math.toRadians(angle[slot]);
+			x[slot] = world.wrapX(x[slot] + Math.sin(radians) * speed);
+			y[slot] = world.wrapY(y[slot] - Math.cos(radians) * speed);
+
+		}
+
+	}
+
+}
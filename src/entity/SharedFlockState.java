@@ -0,0 +1,206 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Imports for mapping a file into memory.
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+//Import the world so its size can be shared too.
+import geometry.World;
+
+//Import settings to find out where to share the state.
+import tools.Settings;
+
+/*
+ * Shares the location and angle of every entity with other programs on the same machine, by
+ * copying the FlockState columns into a memory mapped file once per tick. With the file in
+ * /dev/shm it never touches the disk, and a program which maps the same file (for example
+ * SharedFlockStateReader) can read the live state straight out of memory without any copying.
+ *
+ * A sequence number at the start of the file lets readers spot a tick that was half written
+ * when they read it. It is odd while a tick is being written and even once it is complete, so
+ * a reader checks it is even and unchanged before and after reading.
+ *
+ * The layout of the file (all values in the machine's byte order) is:
+ *
+ * 		0	long	MAGIC
+ * 		8	long	sequence number
+ * 		16	long	tick
+ * 		24	int		entity count
+ * 		28	int		capacity (how many entities each column has room for)
+ * 		32	double	world width
+ * 		40	double	world height
+ * 		64	double[capacity] x, then double[capacity] y, then double[capacity] angle,
+ * 			then byte[capacity] predator (1 for a predator, 0 otherwise)
+ *
+ * The file is mapped as one buffer, which can be at most 2 GB, so at most MAX_CAPACITY entities
+ * (about 85 million) can be shared.
+ */
+public class SharedFlockState {
+
+	//Identifies the file as a flock state, "FLOCKST1".
+	static final long MAGIC = 0x464C4F434B535431L;
+
+	//Where each value is in the file.
+	static final int SEQUENCE_OFFSET = 8;
+	static final int TICK_OFFSET = 16;
+	static final int COUNT_OFFSET = 24;
+	static final int CAPACITY_OFFSET = 28;
+	static final int WIDTH_OFFSET = 32;
+	static final int HEIGHT_OFFSET = 40;
+	static final int HEADER_SIZE = 64;
+
+	//The most entities the file can hold, 25 bytes each after the header.
+	static final int MAX_CAPACITY = (Integer.MAX_VALUE - HEADER_SIZE) / 25;
+
+	//Used to read and write the sequence number with memory ordering guarantees.
+	static final VarHandle LONG_VIEW = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	//The file being shared and the memory it is mapped into.
+	private Path path;
+	private MappedByteBuffer buffer;
+	private int capacity;
+
+	//The sequence number of the last tick written.
+	private long sequence;
+
+	/*
+	 * Constructor which creates (or replaces) the shared file.
+	 * @param path, the file to share the state through, e.g. /dev/shm/flocking-state.
+	 * @param capacity, how many entities to make room for, the file grows if more are added.
+	 */
+	public SharedFlockState(Path path, int capacity) throws IOException {
+
+		this.path = path;
+		map(Math.max(1, capacity));
+
+	}
+
+	/*
+	 * Creates a shared state using the "shared.path" and "shared.capacity" settings.
+	 * @return sharedState SharedFlockState, or null if sharing is turned off or the file cannot be created.
+	 */
+	public static SharedFlockState fromSettings() {
+
+		String path = Settings.getString("shared.path", "");
+
+		if (path.isEmpty()) {
+			return null;
+		}
+
+		try {
+			return new SharedFlockState(Paths.get(path), Settings.getInt("shared.capacity", 100000));
+		} catch (IOException e) {
+			System.out.println("Cannot share the flock state through " + path + " (" + e + ").");
+			return null;
+		}
+
+	}
+
+	/*
+	 * Copies the state into the shared file as one complete tick.
+	 * @param state, the entities to share.
+	 * @param world, the world they live in.
+	 * @param tick, the number of the tick being shared.
+	 */
+	public void publish(FlockState state, World world, long tick) throws IOException {
+
+		int count = state.count;
+
+		//Check before marking the tick, so a failure does not leave readers waiting for it to finish.
+		if (count > MAX_CAPACITY) {
+			throw new IOException("Cannot share more than " + MAX_CAPACITY + " entities.");
+		}
+
+		//Mark the tick as being written, readers will ignore anything they read until it is even again.
+		LONG_VIEW.setVolatile(buffer, SEQUENCE_OFFSET, ++sequence);
+		VarHandle.storeStoreFence();
+
+		//Grow the file if the entities no longer fit.
+		if (count > capacity) {
+			map((int) Math.min(MAX_CAPACITY, Math.max(count, capacity * 2L)));
+		}
+
+		buffer.putLong(TICK_OFFSET, tick);
+		buffer.putInt(COUNT_OFFSET, count);
+		buffer.putDouble(WIDTH_OFFSET, world.getWidth());
+		buffer.putDouble(HEIGHT_OFFSET, world.getHeight());
+
+		//Copy each column in one go.
+		buffer.asDoubleBuffer().put(xOffset(capacity) / 8, state.x, 0, count);
+		buffer.asDoubleBuffer().put(yOffset(capacity) / 8, state.y, 0, count);
+		buffer.asDoubleBuffer().put(angleOffset(capacity) / 8, state.angle, 0, count);
+
+		int predatorOffset = predatorOffset(capacity);
+		for (int slot = 0; slot < count; slot++) {
+			buffer.put(predatorOffset + slot, state.predator[slot] ? (byte) 1 : (byte) 0);
+		}
+
+		//Mark the tick as complete.
+		LONG_VIEW.setRelease(buffer, SEQUENCE_OFFSET, ++sequence);
+
+	}
+
+	/*
+	 * Gets the file the state is shared through.
+	 * @return path Path
+	 */
+	public Path getPath() {
+		return path;
+	}
+
+	/*
+	 * Maps the file with room for the given number of entities. The file is only resized while
+	 * a tick is being written, so the odd sequence number stops readers trusting anything read
+	 * during the change.
+	 */
+	private void map(int newCapacity) throws IOException {
+
+		if (newCapacity > MAX_CAPACITY) {
+			throw new IOException("Cannot share more than " + MAX_CAPACITY + " entities.");
+		}
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(newCapacity));
+		}
+		buffer.order(ByteOrder.nativeOrder());
+
+		capacity = newCapacity;
+		LONG_VIEW.setVolatile(buffer, SEQUENCE_OFFSET, sequence);
+		buffer.putLong(0, MAGIC);
+		buffer.putInt(CAPACITY_OFFSET, capacity);
+
+	}
+
+	/*
+	 * Where each column starts and how big the file is for a given capacity. The offsets fit in an
+	 * int for any capacity up to MAX_CAPACITY.
+	 */
+	static int xOffset(int capacity) {
+		return HEADER_SIZE;
+	}
+
+	static int yOffset(int capacity) {
+		return HEADER_SIZE + capacity * 8;
+	}
+
+	static int angleOffset(int capacity) {
+		return HEADER_SIZE + capacity * 16;
+	}
+
+	static int predatorOffset(int capacity) {
+		return HEADER_SIZE + capacity * 24;
+	}
+
+	static long fileSize(int capacity) {
+		return HEADER_SIZE + (long) capacity * 25;
+	}
+
+}
@@ -0,0 +1,216 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Imports for mapping the shared file into memory.
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+//Used to pause between reads.
+import tools.Utils;
+
+/*
+ * Reads the flock state shared by a running simulation through SharedFlockState. The values
+ * are read straight out of the mapped file, nothing is copied. A read is only trusted if the
+ * sequence number was even (no tick being written) and did not change while reading. If no
+ * complete tick can be read for a second (e.g. the simulation stopped half way through writing
+ * one) the read gives up and the results of the last good read are kept, marked as stale.
+ *
+ * It can be run on its own to watch a simulation from another process:
+ *
+ * 		java entity.SharedFlockStateReader /dev/shm/flocking-state
+ *
+ * which prints the tick, the number of entities and their average location a few times a second.
+ */
+public class SharedFlockStateReader {
+
+	//The shared file and the memory it is mapped into.
+	private Path path;
+	private MappedByteBuffer buffer;
+
+	//The results of the last good read.
+	private long tick;
+	private int count;
+	private int predators;
+	private double averageX;
+	private double averageY;
+
+	//How many reads were thrown away because a tick was being written at the time.
+	private long tornReads;
+
+	//How long read() keeps trying, in nanoseconds, and how many times it gave up.
+	private static final long READ_TIMEOUT = 1000000000L;
+	private long staleReads;
+
+	/*
+	 * Constructor which maps the shared file.
+	 * @param path, the file the simulation is sharing its state through.
+	 */
+	public SharedFlockStateReader(Path path) throws IOException {
+
+		this.path = path;
+		map();
+
+	}
+
+	/*
+	 * Reads a summary of the current tick, retrying until a complete tick has been read or a second
+	 * has passed.
+	 * @return fresh boolean, false if no complete tick could be read and the results are stale.
+	 */
+	public boolean read() throws IOException {
+
+		long giveUpAt = System.nanoTime() + READ_TIMEOUT;
+
+		while (!tryRead()) {
+
+			tornReads++;
+			if (System.nanoTime() - giveUpAt > 0) {
+				staleReads++;
+				return false;
+			}
+			Thread.onSpinWait();
+
+		}
+
+		return true;
+
+	}
+
+	/*
+	 * Tries once to read a summary of the current tick.
+	 * @return complete boolean, false if the tick was being written while it was read.
+	 */
+	public boolean tryRead() throws IOException {
+
+		long sequenceBefore = (long) SharedFlockState.LONG_VIEW.getAcquire(buffer, SharedFlockState.SEQUENCE_OFFSET);
+
+		//An odd number means a tick is being written right now.
+		if (sequenceBefore % 2 != 0) {
+			return false;
+		}
+
+		//The simulation may have grown the file, map it again if so.
+		int capacity = buffer.getInt(SharedFlockState.CAPACITY_OFFSET);
+		if (capacity < 0 || capacity > SharedFlockState.MAX_CAPACITY) {
+			throw new IOException(path + " has an invalid capacity of " + capacity + ".");
+		}
+		if (SharedFlockState.fileSize(capacity) > buffer.capacity()) {
+			map();
+			return false;
+		}
+
+		long newTick = buffer.getLong(SharedFlockState.TICK_OFFSET);
+		int newCount = Math.min(capacity, buffer.getInt(SharedFlockState.COUNT_OFFSET));
+
+		//Add up the columns directly from the shared memory.
+		double sumOfX = 0;
+		double sumOfY = 0;
+		int newPredators = 0;
+		int xOffset = SharedFlockState.xOffset(capacity);
+		int yOffset = SharedFlockState.yOffset(capacity);
+		int predatorOffset = SharedFlockState.predatorOffset(capacity);
+
+		for (int slot = 0; slot < newCount; slot++) {
+
+			sumOfX = sumOfX + buffer.getDouble(xOffset + slot * 8);
+			sumOfY = sumOfY + buffer.getDouble(yOffset + slot * 8);
+
+			if (buffer.get(predatorOffset + slot) != 0) {
+				newPredators++;
+			}
+
+		}
+
+		//Check nothing changed while reading, if it did the values are thrown away.
+		VarHandle.loadLoadFence();
+		long sequenceAfter = (long) SharedFlockState.LONG_VIEW.getAcquire(buffer, SharedFlockState.SEQUENCE_OFFSET);
+
+		if (sequenceAfter != sequenceBefore) {
+			return false;
+		}
+
+		tick = newTick;
+		count = newCount;
+		predators = newPredators;
+		averageX = newCount == 0 ? 0 : sumOfX / newCount;
+		averageY = newCount == 0 ? 0 : sumOfY / newCount;
+
+		return true;
+
+	}
+
+	/*
+	 * Getters for the results of the last good read.
+	 */
+	public long getTick() {
+		return tick;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public int getPredators() {
+		return predators;
+	}
+
+	public double getAverageX() {
+		return averageX;
+	}
+
+	public double getAverageY() {
+		return averageY;
+	}
+
+	public long getTornReads() {
+		return tornReads;
+	}
+
+	public long getStaleReads() {
+		return staleReads;
+	}
+
+	/*
+	 * Maps the whole of the shared file, read only.
+	 */
+	private void map() throws IOException {
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(ByteOrder.nativeOrder());
+
+		if (buffer.getLong(0) != SharedFlockState.MAGIC) {
+			throw new IOException(path + " is not a shared flock state.");
+		}
+
+	}
+
+	/*
+	 * Watches a shared flock state, printing a summary a few times a second.
+	 * @param args, the path of the shared file (defaults to /dev/shm/flocking-state).
+	 */
+	public static void main(String[] args) throws IOException {
+
+		SharedFlockStateReader reader = new SharedFlockStateReader(Paths.get(args.length > 0 ? args[0] : "/dev/shm/flocking-state"));
+
+		while (true) {
+
+			boolean fresh = reader.read();
+			System.out.printf("tick %d: %d entities (%d predators), average location (%.1f, %.1f), %d torn reads%s%n",
+					reader.getTick(), reader.getCount(), reader.getPredators(), reader.getAverageX(), reader.getAverageY(), reader.getTornReads(),
+					fresh ? "" : " (stale, no complete tick for a second)");
+
+			Utils.pause(250);
+
+		}
+
+	}
+
+}
@@ -0,0 +1,642 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Imports for the list of entities, and picking entities to remove.
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+//Import Cartesian coordinate for the nest location.
+import geometry.CartesianCoordinate;
+
+//Import the quadtree, grid and world used every tick.
+import geometry.QuadTree;
+import geometry.SignedDistanceField;
+import geometry.SpatialGrid;
+import geometry.World;
+
+//Import settings to choose how the entities are steered.
+import tools.Settings;
+
+/*
+ * Runs the simulation one tick at a time, without any GUI. A tick moves every entity, rebuilds
+ * the grid (and the quadtree if flocks attract each other) and then applies every behaviour to
+ * every entity. FlockingProgram runs it with the values from the on screen controls, and the
+ * benchmarks run it on their own, so both exercise exactly the same code.
+ *
+ * By default the behaviours are applied by a SteeringKernel, which steers every entity in one pass
+ * over the flock state and only rebuilds the grid when its neighbour lists are out of date.
+ * Setting "steering" to "entity" calls each entity's behaviour methods one at a time instead,
+ * which is slower but easier to follow and to change.
+ *
+ * Headings change slowly, so with "steering.groups" set to K the entities are split into K groups
+ * by slot and only one group is steered each tick, in turn, which makes steering K times cheaper.
+ * Every entity still moves every tick. Predators, and entities close to an obstacle, are steered
+ * every tick anyway, as a late turn is easy to see there.
+ *
+ * Entities can be removed as well as added (see FlockState.remove()). With "predation.range" set,
+ * a predator catches (removes) any entity, that is not a predator, within that range at the end
+ * of each tick.
+ *
+ * Millions of entities can be added at once with populate(), without making an entity object for
+ * each. Those are only steered by the steering kernel.
+ *
+ * Unless "events.capacity" is 0, what happens to the entities (added, colliding, seeing a predator,
+ * bouncing off an obstacle, being caught) is published to an EventRing, for other threads to read
+ * (see getEvents()). The events of a tick are only seen by readers once the tick has finished.
+ */
+public class Simulation {
+
+	//The world the entities live in, and where their nest is.
+	private World world;
+	private CartesianCoordinate nestLocation;
+
+	//Every entity, and the state storing their location and angle side by side.
+	private List<Entity> entities;
+	private FlockState flockState;
+
+	//Used to move the entities, find each entity's flock and find the pull of other flocks.
+	private Integrator integrator;
+	private SpatialGrid grid;
+	private QuadTree quadTree;
+
+	//Steers every entity in one pass, used unless fusedSteering is turned off.
+	private SteeringKernel steeringKernel;
+	private boolean fusedSteering;
+
+	//The number of ticks run so far.
+	private long tick;
+
+	//The number of groups steered in turn, 1 to steer every entity every tick.
+	private int steeringGroups;
+
+	//The number of nearest neighbours in each entity's flock, 0 for every neighbour in its flock box.
+	private int nearest;
+
+	//How close a predator must be to an entity to catch it, 0 for never, and how many have been caught.
+	private double predationRange;
+	private long caught;
+
+	//The handles of the entities caught this tick and of the predators which caught them, and used to
+	//pick entities to remove at random.
+	private long[] catches = new long[16];
+	private long[] catchers = new long[16];
+	private Random random = new Random();
+
+	//How close (in units) to an obstacle an entity must be to be steered every tick.
+	private static final double OBSTACLE_RANGE = 25;
+
+	//How often (in ticks) the flock state is sorted so entities near each other are stored near each other, 0 for never.
+	private int reorderInterval;
+
+	//The values controlling the entities' behaviour, the defaults match the on screen controls.
+	private double speed = 1;
+	private double cohesionFactor = 0.2;
+	private double alignmentFactor = 0.1;
+	private double seperationFactor = 0.2;
+	private double nestAttractionFactor = 0.0;
+	private double flockAttractionFactor = 0.0;
+	private double openingAngle = 0.5;
+	private boolean collisionDetection = false;
+
+	/*
+	 * Constructor for an empty simulation.
+	 * @param world, the world the entities live in.
+	 * @param integrator, used to move the entities each tick.
+	 * @param nestLocation, where the entities' nest is.
+	 */
+	public Simulation(World world, Integrator integrator, CartesianCoordinate nestLocation) {
+
+		this.world = world;
+		this.integrator = integrator;
+		this.nestLocation = nestLocation;
+
+		//Synchronised so the GUI can read the list while the simulation runs.
+		entities = Collections.synchronizedList(new ArrayList<Entity>());
+		flockState = new FlockState(64);
+		flockState.events = EventRing.fromSettings();
+
+		//The grid's cells are the size of the flock box (50) so a flock never spans more than 2x2 cells.
+		grid = new SpatialGrid(world, 50);
+		quadTree = new QuadTree();
+
+		steeringKernel = new SteeringKernel();
+		fusedSteering = !Settings.getString("steering", "fused").equalsIgnoreCase("entity");
+		reorderInterval = Settings.getInt("storage.reorder", 100);
+		steeringGroups = Math.max(1, Settings.getInt("steering.groups", 1));
+		nearest = Math.max(0, Settings.getInt("steering.nearest", 0));
+		predationRange = Settings.getDouble("predation.range", 0);
+
+	}
+
+	/*
+	 * Adds an entity, moving its location and angle into the flock state.
+	 * @param entity, the entity to add.
+	 */
+	public void add(Entity entity) {
+
+		synchronized (entities) {
+
+			flockState.adopt(entity);
+			entity.listIndex = entities.size();
+			entities.add(entity);
+
+			if (flockState.events != null) {
+				flockState.events.publish(EventRing.SPAWN, entity.getHandle(), 1, entity.getX(), entity.getY());
+				flockState.events.commit();
+			}
+
+		}
+
+	}
+
+	/*
+	 * Adds many entities at once, made by a population (see Population). They only have slots in
+	 * the flock state, not entity objects, so they are steered by the steering kernel but not with
+	 * "steering" set to "entity".
+	 * @param population, makes the entities.
+	 * @return added int, how many entities were added.
+	 */
+	public int populate(Population population) {
+
+		synchronized (entities) {
+
+			//Remove the slots which were not filled, all of them if the population could not be made.
+			int first = flockState.reserve(population.getNumber());
+			int added = 0;
+			try {
+				added = population.fill(flockState, first, world);
+			} finally {
+				flockState.truncate(first + added);
+				steeringKernel.invalidate();
+			}
+
+			//One event for the whole population, at the first entity added.
+			if (flockState.events != null && added > 0) {
+				flockState.events.publish(EventRing.SPAWN, flockState.getHandle(first), added, flockState.x[first], flockState.y[first]);
+				flockState.events.commit();
+			}
+
+			return added;
+
+		}
+
+	}
+
+	/*
+	 * Removes an entity. The entity in the last slot takes its slot in the flock state, and the last
+	 * entity in the list of entities takes its place there, so removing takes the same time however
+	 * many entities there are.
+	 * @param entity, the entity to remove.
+	 * @return removed boolean, false if the entity is not in this simulation.
+	 */
+	public boolean remove(Entity entity) {
+
+		synchronized (entities) {
+
+			if (entity.state != flockState) {
+				return false;
+			}
+
+			removeSlot(entity.slot);
+			steeringKernel.invalidate();
+			return true;
+
+		}
+
+	}
+
+	/*
+	 * Removes the entity a handle refers to (see FlockState.getHandle()).
+	 * @param handle, the entity's handle.
+	 * @return removed boolean, false if the handle is stale.
+	 */
+	public boolean remove(long handle) {
+
+		synchronized (entities) {
+
+			int slot = flockState.getSlot(handle);
+			if (slot < 0) {
+				return false;
+			}
+
+			removeSlot(slot);
+			steeringKernel.invalidate();
+			return true;
+
+		}
+
+	}
+
+	/*
+	 * Removes entities picked at random.
+	 * @param number, how many to remove (fewer if there are not that many).
+	 */
+	public void removeRandom(int number) {
+
+		synchronized (entities) {
+
+			int removed = 0;
+			while (removed < number && flockState.getCount() > 0) {
+				removeSlot(random.nextInt(flockState.getCount()));
+				removed++;
+			}
+
+			if (removed > 0) {
+				steeringKernel.invalidate();
+			}
+
+		}
+
+	}
+
+	/*
+	 * Removes the entity in a slot from the flock state and the list of entities. Each entity knows
+	 * where it is in the list, and the last entity in the list takes its place. While every slot has
+	 * an entity object the list is in slot order, and this makes the same swap as the flock state.
+	 * The neighbour lists refer to slots, so the caller must invalidate the steering kernel once it
+	 * has removed everything it is going to.
+	 */
+	private void removeSlot(int slot) {
+
+		Entity owner = flockState.getOwner(slot);
+
+		if (owner != null) {
+
+			int last = entities.size() - 1;
+			Entity moved = entities.get(last);
+			entities.set(owner.listIndex, moved);
+			moved.listIndex = owner.listIndex;
+			entities.remove(last);
+			owner.listIndex = -1;
+
+		}
+
+		flockState.remove(slot);
+
+	}
+
+	/*
+	 * Lets every predator catch the entities within the predation range. The grid is rebuilt to
+	 * find them, and they are removed by handle once every predator has looked, so an entity
+	 * caught by two predators is only removed once.
+	 */
+	private void catchPrey() {
+
+		SpatialGrid grid = rebuildGrid();
+		int caughtThisTick = 0;
+
+		for (int slot = 0; slot < flockState.getCount(); slot++) {
+
+			if (!flockState.predator[slot]) {
+				continue;
+			}
+
+			int found = grid.findNeighbours(flockState.x[slot], flockState.y[slot], predationRange);
+			int[] neighbours = grid.getNeighbours();
+
+			for (int index = 0; index < found; index++) {
+
+				int prey = neighbours[index];
+				if (flockState.predator[prey]) {
+					continue;
+				}
+
+				if (caughtThisTick == catches.length) {
+					catches = Arrays.copyOf(catches, caughtThisTick * 2);
+					catchers = Arrays.copyOf(catchers, caughtThisTick * 2);
+				}
+				catchers[caughtThisTick] = flockState.getHandle(slot);
+				catches[caughtThisTick++] = flockState.getHandle(prey);
+
+			}
+
+		}
+
+		boolean removedThisTick = false;
+		for (int index = 0; index < caughtThisTick; index++) {
+
+			int slot = flockState.getSlot(catches[index]);
+			if (slot < 0) {
+				continue;
+			}
+
+			if (flockState.events != null) {
+				flockState.events.publish(EventRing.CAUGHT, catches[index], catchers[index], flockState.x[slot], flockState.y[slot]);
+			}
+
+			removeSlot(slot);
+			caught++;
+			removedThisTick = true;
+
+		}
+
+		//The neighbour lists refer to slots, so forget them once every catch has been removed.
+		if (removedThisTick) {
+			steeringKernel.invalidate();
+		}
+
+	}
+
+	/*
+	 * Runs one tick. In depth explanations of each action are found within its respective method/class.
+	 */
+	public void tick() {
+
+		synchronized (entities) {
+
+			//Events published during the tick are marked with it.
+			if (flockState.events != null) {
+				flockState.events.setTick(tick);
+			}
+
+			//Move every entity, and if an entity leaves the world make it reappear on the other side.
+			integrator.moveAndWrap(flockState, speed, world);
+
+			//Every so often sort the entities by where they are, so each flock is stored together.
+			if (reorderInterval > 0 && tick % reorderInterval == 0) {
+				reorder();
+			}
+
+			//Rebuild the quadtree from every entity's location, only needed if flocks attract each other.
+			if (fusedSteering ? steeringKernel.needsQuadTree(this) : flockAttractionFactor != 0) {
+
+				quadTree.clear(0, 0, world.getWidth(), world.getHeight());
+				for (int slot = 0; slot < flockState.getCount(); slot++) {
+					quadTree.insert(flockState.getX(slot), flockState.getY(slot), 1);
+				}
+
+			}
+
+			//Steer every entity in one pass (the kernel rebuilds the grid when it needs it), or call
+			//each entity's behaviour methods in turn.
+			if (fusedSteering) {
+				steeringKernel.steer(this, quadTree);
+			} else {
+				rebuildGrid();
+				steerEntities();
+			}
+
+			//Let the predators catch anything close enough.
+			if (predationRange > 0) {
+				catchPrey();
+			}
+
+			//Let the readers see the tick's events.
+			if (flockState.events != null) {
+				flockState.events.commit();
+			}
+
+			tick++;
+
+		}
+
+	}
+
+	/*
+	 * Sorts the flock state by location (see FlockState.sortByLocation()), using the grid's cell
+	 * size. The list of entities is put in the same order, so the entities are still visited in
+	 * slot order, and the neighbour lists are rebuilt as they refer to the old slots.
+	 */
+	private void reorder() {
+
+		flockState.sortByLocation(world, 50);
+
+		entities.clear();
+		for (int slot = 0; slot < flockState.getCount(); slot++) {
+			if (flockState.getOwner(slot) != null) {
+				flockState.getOwner(slot).listIndex = entities.size();
+				entities.add(flockState.getOwner(slot));
+			}
+		}
+
+		steeringKernel.invalidate();
+
+	}
+
+	/*
+	 * Checks whether the entity in a slot is steered this tick (see the class comment).
+	 * @param slot, the entity's slot.
+	 * @return steered boolean
+	 */
+	boolean isSteered(int slot) {
+
+		if (steeringGroups == 1 || slot % steeringGroups == tick % steeringGroups || flockState.predator[slot]) {
+			return true;
+		}
+
+		SignedDistanceField obstacles = world.getObstacles();
+		return obstacles != null && obstacles.hasObstacles()
+				&& obstacles.getDistance(flockState.x[slot], flockState.y[slot]) <= OBSTACLE_RANGE;
+
+	}
+
+	/*
+	 * Rebuilds the grid from every entity's location, so each entity can quickly find its flock.
+	 * @return grid SpatialGrid
+	 */
+	SpatialGrid rebuildGrid() {
+
+		grid.clear(flockState.getCount());
+		for (int slot = 0; slot < flockState.getCount(); slot++) {
+			grid.insert(slot, flockState.getX(slot), flockState.getY(slot));
+		}
+
+		return grid;
+
+	}
+
+	/*
+	 * Applies every behaviour to every entity, one method at a time. In depth explanations of each
+	 * behaviour are found within its respective method.
+	 */
+	private void steerEntities() {
+
+		for (Entity entity : entities) {
+
+			//Leave the entity's angle alone if it is not its group's turn.
+			if (!isSteered(entity.slot)) {
+				continue;
+			}
+
+			//Find the entities in this entity's flock box, their centre and average angle.
+			entity.calculateFlockParameters(grid, nearest);
+
+			//Apply the cohesive factor to the entity / Move them closer.
+			entity.applyCohesion(cohesionFactor);
+
+			//Apply the separation factor to the entity / Move them apart.
+			entity.applySeperation(seperationFactor);
+
+			//Apply the alignment factor to the entity / Move them in the same direction.
+			entity.applyAlignment(alignmentFactor);
+
+			//Apply the nest attraction factor to the entity / move it towards the nest.
+			entity.applyNestAttraction(nestLocation, nestAttractionFactor);
+
+			//Apply the long range flock attraction factor / move it towards other flocks.
+			if (flockAttractionFactor != 0) {
+				entity.applyLongRangeAttraction(quadTree, openingAngle, flockAttractionFactor);
+			}
+
+			//Apply the avoidance factor and check if it has been hit.
+			entity.applyObstacleAvoidance();
+
+			//See if the entity has hit another entity.
+			entity.applyCollisions(grid, collisionDetection);
+
+			//Move entities away from nearby predators.
+			entity.applyPredator();
+
+		}
+
+	}
+
+	/*
+	 * Getters for the simulation's parts.
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	public List<Entity> getEntities() {
+		return entities;
+	}
+
+	public FlockState getFlockState() {
+		return flockState;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public EventRing getEvents() {
+		return flockState.events;
+	}
+
+	public CartesianCoordinate getNestLocation() {
+		return nestLocation;
+	}
+
+	/*
+	 * Getters for the values controlling the entities' behaviour.
+	 */
+	public double getSpeed() {
+		return speed;
+	}
+
+	public double getCohesionFactor() {
+		return cohesionFactor;
+	}
+
+	public double getAlignmentFactor() {
+		return alignmentFactor;
+	}
+
+	public double getSeperationFactor() {
+		return seperationFactor;
+	}
+
+	public double getNestAttractionFactor() {
+		return nestAttractionFactor;
+	}
+
+	public double getFlockAttractionFactor() {
+		return flockAttractionFactor;
+	}
+
+	public double getOpeningAngle() {
+		return openingAngle;
+	}
+
+	public boolean isCollisionDetection() {
+		return collisionDetection;
+	}
+
+	public boolean isFusedSteering() {
+		return fusedSteering;
+	}
+
+	public int getReorderInterval() {
+		return reorderInterval;
+	}
+
+	public int getSteeringGroups() {
+		return steeringGroups;
+	}
+
+	public int getNearest() {
+		return nearest;
+	}
+
+	public double getPredationRange() {
+		return predationRange;
+	}
+
+	public long getCaught() {
+		return caught;
+	}
+
+	public SteeringKernel getSteeringKernel() {
+		return steeringKernel;
+	}
+
+	/*
+	 * Setters for the values controlling the entities' behaviour.
+	 */
+	public void setSpeed(double speed) {
+		this.speed = speed;
+	}
+
+	public void setCohesionFactor(double cohesionFactor) {
+		this.cohesionFactor = cohesionFactor;
+	}
+
+	public void setAlignmentFactor(double alignmentFactor) {
+		this.alignmentFactor = alignmentFactor;
+	}
+
+	public void setSeperationFactor(double seperationFactor) {
+		this.seperationFactor = seperationFactor;
+	}
+
+	public void setNestAttractionFactor(double nestAttractionFactor) {
+		this.nestAttractionFactor = nestAttractionFactor;
+	}
+
+	public void setFlockAttractionFactor(double flockAttractionFactor) {
+		this.flockAttractionFactor = flockAttractionFactor;
+	}
+
+	public void setOpeningAngle(double openingAngle) {
+		this.openingAngle = openingAngle;
+	}
+
+	public void setCollisionDetection(boolean collisionDetection) {
+		this.collisionDetection = collisionDetection;
+	}
+
+	public void setFusedSteering(boolean fusedSteering) {
+		this.fusedSteering = fusedSteering;
+	}
+
+	public void setReorderInterval(int reorderInterval) {
+		this.reorderInterval = reorderInterval;
+	}
+
+	public void setSteeringGroups(int steeringGroups) {
+		this.steeringGroups = Math.max(1, steeringGroups);
+	}
+
+	public void setNearest(int nearest) {
+		this.nearest = Math.max(0, nearest);
+	}
+
+	public void setPredationRange(double predationRange) {
+		this.predationRange = predationRange;
+	}
+
+}
@@ -0,0 +1,164 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Imports for running the rules being baked into the field.
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+//Import the world the field covers.
+import geometry.World;
+
+/*
+ * The turn given by the steering rules that only depend on where an entity is (nest and obstacles),
+ * worked out once for a grid of points covering the world. Each entity then only looks up the four
+ * points around it and blends between them, however many nests and obstacles there are.
+ *
+ * The field is made by SteeringRules when "steering.field" is set, and made again when a rule baked
+ * into it or the obstacles change (not when other on screen controls change). Near a nest, or the margin
+ * of an obstacle where entities turn around, the turn jumps from one value to a very different one.
+ * Blending across a jump would give a turn nothing like either side, so where the four points differ
+ * by more than 90 degrees the nearest point is used instead.
+ */
+class SteeringField {
+
+	//The most points in a field, larger worlds use points further apart.
+	private static final int MAX_POINTS = 1 << 22;
+
+	//How far apart the points are, and how many there are across and down.
+	private double cellSize;
+	private int columns;
+	private int rows;
+
+	//The turn at each point, stored row by row.
+	private float[] turn;
+
+	/*
+	 * Constructor which works out the field.
+	 * @param rules, the rules to bake, (kernel, angle) -> new angle, which must only add a turn
+	 * depending on the kernel's entityX, entityY and obstacles.
+	 * @param world, the world to cover.
+	 * @param cellSize, how far apart the points should be.
+	 */
+	SteeringField(MethodHandle rules, World world, double cellSize) {
+
+		while ((world.getWidth() / cellSize) * (world.getHeight() / cellSize) > MAX_POINTS) {
+			cellSize = cellSize * 2;
+		}
+
+		this.cellSize = cellSize;
+		columns = Math.max(1, (int) Math.ceil(world.getWidth() / cellSize));
+		rows = Math.max(1, (int) Math.ceil(world.getHeight() / cellSize));
+		turn = new float[columns * rows];
+
+		//A kernel of its own to hold each point's location while the rules run.
+		SteeringKernel kernel = new SteeringKernel(null, 0);
+		kernel.obstacles = world.getObstacles();
+		if (kernel.obstacles != null && !kernel.obstacles.hasObstacles()) {
+			kernel.obstacles = null;
+		}
+
+		try {
+
+			for (int row = 0; row < rows; row++) {
+				for (int column = 0; column < columns; column++) {
+
+					kernel.entityX = (column + 0.5) * cellSize;
+					kernel.entityY = (row + 0.5) * cellSize;
+					double value = (double) rules.invokeExact(kernel, 0.0);
+
+					//A point exactly on a nest has no direction to it.
+					turn[row * columns + column] = Double.isNaN(value) ? 0 : (float) value;
+
+				}
+			}
+
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+	/*
+	 * Gets the turn at a location, blending the four points around it.
+	 * @param x, the x coordinate of the location.
+	 * @param y, the y coordinate of the location.
+	 * @return turn double
+	 */
+	double sample(double x, double y) {
+
+		//Position in the grid, measured from the first point.
+		double u = Math.max(0, Math.min(columns - 1, x / cellSize - 0.5));
+		double v = Math.max(0, Math.min(rows - 1, y / cellSize - 0.5));
+
+		//A NaN location gives a NaN turn, as the rules would.
+		if (u != u || v != v) {
+			return Double.NaN;
+		}
+
+		int column = Math.max(0, Math.min(columns - 2, (int) u));
+		int row = Math.max(0, Math.min(rows - 2, (int) v));
+		int right = Math.min(columns - 1, column + 1);
+		int down = Math.min(rows - 1, row + 1);
+
+		double topLeft = turn[row * columns + column];
+		double topRight = turn[row * columns + right];
+		double bottomLeft = turn[down * columns + column];
+		double bottomRight = turn[down * columns + right];
+
+		double fractionX = u - column;
+		double fractionY = v - row;
+
+		//Use the nearest point across a jump.
+		double lowest = Math.min(Math.min(topLeft, topRight), Math.min(bottomLeft, bottomRight));
+		double highest = Math.max(Math.max(topLeft, topRight), Math.max(bottomLeft, bottomRight));
+		if (highest - lowest > 90) {
+			if (fractionY < 0.5) {
+				return fractionX < 0.5 ? topLeft : topRight;
+			}
+			return fractionX < 0.5 ? bottomLeft : bottomRight;
+		}
+
+		double top = topLeft + (topRight - topLeft) * fractionX;
+		double bottom = bottomLeft + (bottomRight - bottomLeft) * fractionX;
+
+		return top + (bottom - top) * fractionY;
+
+	}
+
+	/*
+	 * The rule which applies the field, (field, kernel, angle) -> new angle.
+	 */
+	static double field(SteeringField field, SteeringKernel kernel, double angle) {
+		return angle + field.sample(kernel.entityX, kernel.entityY);
+	}
+
+	/*
+	 * Makes the rule applying this field, (kernel, angle) -> new angle.
+	 * @return rule MethodHandle
+	 */
+	MethodHandle compile() {
+
+		try {
+			return MethodHandles.insertArguments(MethodHandles.lookup().findStatic(SteeringField.class, "field",
+					MethodType.methodType(double.class, SteeringField.class, SteeringKernel.class, double.class)), 0, this);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot compile the steering field", e);
+		}
+
+	}
+
+	/*
+	 * Getters for the size of the field.
+	 */
+	double getCellSize() {
+		return cellSize;
+	}
+
+	int getPoints() {
+		return columns * rows;
+	}
+
+}
@@ -0,0 +1,827 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Used to check whether the on screen controls have changed.
+import java.util.Arrays;
+
+//Import settings for the size of the neighbour lists' skin.
+import tools.Settings;
+
+//Import the world, its obstacles and the structures used to find other entities.
+import geometry.CartesianCoordinate;
+import geometry.NeighbourList;
+import geometry.QuadTree;
+import geometry.SignedDistanceField;
+import geometry.SpatialGrid;
+import geometry.World;
+
+/*
+ * Applies every behaviour to every entity in one pass over the FlockState columns. With the default
+ * steering rules (see SteeringRules) this gives the same result as calling calculateFlockParameters(),
+ * applyCohesion(), applySeperation(), applyAlignment(), applyNestAttraction(),
+ * applyLongRangeAttraction(), applyObstacleAvoidance(), applyCollisions() and applyPredator() on
+ * each entity in turn.
+ *
+ * Calling the methods one at a time means nine calls per entity, two searches of the grid (one for
+ * the flock and one for collisions), a list of predators per entity, and the same distances and
+ * angles being worked out several times. Here each entity's flock is read from a NeighbourList,
+ * which is only rebuilt from the grid when an entity has moved more than half its skin (set by
+ * "steering.skin"), so most ticks do not search the grid at all. While walking the flock the
+ * kernel adds up what every rule needs: the centre and angle of the flock, the
+ * bearings of anything to flee from and the side of the nearest entity touched. The entity's type's
+ * compiled rules are then run on those sums, and the new angle is stored once. The angle to the
+ * centre of the flock is only worked out once, for both cohesion and separation.
+ *
+ * With "precision" set to "float" the kernel first copies every entity's x, y and angle into one
+ * array of floats, side by side, and the walk over each flock reads that instead of the three
+ * double columns. Each entity in a flock is then 12 bytes in one place rather than 24 bytes in three,
+ * so far less memory is read, and the distances and sums are worked out in float. The double columns
+ * are still where the entities live, so everything else is unchanged. benchmark.PrecisionBenchmark
+ * measures how far the two drift apart.
+ *
+ * With "steering.field" set to a distance, the nest and obstacle rules are baked into a SteeringField
+ * with points that far apart, so each entity makes one lookup for all of them.
+ *
+ * With "steering.nearest" set to k each entity's flock is only its k nearest neighbours within the
+ * rules' radius (a "topological" flock, as starlings are thought to use), found fresh every tick.
+ * However densely the entities pack, each is then steered by at most k others. They are found in a
+ * grid of its own whose cells are about as wide as the distance to the kth neighbour was last tick,
+ * so each search only looks through a few cells of a few entities each, however dense the flocks.
+ *
+ * The rules publish the collisions, predators coming into sight and obstacle bounces they see to the
+ * simulation's EventRing, if it has one. Whether a predator was in sight is remembered by the entity's
+ * id (see FlockState), which stays with it as the slots change. Obstacle bounces are not published with
+ * "steering.field" set, as the obstacle rule is baked into the field rather than run for each entity.
+ *
+ * Entities are visited in slot order, the order they were added to the simulation, and each entity's
+ * new angle is stored straight away, so later entities see it just as they do when the methods are
+ * called one at a time. The only differences are from adding the same numbers in a different order,
+ * run main() to check them.
+ */
+public class SteeringKernel {
+
+	//Half the size of the flock box and of an entity, as in Entity (flockDiameter / 2 and collisionDiameter / 2).
+	static final double FLOCK_RANGE = 25;
+	static final double COLLISION_RANGE = 1.5;
+
+	//The rules, and the rules compiled for each type of entity.
+	private SteeringRules rules;
+	private SteeringRules.Compiled entityRules;
+	private SteeringRules.Compiled predatorRules;
+
+	//The on screen controls' values and the obstacles the rules were compiled for.
+	private double[] compiledControls;
+	private SignedDistanceField compiledObstacles;
+
+	//How far apart the points of the field the nest and obstacle rules are baked into are, 0 for no field.
+	private double fieldCellSize;
+
+	//Every entity's flock, kept for several ticks, and the extra distance it covers.
+	private NeighbourList neighbourList;
+	private double skin;
+
+	//The grid used to find each entity's nearest neighbours, and the size of its cells.
+	private SpatialGrid nearestGrid;
+	private double nearestCellSize;
+
+	//The most neighbours looked at for each entity, 0 for all of them, and a heap of the nearest found
+	//so far, furthest on top, with the squares of their distances.
+	private int maxNeighbours;
+	private int[] selected = new int[0];
+	private double[] selectedDistance = new double[0];
+	private int selectedCount;
+
+	//True to walk each flock in float, and every entity's x, y and angle as floats side by side.
+	private boolean singlePrecision;
+	private float[] packed = new float[0];
+
+	//What the rules can look at for the entity being steered.
+	double entityX;
+	double entityY;
+	SignedDistanceField obstacles;
+	QuadTree quadTree;
+	CartesianCoordinate pull = new CartesianCoordinate();
+
+	//The entity being steered and where events about it are published (null for none).
+	FlockState flockState;
+	int slot;
+	EventRing events;
+
+	//The handle of the entity with each id if it had a predator in sight when it was last steered, -1 if not.
+	long[] sighted = new long[0];
+
+	//What was found about the entity's flock, one value per accumulator (see SteeringRules).
+	int[] entitiesInFlock = new int[4];
+	double[] sumOfXDistances = new double[4];
+	double[] sumOfYDistances = new double[4];
+	double[] sumOfAngles = new double[4];
+	double[] sumOfBearings = new double[4];
+	double[] angleToCentre = new double[4];
+	double[] nearestSide = new double[4];
+	int[] nearestNeighbour = new int[4];
+	double[] nearestDistance = new double[4];
+
+	/*
+	 * Constructor using the rules named by the settings.
+	 */
+	public SteeringKernel() {
+		this(SteeringRules.fromSettings(), Settings.getDouble("steering.skin", 10));
+		singlePrecision = Settings.getString("precision", "double").equalsIgnoreCase("float");
+		fieldCellSize = Settings.getDouble("steering.field", 0);
+	}
+
+	/*
+	 * Constructor using the given rules.
+	 * @param rules, the rules to steer with.
+	 * @param skin, the extra distance covered by the neighbour lists, 0 to search the grid every tick.
+	 */
+	public SteeringKernel(SteeringRules rules, double skin) {
+
+		this.rules = rules;
+		this.skin = skin;
+
+	}
+
+	/*
+	 * Compiles the rules if an on screen control has changed since they were last compiled.
+	 * @param simulation, the simulation holding the on screen controls' values.
+	 */
+	private void compile(Simulation simulation) {
+
+		double[] controls = {simulation.getCohesionFactor(), simulation.getSeperationFactor(), simulation.getAlignmentFactor(),
+				simulation.getNestAttractionFactor(), simulation.getFlockAttractionFactor(), simulation.getOpeningAngle(),
+				simulation.isCollisionDetection() ? 1 : 0, simulation.getNestLocation().getX(), simulation.getNestLocation().getY()};
+
+		if (Arrays.equals(controls, compiledControls) && simulation.getWorld().getObstacles() == compiledObstacles) {
+			return;
+		}
+
+		entityRules = rules.compile(false, simulation, fieldCellSize);
+		predatorRules = rules.compile(true, simulation, fieldCellSize);
+		compiledControls = controls;
+		compiledObstacles = simulation.getWorld().getObstacles();
+
+		//Make room for every accumulator.
+		int accumulators = Math.max(entityRules.radius.length, predatorRules.radius.length);
+		if (accumulators > entitiesInFlock.length) {
+			entitiesInFlock = new int[accumulators];
+			sumOfXDistances = new double[accumulators];
+			sumOfYDistances = new double[accumulators];
+			sumOfAngles = new double[accumulators];
+			sumOfBearings = new double[accumulators];
+			angleToCentre = new double[accumulators];
+			nearestSide = new double[accumulators];
+			nearestNeighbour = new int[accumulators];
+			nearestDistance = new double[accumulators];
+		}
+
+	}
+
+	/*
+	 * True if the rules need the quadtree of every entity this tick.
+	 * @param simulation, the simulation holding the on screen controls' values.
+	 * @return needsQuadTree boolean
+	 */
+	public boolean needsQuadTree(Simulation simulation) {
+
+		compile(simulation);
+		return entityRules.longRange || predatorRules.longRange;
+
+	}
+
+	/*
+	 * Steers every entity in a simulation. If the neighbour lists are out of date the simulation's
+	 * grid is rebuilt and they are built from it. The quadtree, if needsQuadTree(), must already
+	 * hold every entity's current location.
+	 * @param simulation, the simulation to steer, which holds the values controlling each behaviour.
+	 * @param quadTree, a quadtree holding every entity, only used by long range rules.
+	 */
+	public void steer(Simulation simulation, QuadTree quadTree) {
+
+		compile(simulation);
+
+		FlockState state = simulation.getFlockState();
+		World world = simulation.getWorld();
+
+		//Rebuild the neighbour lists if an entity has moved too far since they were built (always if
+		//only the nearest neighbours are wanted).
+		double range = Math.max(entityRules.range, predatorRules.range);
+		if (neighbourList == null) {
+			neighbourList = new NeighbourList(world, skin);
+		}
+		if (range > 0 && !neighbourList.isValid(state.x, state.y, state.count, range)) {
+			if (simulation.getNearest() > 0) {
+				neighbourList.buildNearest(rebuildNearestGrid(state, world, range), state.x, state.y, state.count, range,
+						simulation.getNearest());
+			} else {
+				neighbourList.build(simulation.rebuildGrid(), state.x, state.y, state.count, range);
+			}
+		}
+
+		obstacles = world.getObstacles();
+		if (obstacles != null && !obstacles.hasObstacles()) {
+			obstacles = null;
+		}
+		this.quadTree = quadTree;
+
+		flockState = state;
+		events = state.events;
+		if (events != null && sighted.length < state.getIdCapacity()) {
+			int grown = sighted.length;
+			sighted = Arrays.copyOf(sighted, state.getIdCapacity());
+			Arrays.fill(sighted, grown, sighted.length, -1);
+		}
+
+		double[] angle = state.angle;
+		boolean[] predator = state.predator;
+
+		//Copy every entity into the floats, in one pass in order.
+		if (singlePrecision) {
+			pack(state);
+		}
+
+		try {
+
+			for (int slot = 0; slot < state.count; slot++) {
+
+				//Leave the entity's angle alone if it is not its group's turn.
+				if (!simulation.isSteered(slot)) {
+					continue;
+				}
+
+				SteeringRules.Compiled typeRules = predator[slot] ? predatorRules : entityRules;
+
+				this.slot = slot;
+				entityX = state.x[slot];
+				entityY = state.y[slot];
+
+				//Walk the flock once, adding up everything the rules need.
+				if (typeRules.radius.length != 0) {
+					if (singlePrecision) {
+						gatherSingle(typeRules, state, world, slot);
+					} else {
+						gather(typeRules, state, world, slot);
+					}
+				}
+
+				//Run the type's rules, then store the new angle (in the floats too so later entities see it).
+				angle[slot] = (double) typeRules.chain.invokeExact(this, angle[slot]);
+				if (singlePrecision) {
+					packed[slot * 3 + 2] = (float) angle[slot];
+				}
+
+			}
+
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+
+	}
+
+	/*
+	 * Rebuilds the grid used to find the nearest neighbours. Its cells are made about as wide as the
+	 * distance to the furthest nearest neighbour last time, and only made again when that has more
+	 * than halved or doubled.
+	 */
+	private SpatialGrid rebuildNearestGrid(FlockState state, World world, double range) {
+
+		double cellSize = neighbourList.getAverageReach() > 0 ? neighbourList.getAverageReach() : range;
+		cellSize = Math.max(1, Math.min(range * 2, cellSize));
+
+		if (nearestGrid == null || cellSize < nearestCellSize / 2 || cellSize > nearestCellSize * 2) {
+			nearestGrid = new SpatialGrid(world, cellSize);
+			nearestCellSize = cellSize;
+		}
+
+		nearestGrid.clear(state.count);
+		for (int slot = 0; slot < state.count; slot++) {
+			nearestGrid.insert(slot, state.x[slot], state.y[slot]);
+		}
+
+		return nearestGrid;
+
+	}
+
+	/*
+	 * Walks the entity's neighbour list once, adding each entity into every accumulator whose radius
+	 * and target it matches.
+	 */
+	private void gather(SteeringRules.Compiled typeRules, FlockState state, World world, int slot) {
+
+		double[] x = state.x;
+		double[] y = state.y;
+		double[] angle = state.angle;
+		boolean[] predator = state.predator;
+
+		double[] radius = typeRules.radius;
+		int[] target = typeRules.target;
+		boolean[] needsBearings = typeRules.needsBearings;
+		int accumulators = radius.length;
+
+		for (int accumulator = 0; accumulator < accumulators; accumulator++) {
+			entitiesInFlock[accumulator] = 0;
+			sumOfXDistances[accumulator] = 0;
+			sumOfYDistances[accumulator] = 0;
+			sumOfAngles[accumulator] = 0;
+			sumOfBearings[accumulator] = 0;
+			nearestSide[accumulator] = 0;
+		}
+
+		//With a limit on neighbours, only the nearest within the rules' radius are walked.
+		int[] neighbours = neighbourList.getNeighbours();
+		int start = neighbourList.getStart(slot);
+		int end = neighbourList.getEnd(slot);
+		if (maxNeighbours > 0 && end - start > maxNeighbours) {
+			neighbours = selectNearest(state, world, slot, typeRules.range);
+			start = 0;
+			end = selectedCount;
+		}
+
+		for (int index = start; index < end; index++) {
+
+			int neighbour = neighbours[index];
+			double xDist = world.deltaX(entityX, x[neighbour]);
+			double yDist = world.deltaY(entityY, y[neighbour]);
+			double distance = xDist * xDist + yDist * yDist;
+			int type = predator[neighbour] ? SteeringRule.PREDATOR : SteeringRule.ENTITY;
+
+			for (int accumulator = 0; accumulator < accumulators; accumulator++) {
+
+				if (target[accumulator] != SteeringRule.ANY && target[accumulator] != type) {
+					continue;
+				}
+				if (Math.abs(xDist) > radius[accumulator] || Math.abs(yDist) > radius[accumulator]) {
+					continue;
+				}
+
+				//Only the nearest entity touched (the lowest id if several are as near) decides which way
+				//to turn, away from the side it is on, so the order of the list does not matter.
+				if (entitiesInFlock[accumulator] == 0 || isNearer(state, neighbour, distance, accumulator)) {
+					nearestSide[accumulator] = xDist >= 0 ? -1 : 1;
+					nearestNeighbour[accumulator] = neighbour;
+					nearestDistance[accumulator] = distance;
+				}
+
+				sumOfXDistances[accumulator] = sumOfXDistances[accumulator] + entityX + xDist;
+				sumOfYDistances[accumulator] = sumOfYDistances[accumulator] + entityY + yDist;
+				sumOfAngles[accumulator] = sumOfAngles[accumulator] + angle[neighbour];
+				entitiesInFlock[accumulator]++;
+
+				//Bearings are measured without wrapping, as in applyPredator().
+				if (needsBearings[accumulator]) {
+					sumOfBearings[accumulator] = sumOfBearings[accumulator]
+							+ Math.toDegrees(Math.atan((x[neighbour] - entityX) / (y[neighbour] - entityY)));
+				}
+
+			}
+
+		}
+
+		//Work out the angle to the centre of each flock once, for cohesion and separation.
+		for (int accumulator = 0; accumulator < accumulators; accumulator++) {
+
+			if (typeRules.needsCentre[accumulator] && entitiesInFlock[accumulator] != 0) {
+
+				double xDist = sumOfXDistances[accumulator] / entitiesInFlock[accumulator] - entityX;
+				double yDist = sumOfYDistances[accumulator] / entitiesInFlock[accumulator] - entityY;
+				angleToCentre[accumulator] = Math.toDegrees(Math.atan(xDist / yDist));
+
+			}
+
+		}
+
+	}
+
+	/*
+	 * Picks the maxNeighbours nearest entities in an entity's neighbour list inside the box the rules
+	 * cover, ties going to the lowest id, keeping them in a heap as SpatialGrid.findNearest() does.
+	 * Entities the list only holds because of its skin are left out, and which are picked does not
+	 * depend on the order of the list.
+	 * @param state, the columns holding every entity.
+	 * @param world, the world, for distances across its edges.
+	 * @param slot, the entity's slot.
+	 * @param range, half the width of the box the rules cover.
+	 * @return selected int[], whose first selectedCount slots are the nearest, in no particular order.
+	 */
+	private int[] selectNearest(FlockState state, World world, int slot, double range) {
+
+		if (selected.length < maxNeighbours) {
+			selected = new int[maxNeighbours];
+			selectedDistance = new double[maxNeighbours];
+		}
+
+		double[] x = state.x;
+		double[] y = state.y;
+		int[] neighbours = neighbourList.getNeighbours();
+		int found = 0;
+
+		for (int index = neighbourList.getStart(slot); index < neighbourList.getEnd(slot); index++) {
+
+			int neighbour = neighbours[index];
+			double xDist = world.deltaX(x[slot], x[neighbour]);
+			double yDist = world.deltaY(y[slot], y[neighbour]);
+			if (Math.abs(xDist) > range || Math.abs(yDist) > range) {
+				continue;
+			}
+
+			double distance = xDist * xDist + yDist * yDist;
+
+			if (found < maxNeighbours) {
+				selected[found] = neighbour;
+				selectedDistance[found] = distance;
+				siftUp(state, found++);
+			} else if (isFurther(state, 0, distance, neighbour)) {
+				selected[0] = neighbour;
+				selectedDistance[0] = distance;
+				siftDown(state, 0, found);
+			}
+
+		}
+
+		selectedCount = found;
+		return selected;
+
+	}
+
+	/*
+	 * True if the entity at a place in the heap is further away than another entity, or as far with a
+	 * higher id.
+	 */
+	private boolean isFurther(FlockState state, int index, double distance, int neighbour) {
+
+		return selectedDistance[index] > distance
+				|| (selectedDistance[index] == distance && state.ids[selected[index]] > state.ids[neighbour]);
+
+	}
+
+	/*
+	 * Moves an entry up the heap until its parent is further away than it.
+	 */
+	private void siftUp(FlockState state, int index) {
+
+		while (index > 0) {
+
+			int parent = (index - 1) / 2;
+			if (isFurther(state, parent, selectedDistance[index], selected[index])) {
+				return;
+			}
+			swapSelected(parent, index);
+			index = parent;
+
+		}
+
+	}
+
+	/*
+	 * Moves an entry down the heap until both its children are nearer than it.
+	 */
+	private void siftDown(FlockState state, int index, int size) {
+
+		while (true) {
+
+			int furthest = index;
+			int left = index * 2 + 1;
+			int right = left + 1;
+
+			if (left < size && isFurther(state, left, selectedDistance[furthest], selected[furthest])) {
+				furthest = left;
+			}
+			if (right < size && isFurther(state, right, selectedDistance[furthest], selected[furthest])) {
+				furthest = right;
+			}
+			if (furthest == index) {
+				return;
+			}
+
+			swapSelected(index, furthest);
+			index = furthest;
+
+		}
+
+	}
+
+	private void swapSelected(int first, int second) {
+
+		int neighbour = selected[first];
+		selected[first] = selected[second];
+		selected[second] = neighbour;
+
+		double distance = selectedDistance[first];
+		selectedDistance[first] = selectedDistance[second];
+		selectedDistance[second] = distance;
+
+	}
+
+	/*
+	 * True if a neighbour is nearer than the nearest found so far for an accumulator, or as near with a
+	 * lower id, as in Entity.applyCollisions().
+	 * @param state, the columns holding the neighbours' ids.
+	 * @param neighbour, the slot of the neighbour.
+	 * @param distance, the square of the distance to the neighbour.
+	 * @param accumulator, the accumulator.
+	 * @return nearer boolean
+	 */
+	private boolean isNearer(FlockState state, int neighbour, double distance, int accumulator) {
+
+		return distance < nearestDistance[accumulator]
+				|| (distance == nearestDistance[accumulator] && state.ids[neighbour] < state.ids[nearestNeighbour[accumulator]]);
+
+	}
+
+	/*
+	 * Copies every entity's x, y and angle into the floats.
+	 */
+	private void pack(FlockState state) {
+
+		if (packed.length < state.count * 3) {
+			packed = new float[state.x.length * 3];
+		}
+
+		double[] x = state.x;
+		double[] y = state.y;
+		double[] angle = state.angle;
+
+		for (int slot = 0, index = 0; slot < state.count; slot++, index += 3) {
+			packed[index] = (float) x[slot];
+			packed[index + 1] = (float) y[slot];
+			packed[index + 2] = (float) angle[slot];
+		}
+
+	}
+
+	/*
+	 * The same as gather(), but reading the floats and working in float. The distances to the flock
+	 * are added up rather than the flock's coordinates, as floats cannot hold the sum of many
+	 * coordinates in a large world precisely.
+	 */
+	private void gatherSingle(SteeringRules.Compiled typeRules, FlockState state, World world, int slot) {
+
+		float[] packed = this.packed;
+		boolean[] predator = state.predator;
+
+		double[] radius = typeRules.radius;
+		int[] target = typeRules.target;
+		boolean[] needsBearings = typeRules.needsBearings;
+		int accumulators = radius.length;
+
+		float width = (float) world.getWidth();
+		float height = (float) world.getHeight();
+		float halfWidth = width / 2;
+		float halfHeight = height / 2;
+		float x = packed[slot * 3];
+		float y = packed[slot * 3 + 1];
+
+		for (int accumulator = 0; accumulator < accumulators; accumulator++) {
+			entitiesInFlock[accumulator] = 0;
+			sumOfXDistances[accumulator] = 0;
+			sumOfYDistances[accumulator] = 0;
+			sumOfAngles[accumulator] = 0;
+			sumOfBearings[accumulator] = 0;
+			nearestSide[accumulator] = 0;
+		}
+
+		//With a limit on neighbours, only the nearest within the rules' radius are walked.
+		int[] neighbours = neighbourList.getNeighbours();
+		int start = neighbourList.getStart(slot);
+		int end = neighbourList.getEnd(slot);
+		if (maxNeighbours > 0 && end - start > maxNeighbours) {
+			neighbours = selectNearest(state, world, slot, typeRules.range);
+			start = 0;
+			end = selectedCount;
+		}
+
+		for (int index = start; index < end; index++) {
+
+			int neighbour = neighbours[index];
+			float neighbourX = packed[neighbour * 3];
+			float neighbourY = packed[neighbour * 3 + 1];
+			float neighbourAngle = packed[neighbour * 3 + 2];
+
+			//The same as World.deltaX() and deltaY().
+			float xDist = neighbourX - x;
+			if (xDist > halfWidth) {
+				xDist = xDist - width;
+			} else if (xDist < -halfWidth) {
+				xDist = xDist + width;
+			}
+
+			float yDist = neighbourY - y;
+			if (yDist > halfHeight) {
+				yDist = yDist - height;
+			} else if (yDist < -halfHeight) {
+				yDist = yDist + height;
+			}
+
+			float distance = xDist * xDist + yDist * yDist;
+			int type = predator[neighbour] ? SteeringRule.PREDATOR : SteeringRule.ENTITY;
+
+			for (int accumulator = 0; accumulator < accumulators; accumulator++) {
+
+				if (target[accumulator] != SteeringRule.ANY && target[accumulator] != type) {
+					continue;
+				}
+				if (Math.abs(xDist) > radius[accumulator] || Math.abs(yDist) > radius[accumulator]) {
+					continue;
+				}
+
+				if (entitiesInFlock[accumulator] == 0 || isNearer(state, neighbour, distance, accumulator)) {
+					nearestSide[accumulator] = xDist >= 0 ? -1 : 1;
+					nearestNeighbour[accumulator] = neighbour;
+					nearestDistance[accumulator] = distance;
+				}
+
+				sumOfXDistances[accumulator] = (float) (sumOfXDistances[accumulator] + xDist);
+				sumOfYDistances[accumulator] = (float) (sumOfYDistances[accumulator] + yDist);
+				sumOfAngles[accumulator] = (float) (sumOfAngles[accumulator] + neighbourAngle);
+				entitiesInFlock[accumulator]++;
+
+				if (needsBearings[accumulator]) {
+					sumOfBearings[accumulator] = (float) (sumOfBearings[accumulator]
+							+ Math.toDegrees(Math.atan((neighbourX - x) / (neighbourY - y))));
+				}
+
+			}
+
+		}
+
+		for (int accumulator = 0; accumulator < accumulators; accumulator++) {
+
+			if (typeRules.needsCentre[accumulator] && entitiesInFlock[accumulator] != 0) {
+
+				float xDist = (float) sumOfXDistances[accumulator] / entitiesInFlock[accumulator];
+				float yDist = (float) sumOfYDistances[accumulator] / entitiesInFlock[accumulator];
+				angleToCentre[accumulator] = Math.toDegrees(Math.atan(xDist / yDist));
+
+			}
+
+		}
+
+	}
+
+	/*
+	 * Sets whether each flock is walked in float (see the class comment).
+	 * @param singlePrecision, true for float, false for double.
+	 */
+	public void setSinglePrecision(boolean singlePrecision) {
+		this.singlePrecision = singlePrecision;
+	}
+
+	public boolean isSinglePrecision() {
+		return singlePrecision;
+	}
+
+	/*
+	 * Sets how far apart the points of the field the nest and obstacle rules are baked into are (see
+	 * SteeringField), taking effect when the rules are next compiled.
+	 * @param fieldCellSize, the distance between points, 0 to not use a field.
+	 */
+	public void setFieldCellSize(double fieldCellSize) {
+		this.fieldCellSize = fieldCellSize;
+		compiledControls = null;
+	}
+
+	public double getFieldCellSize() {
+		return fieldCellSize;
+	}
+
+	/*
+	 * Limits how many of its neighbours each entity looks at, its nearest within the rules' radius
+	 * (see selectNearest()), so however dense a flock is each entity is steered by at most that many
+	 * others, as with "steering.nearest" but picked from the neighbour lists kept over several ticks.
+	 * Picking them still reads every entity in the list, so it is no cheaper than looking at them all.
+	 * @param maxNeighbours, the most neighbours looked at, 0 for all of them.
+	 */
+	public void setMaxNeighbours(int maxNeighbours) {
+		this.maxNeighbours = maxNeighbours;
+	}
+
+	public int getMaxNeighbours() {
+		return maxNeighbours;
+	}
+
+	/*
+	 * Forgets the neighbour lists, so they are rebuilt next tick. Needed whenever the slots change.
+	 */
+	public void invalidate() {
+
+		if (neighbourList != null) {
+			neighbourList.invalidate();
+		}
+
+	}
+
+	/*
+	 * Publishes an event about the entity being steered, if the simulation publishes events.
+	 * @param type, the type of event (see EventRing).
+	 * @param other, the slot of the other entity involved, -1 if none.
+	 */
+	void publish(int type, int other) {
+
+		if (events != null) {
+			events.publish(type, flockState.getHandle(slot), other < 0 ? -1 : flockState.getHandle(other), entityX, entityY);
+		}
+
+	}
+
+	/*
+	 * Gets the neighbour lists, to read their counters.
+	 * @return neighbourList NeighbourList, null until the first tick.
+	 */
+	public NeighbourList getNeighbourList() {
+		return neighbourList;
+	}
+
+	/*
+	 * Checks the kernel against calling the behaviour methods one at a time. Two copies of the same
+	 * simulation are run side by side, one steered each way. After every tick the largest difference
+	 * in movement angle is recorded, then the fused copy is reset to match the other so differences
+	 * do not build up. The time taken by each way is also printed.
+	 *
+	 * Collision detection is left off unless the argument "collisions" is given. An entity touching
+	 * several others turns away from the nearest in both ways, so the order of the neighbour lists
+	 * and of the grid does not matter.
+	 *
+	 * Last, most of the fused copy's entities are removed, so its columns shrink while the ids of the
+	 * entities left are still high, and it is ticked again to check nothing kept per entity (e.g.
+	 * which entities had a predator in sight) is still sized for the slots.
+	 * @param args, the number of entities (default 10000) and ticks (default 200), then "collisions"
+	 * to turn collision detection on.
+	 */
+	public static void main(String[] args) {
+
+		int population = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		boolean collisions = args.length > 2 && args[2].equals("collisions");
+
+		//A world holding the population at the GUI's density, with the picture's round obstacle in the middle.
+		double height = Math.sqrt(population * 250 * 5 / 7.0);
+		World world = new World(height * 7 / 5, height);
+		world.setObstacles(SignedDistanceField.fromShape(new java.awt.geom.Ellipse2D.Double(world.getWidth() / 2 - 73,
+				world.getHeight() / 2 - 73, 146, 146), world, Math.max(1, world.getWidth() / 2048)));
+
+		CartesianCoordinate nest = new CartesianCoordinate(100, 100);
+		Simulation methods = new Simulation(world, new ScalarIntegrator(), nest);
+		Simulation fused = new Simulation(world, new ScalarIntegrator(), nest);
+		methods.setFusedSteering(false);
+		fused.setFusedSteering(true);
+
+		for (Simulation simulation : new Simulation[] {methods, fused}) {
+			simulation.setCollisionDetection(collisions);
+			simulation.setNestAttractionFactor(0.1);
+			simulation.setFlockAttractionFactor(0.1);
+		}
+
+		for (int counter = 0; counter < population; counter++) {
+			methods.add(counter % 20 == 0 ? new PredatorialEntity(null, world) : new RandomEntity(null, world));
+			fused.add(counter % 20 == 0 ? new PredatorialEntity(null, world) : new RandomEntity(null, world));
+		}
+		fused.getFlockState().copyFrom(methods.getFlockState());
+
+		double largestDifference = 0;
+		long methodsTime = 0;
+		long fusedTime = 0;
+
+		for (int tick = 0; tick < ticks; tick++) {
+
+			long start = System.nanoTime();
+			methods.tick();
+			methodsTime = methodsTime + System.nanoTime() - start;
+
+			start = System.nanoTime();
+			fused.tick();
+			fusedTime = fusedTime + System.nanoTime() - start;
+
+			FlockState expected = methods.getFlockState();
+			FlockState actual = fused.getFlockState();
+
+			for (int slot = 0; slot < expected.count; slot++) {
+
+				//Both stop moving when an angle is invalid, so matching NaNs are not a difference.
+				if (Double.isNaN(expected.angle[slot]) && Double.isNaN(actual.angle[slot])) {
+					continue;
+				}
+				largestDifference = Math.max(largestDifference, Math.abs(expected.angle[slot] - actual.angle[slot]));
+
+			}
+
+			actual.copyFrom(expected);
+
+		}
+
+		System.out.printf("%d entities, %d ticks: largest difference in angle %.3g degrees%n", population, ticks, largestDifference);
+		System.out.printf("one method at a time %.2f ms per tick, fused %.2f ms per tick%n", methodsTime / 1e6 / ticks, fusedTime / 1e6 / ticks);
+		System.out.println(fused.getSteeringKernel().getNeighbourList());
+
+		int capacity = fused.getFlockState().x.length;
+		fused.removeRandom(fused.getFlockState().getCount() * 4 / 5);
+		for (int tick = 0; tick < 10; tick++) {
+			fused.tick();
+		}
+		System.out.printf("removed down to %d entities (columns %d, were %d) and ticked again%n", fused.getFlockState().getCount(),
+				fused.getFlockState().x.length, capacity);
+
+	}
+
+}
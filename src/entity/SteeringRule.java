@@ -0,0 +1,373 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Imports for turning a rule into a method handle.
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Properties;
+
+//Import the structures the rules look things up in.
+import geometry.CartesianCoordinate;
+import geometry.SignedDistanceField;
+
+/*
+ * One steering rule for one type of entity, read from the steering rules file (see SteeringRules).
+ * A rule is one of the following kinds, each the same as the Entity method named after it:
+ *
+ * 		cohesion   - steer towards the centre of the flock (applyCohesion()).
+ * 		separation - steer away from the centre of the flock (applySeperation()).
+ * 		alignment  - steer towards the average angle of the flock (applyAlignment()).
+ * 		nest       - steer towards the nest (applyNestAttraction()), or towards "x" and "y" if set.
+ * 		longRange  - steer towards the pull of every other entity (applyLongRangeAttraction()).
+ * 		obstacles  - steer away from obstacles, turning around when too close (applyObstacleAvoidance()).
+ * 		collisions - turn by the weight (in degrees) when touching another entity (applyCollisions()).
+ * 		flee       - steer away from entities of the target type (applyPredator()).
+ *
+ * Each rule has a weight. If "control" is true the weight is multiplied by the on screen control for
+ * that kind of rule (the collision detection check box counts as 1 when ticked and 0 when not).
+ * Rules which look at the flock only count entities of the "target" type (any, entity or predator)
+ * whose x and y are both within "radius" of the entity.
+ *
+ * Each kind is a static method below taking the weight and other values first, then the kernel
+ * holding what was found about the entity's flock, then the entity's angle, and returning the new
+ * angle. compile() binds the values of a rule to its method, leaving a handle from the kernel and
+ * an angle to the new angle, so a list of rules can be chained together (see SteeringRules).
+ */
+public class SteeringRule {
+
+	//The kinds of rule.
+	static final String COHESION = "cohesion";
+	static final String SEPARATION = "separation";
+	static final String ALIGNMENT = "alignment";
+	static final String NEST = "nest";
+	static final String LONG_RANGE = "longRange";
+	static final String OBSTACLES = "obstacles";
+	static final String COLLISIONS = "collisions";
+	static final String FLEE = "flee";
+
+	//The types of entity a rule can look at.
+	static final int ANY = 0;
+	static final int ENTITY = 1;
+	static final int PREDATOR = 2;
+
+	//The type every compiled rule has, (kernel, angle) -> new angle.
+	static final MethodType RULE_TYPE = MethodType.methodType(double.class, SteeringKernel.class, double.class);
+
+	//The name of the rule, and its kind (the name unless set).
+	String name;
+	String kind;
+
+	//The values read from the file.
+	boolean enabled;
+	double weight;
+	boolean control;
+	double radius;
+	int target;
+	double margin;
+	double x;
+	double y;
+
+	/*
+	 * Reads a rule from the rules file. Every value is "<type>.<name>.<value>", anything missing
+	 * takes the default for the rule's kind.
+	 * @param rules, the rules file.
+	 * @param type, the type of entity the rule is for, "entity" or "predator".
+	 * @param name, the name of the rule.
+	 * @return rule SteeringRule
+	 */
+	static SteeringRule parse(Properties rules, String type, String name) {
+
+		SteeringRule rule = new SteeringRule();
+		String prefix = type + "." + name + ".";
+
+		rule.name = name;
+		rule.kind = rules.getProperty(prefix + "kind", name).trim();
+
+		//The defaults match the Entity methods.
+		double defaultWeight = 1;
+		double defaultRadius = SteeringKernel.FLOCK_RANGE;
+		String defaultTarget = "any";
+		boolean defaultControl = true;
+
+		switch (rule.kind) {
+		case COHESION:
+		case SEPARATION:
+		case ALIGNMENT:
+		case NEST:
+		case LONG_RANGE:
+			break;
+		case OBSTACLES:
+			defaultWeight = 0.03;
+			defaultControl = false;
+			break;
+		case COLLISIONS:
+			defaultWeight = 90;
+			defaultRadius = SteeringKernel.COLLISION_RANGE;
+			break;
+		case FLEE:
+			defaultWeight = 0.5;
+			defaultTarget = "predator";
+			defaultControl = false;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown kind of steering rule \"" + rule.kind + "\" for " + type + "." + name);
+		}
+
+		rule.enabled = Boolean.parseBoolean(rules.getProperty(prefix + "enabled", "true").trim());
+		rule.weight = Double.parseDouble(rules.getProperty(prefix + "weight", Double.toString(defaultWeight)).trim());
+		rule.control = Boolean.parseBoolean(rules.getProperty(prefix + "control", Boolean.toString(defaultControl)).trim());
+		rule.radius = Double.parseDouble(rules.getProperty(prefix + "radius", Double.toString(defaultRadius)).trim());
+		rule.margin = Double.parseDouble(rules.getProperty(prefix + "margin", Double.toString(Entity.obstacleMargin)).trim());
+		rule.x = Double.parseDouble(rules.getProperty(prefix + "x", "NaN").trim());
+		rule.y = Double.parseDouble(rules.getProperty(prefix + "y", "NaN").trim());
+
+		switch (rules.getProperty(prefix + "target", defaultTarget).trim()) {
+		case "any":
+			rule.target = ANY;
+			break;
+		case "entity":
+			rule.target = ENTITY;
+			break;
+		case "predator":
+			rule.target = PREDATOR;
+			break;
+		default:
+			throw new IllegalArgumentException("Unknown target for " + type + "." + name + ", use any, entity or predator");
+		}
+
+		return rule;
+
+	}
+
+	/*
+	 * True if this kind of rule looks at the entity's flock.
+	 * @return usesFlock boolean
+	 */
+	boolean usesFlock() {
+		return kind.equals(COHESION) || kind.equals(SEPARATION) || kind.equals(ALIGNMENT)
+				|| kind.equals(COLLISIONS) || kind.equals(FLEE);
+	}
+
+	/*
+	 * True if this kind of rule only depends on where the entity is, so it can be baked into a
+	 * SteeringField. Such rules only add a turn, whatever the entity's angle.
+	 * @return isStatic boolean
+	 */
+	boolean isStatic() {
+		return kind.equals(NEST) || kind.equals(OBSTACLES);
+	}
+
+	/*
+	 * Adds the values a static rule's turn depends on to a list, so a field it is baked into is only
+	 * baked again when one of them changes.
+	 * @param key, the list to add to.
+	 * @param weight, the rule's weight, from getWeight().
+	 * @param simulation, the simulation holding the nest location.
+	 */
+	void addFieldKey(List<Double> key, double weight, Simulation simulation) {
+
+		key.add(weight);
+
+		if (kind.equals(NEST)) {
+			key.add(Double.isNaN(x) ? simulation.getNestLocation().getX() : x);
+			key.add(Double.isNaN(y) ? simulation.getNestLocation().getY() : y);
+		} else if (kind.equals(OBSTACLES)) {
+			key.add(margin);
+		}
+
+	}
+
+	/*
+	 * Finds the weight of the rule, multiplied by its on screen control if it has one.
+	 * @param simulation, the simulation holding the on screen controls' values.
+	 * @return weight double
+	 */
+	double getWeight(Simulation simulation) {
+
+		if (!enabled) {
+			return 0;
+		}
+
+		if (!control) {
+			return weight;
+		}
+
+		switch (kind) {
+		case COHESION:
+			return weight * simulation.getCohesionFactor();
+		case SEPARATION:
+			return weight * simulation.getSeperationFactor();
+		case ALIGNMENT:
+			return weight * simulation.getAlignmentFactor();
+		case NEST:
+			return weight * simulation.getNestAttractionFactor();
+		case LONG_RANGE:
+			return weight * simulation.getFlockAttractionFactor();
+		case COLLISIONS:
+			return simulation.isCollisionDetection() ? weight : 0;
+		default:
+			return weight;
+		}
+
+	}
+
+	/*
+	 * Binds the rule's values to the method for its kind.
+	 * @param weight, the rule's weight, from getWeight().
+	 * @param accumulator, which of the kernel's sums of the flock the rule reads.
+	 * @param simulation, the simulation, for values which are the same for every entity.
+	 * @return rule MethodHandle, (kernel, angle) -> new angle.
+	 */
+	MethodHandle compile(double weight, int accumulator, Simulation simulation) {
+
+		try {
+
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+			switch (kind) {
+			case NEST:
+				return MethodHandles.insertArguments(lookup.findStatic(SteeringRule.class, kind,
+						MethodType.methodType(double.class, double.class, double.class, double.class, SteeringKernel.class, double.class)),
+						0, weight, Double.isNaN(x) ? simulation.getNestLocation().getX() : x,
+						Double.isNaN(y) ? simulation.getNestLocation().getY() : y);
+			case LONG_RANGE:
+				return MethodHandles.insertArguments(lookup.findStatic(SteeringRule.class, kind,
+						MethodType.methodType(double.class, double.class, double.class, SteeringKernel.class, double.class)),
+						0, weight, simulation.getOpeningAngle());
+			case OBSTACLES:
+				return MethodHandles.insertArguments(lookup.findStatic(SteeringRule.class, kind,
+						MethodType.methodType(double.class, double.class, double.class, SteeringKernel.class, double.class)),
+						0, weight, margin);
+			default:
+				return MethodHandles.insertArguments(lookup.findStatic(SteeringRule.class, kind,
+						MethodType.methodType(double.class, double.class, int.class, SteeringKernel.class, double.class)),
+						0, weight, accumulator);
+			}
+
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Cannot compile steering rule " + name, e);
+		}
+
+	}
+
+	/*
+	 * The kinds of rule, see the class comment. Each matches the Entity method of the same name.
+	 */
+	static double cohesion(double weight, int accumulator, SteeringKernel kernel, double angle) {
+
+		if (kernel.entitiesInFlock[accumulator] == 0) {
+			return angle;
+		}
+
+		return angle + weight * kernel.angleToCentre[accumulator];
+
+	}
+
+	static double separation(double weight, int accumulator, SteeringKernel kernel, double angle) {
+
+		if (kernel.entitiesInFlock[accumulator] == 0) {
+			return angle;
+		}
+
+		return angle - weight * kernel.angleToCentre[accumulator];
+
+	}
+
+	static double alignment(double weight, int accumulator, SteeringKernel kernel, double angle) {
+
+		if (kernel.entitiesInFlock[accumulator] == 0) {
+			return angle;
+		}
+
+		return angle + weight * (kernel.sumOfAngles[accumulator] / kernel.entitiesInFlock[accumulator] - angle);
+
+	}
+
+	static double nest(double weight, double nestX, double nestY, SteeringKernel kernel, double angle) {
+		return angle + weight * Math.toDegrees(Math.atan((nestX - kernel.entityX) / (nestY - kernel.entityY)));
+	}
+
+	static double longRange(double weight, double openingAngle, SteeringKernel kernel, double angle) {
+
+		CartesianCoordinate pull = kernel.pull;
+		kernel.quadTree.calculatePull(kernel.entityX, kernel.entityY, openingAngle, pull);
+
+		if (pull.getX() == 0 && pull.getY() == 0) {
+			return angle;
+		}
+
+		return angle + weight * Math.toDegrees(Math.atan(pull.getX() / pull.getY()));
+
+	}
+
+	static double obstacles(double weight, double margin, SteeringKernel kernel, double angle) {
+
+		SignedDistanceField obstacles = kernel.obstacles;
+
+		if (obstacles == null) {
+			return angle;
+		}
+
+		double xDistFromObstacle = -obstacles.getGradientX(kernel.entityX, kernel.entityY);
+		double yDistFromObstacle = -obstacles.getGradientY(kernel.entityX, kernel.entityY);
+
+		if (xDistFromObstacle == 0 && yDistFromObstacle == 0) {
+			return angle;
+		}
+
+		angle = angle - weight * Math.toDegrees(Math.atan(xDistFromObstacle / yDistFromObstacle));
+
+		if (obstacles.getDistance(kernel.entityX, kernel.entityY) <= margin) {
+			angle = angle - 180;
+			kernel.publish(EventRing.OBSTACLE_BOUNCE, -1);
+		}
+
+		return angle;
+
+	}
+
+	static double collisions(double weight, int accumulator, SteeringKernel kernel, double angle) {
+
+		//Nothing touched, so no turn, and the angle is left unwrapped as applyCollisions() leaves it.
+		if (kernel.entitiesInFlock[accumulator] == 0) {
+			return angle;
+		}
+
+		kernel.publish(EventRing.COLLISION, kernel.nearestNeighbour[accumulator]);
+
+		//Kept between 0 and 360 as turn() does. The alignment rule averages the angles as they are, so
+		//wrapping when turn() would not changes the flock's average angle.
+		angle = angle + weight * kernel.nearestSide[accumulator];
+		if (angle > 360) {
+			angle = angle - 360;
+		} else if (angle < 0) {
+			angle = angle + 360;
+		}
+
+		return angle;
+
+	}
+
+	static double flee(double weight, int accumulator, SteeringKernel kernel, double angle) {
+
+		//Only publish when the first of the targets comes into sight.
+		if (kernel.events != null) {
+
+			long handle = kernel.flockState.getHandle(kernel.slot);
+			int id = (int) handle;
+			boolean inSight = kernel.entitiesInFlock[accumulator] != 0;
+
+			if (inSight && kernel.sighted[id] != handle) {
+				kernel.publish(EventRing.PREDATOR_SIGHTED, kernel.nearestNeighbour[accumulator]);
+			}
+			kernel.sighted[id] = inSight ? handle : -1;
+
+		}
+
+		return angle - weight * kernel.sumOfBearings[accumulator];
+
+	}
+
+}
@@ -0,0 +1,311 @@
+/* The entity package contains anything related to the boids/entities/birds and their behaviour. */
+package entity;
+
+//Imports for reading the rules file and chaining the rules together.
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+//Import settings to find the rules file, and the world the fields cover.
+import tools.Settings;
+import geometry.SignedDistanceField;
+import geometry.World;
+
+/*
+ * The steering rules for each type of entity, "entity" and "predator", read from a rules file
+ * named by the "steering.rules" setting (steering.properties by default). "<type>.rules" lists a
+ * type's rules in the order they are applied, and each rule's values are set with
+ * "<type>.<rule>.<value>", see SteeringRule and steering.properties. Without a rules file the
+ * rules match the Entity and PredatorialEntity methods.
+ *
+ * New behaviours used to need a subclass of Entity overriding its apply methods, so the loop over
+ * every entity called whichever override each entity happened to have. Instead the rules are
+ * compiled into one method handle per type, each rule's handle passing its new angle on to the
+ * next, with every weight, radius and target fixed in the handle. Rules switched off, or whose
+ * weight (after its on screen control) is 0, are left out altogether. The kernel calls the same
+ * handle for every entity of a type so the JVM specialises it, and the rules run as one straight
+ * piece of code. The rules are compiled again whenever an on screen control changes.
+ *
+ * If a field cell size is given, the rules which only depend on where an entity is (nest and
+ * obstacles) are baked into one SteeringField, applied where the first of them was. Only the rules
+ * up to the next alignment rule are baked, as alignment scales the turn made before it and so a
+ * turn cannot be moved across it. The rest stay as they are. Baking takes far longer than compiling,
+ * so the last field of each type is kept and only baked again when something it was baked from
+ * changes (a baked rule's weight, nest or margin, the obstacles, or the cell size), not when any
+ * other on screen control or the quality level changes.
+ */
+public class SteeringRules {
+
+	//The name of the rules file if the setting is not given.
+	private static final String RULES_FILE = "steering.properties";
+
+	//The rules for ordinary entities and for predators.
+	private List<SteeringRule> entityRules;
+	private List<SteeringRule> predatorRules;
+
+	//The last field baked for each type (entities, then predators), what it was baked from, and
+	//how many fields have been baked.
+	private SteeringField[] fields = new SteeringField[2];
+	private double[][] fieldKeys = new double[2][];
+	private SignedDistanceField[] fieldObstacles = new SignedDistanceField[2];
+	private long fieldsBaked;
+
+	/*
+	 * The rules for one type of entity, compiled for one set of on screen control values.
+	 */
+	static class Compiled {
+
+		//Every rule chained together, (kernel, angle) -> new angle.
+		MethodHandle chain;
+
+		//What the kernel adds up about the flock. Each accumulator counts entities of one target
+		//type within one radius, rules with the same radius and target share an accumulator.
+		double[] radius;
+		int[] target;
+		boolean[] needsCentre;
+		boolean[] needsBearings;
+
+		//How far to search for the flock, the largest radius.
+		double range;
+
+		//True if a long range rule is used, so the quadtree is needed.
+		boolean longRange;
+
+		//The rules baked into a field, null if none were.
+		SteeringField field;
+
+	}
+
+	/*
+	 * Constructor which reads the rules.
+	 * @param rules, the rules file's values, with any missing values already defaulted.
+	 */
+	public SteeringRules(Properties rules) {
+
+		entityRules = parseType(rules, "entity");
+		predatorRules = parseType(rules, "predator");
+
+	}
+
+	/*
+	 * Reads the rules file named by the "steering.rules" setting, or uses the default rules if
+	 * there is no such file.
+	 * @return rules SteeringRules
+	 */
+	public static SteeringRules fromSettings() {
+
+		Properties rules = new Properties(getDefaults());
+
+		try (InputStream input = new FileInputStream(Settings.getString("steering.rules", RULES_FILE))) {
+			rules.load(input);
+		} catch (IOException e) {
+			//No rules file, the default rules will be used.
+		}
+
+		return new SteeringRules(rules);
+
+	}
+
+	/*
+	 * The default rules, the same as calling the Entity and PredatorialEntity methods.
+	 * @return defaults Properties
+	 */
+	public static Properties getDefaults() {
+
+		Properties defaults = new Properties();
+		defaults.setProperty("entity.rules", "cohesion, separation, alignment, nest, longRange, obstacles, collisions, flee");
+		defaults.setProperty("predator.rules", "cohesion, longRange, obstacles, collisions");
+		defaults.setProperty("predator.cohesion.weight", "0.01");
+		defaults.setProperty("predator.cohesion.control", "false");
+		return defaults;
+
+	}
+
+	/*
+	 * Reads the list of rules for one type of entity.
+	 */
+	private static List<SteeringRule> parseType(Properties rules, String type) {
+
+		List<SteeringRule> parsed = new ArrayList<SteeringRule>();
+
+		for (String name : rules.getProperty(type + ".rules", "").split(",")) {
+			if (!name.trim().isEmpty()) {
+				parsed.add(SteeringRule.parse(rules, type, name.trim()));
+			}
+		}
+
+		return parsed;
+
+	}
+
+	/*
+	 * Compiles the rules for one type of entity.
+	 * @param predator, true to compile the predators' rules.
+	 * @param simulation, the simulation holding the on screen controls' values.
+	 * @param fieldCellSize, how far apart the points of the field are, 0 to not bake any rules.
+	 * @return compiled Compiled
+	 */
+	Compiled compile(boolean predator, Simulation simulation, double fieldCellSize) {
+
+		Compiled compiled = new Compiled();
+		List<Double> radii = new ArrayList<Double>();
+		List<Integer> targets = new ArrayList<Integer>();
+		List<Boolean> centres = new ArrayList<Boolean>();
+		List<Boolean> bearings = new ArrayList<Boolean>();
+
+		//To start with the angle is passed straight through, (kernel, angle) -> angle.
+		MethodHandle chain = passThrough();
+
+		//The rules before the field, the rules baked into it, and whether more can still be baked.
+		MethodHandle beforeField = null;
+		MethodHandle baked = passThrough();
+		boolean baking = fieldCellSize > 0;
+		List<Double> fieldKey = new ArrayList<Double>();
+		int position = 0;
+
+		for (SteeringRule rule : predator ? predatorRules : entityRules) {
+
+			double weight = rule.getWeight(simulation);
+			position++;
+
+			if (weight == 0) {
+				continue;
+			}
+
+			//Find (or add) the accumulator for the rule's radius and target.
+			int accumulator = -1;
+
+			if (rule.usesFlock()) {
+
+				for (int index = 0; index < radii.size() && accumulator == -1; index++) {
+					if (radii.get(index) == rule.radius && targets.get(index) == rule.target) {
+						accumulator = index;
+					}
+				}
+
+				if (accumulator == -1) {
+					accumulator = radii.size();
+					radii.add(rule.radius);
+					targets.add(rule.target);
+					centres.add(false);
+					bearings.add(false);
+				}
+
+				if (rule.kind.equals(SteeringRule.COHESION) || rule.kind.equals(SteeringRule.SEPARATION)) {
+					centres.set(accumulator, true);
+				}
+				if (rule.kind.equals(SteeringRule.FLEE)) {
+					bearings.set(accumulator, true);
+				}
+				compiled.range = Math.max(compiled.range, rule.radius);
+
+			}
+
+			if (rule.kind.equals(SteeringRule.LONG_RANGE)) {
+				compiled.longRange = true;
+			}
+
+			MethodHandle step = rule.compile(weight, accumulator, simulation);
+
+			//Bake the rule into the field if it can be, the field goes where the first baked rule was.
+			if (baking && rule.isStatic()) {
+				if (beforeField == null) {
+					beforeField = chain;
+					chain = passThrough();
+				}
+				baked = then(baked, step);
+				fieldKey.add((double) position);
+				rule.addFieldKey(fieldKey, weight, simulation);
+				continue;
+			}
+			if (beforeField != null && rule.kind.equals(SteeringRule.ALIGNMENT)) {
+				baking = false;
+			}
+
+			chain = then(chain, step);
+
+		}
+
+		if (beforeField != null) {
+			compiled.field = bake(predator ? 1 : 0, baked, fieldKey, simulation, fieldCellSize);
+			chain = then(then(beforeField, compiled.field.compile()), chain);
+		}
+
+		compiled.chain = chain;
+		compiled.radius = new double[radii.size()];
+		compiled.target = new int[radii.size()];
+		compiled.needsCentre = new boolean[radii.size()];
+		compiled.needsBearings = new boolean[radii.size()];
+
+		for (int index = 0; index < radii.size(); index++) {
+			compiled.radius[index] = radii.get(index);
+			compiled.target[index] = targets.get(index);
+			compiled.needsCentre[index] = centres.get(index);
+			compiled.needsBearings[index] = bearings.get(index);
+		}
+
+		return compiled;
+
+	}
+
+	/*
+	 * Gets the field for a type's baked rules, only baking it again if it was baked from something else.
+	 * @param type, 0 for entities and 1 for predators.
+	 * @param baked, the rules to bake, (kernel, angle) -> new angle.
+	 * @param rules, the position and values of every rule baked.
+	 * @param simulation, the simulation holding the world.
+	 * @param fieldCellSize, how far apart the points of the field are.
+	 * @return field SteeringField
+	 */
+	private SteeringField bake(int type, MethodHandle baked, List<Double> rules, Simulation simulation, double fieldCellSize) {
+
+		World world = simulation.getWorld();
+		double[] key = new double[rules.size() + 3];
+		for (int index = 0; index < rules.size(); index++) {
+			key[index] = rules.get(index);
+		}
+		key[rules.size()] = fieldCellSize;
+		key[rules.size() + 1] = world.getWidth();
+		key[rules.size() + 2] = world.getHeight();
+
+		if (fields[type] == null || !Arrays.equals(key, fieldKeys[type]) || world.getObstacles() != fieldObstacles[type]) {
+			fields[type] = new SteeringField(baked, world, fieldCellSize);
+			fieldKeys[type] = key;
+			fieldObstacles[type] = world.getObstacles();
+			fieldsBaked++;
+		}
+
+		return fields[type];
+
+	}
+
+	/*
+	 * Gets how many fields have been baked.
+	 * @return fieldsBaked long
+	 */
+	long getFieldsBaked() {
+		return fieldsBaked;
+	}
+
+	/*
+	 * The rule which changes nothing, (kernel, angle) -> angle.
+	 */
+	private static MethodHandle passThrough() {
+		return MethodHandles.dropArguments(MethodHandles.identity(double.class), 0, SteeringKernel.class);
+	}
+
+	/*
+	 * Chains a rule on after the rules before it. Collecting the chain so far into the rule's angle
+	 * gives (kernel, kernel, angle), which is then folded back into (kernel, angle).
+	 */
+	private static MethodHandle then(MethodHandle chain, MethodHandle step) {
+		return MethodHandles.permuteArguments(MethodHandles.collectArguments(step, 1, chain), SteeringRule.RULE_TYPE, 0, 0, 1);
+	}
+
+}
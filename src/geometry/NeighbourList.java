@@ -0,0 +1,281 @@
+/*The geometry package contains anything related
+to the positioning system implemented in this program.*/
+package geometry;
+
+//Used to grow the arrays.
+import java.util.Arrays;
+
+/*
+ * A neighbour list (a "Verlet list") remembers, for every entity, the entities near it, so the
+ * spatial grid does not have to be searched every tick. Entities only move a few units per tick
+ * but flocks are 50 units across, so the entities near each other barely change from one tick to
+ * the next.
+ *
+ * When the list is built every entity is given the entities within the search range plus an extra
+ * "skin". An entity within the range now was within the range plus the skin when the list was
+ * built, as long as neither entity has moved more than half the skin (in x or in y) since. So the
+ * list can be used until some entity has moved that far, then it is built again. A rule using the
+ * list must still check the distance to each entity in it.
+ *
+ * The lists for every entity are stored one after another in one array, with the start of each
+ * entity's list in another. Each list is sorted, so if the entities are stored in order of location
+ * (see FlockState.sortByLocation()) walking a list reads memory mostly in order. Counters record
+ * how often the list is built and how often it is reused.
+ *
+ * The list can instead hold only each entity's nearest few neighbours (see buildNearest()), nearest
+ * first. Which entities are nearest changes as soon as any of them move, so that list is never
+ * reused and is built every tick.
+ */
+public class NeighbourList {
+
+	//The world, used to measure distances across its edges.
+	private World world;
+
+	//The extra distance searched beyond the range.
+	private double skin;
+
+	//Every entity's list, one after another. Entity i's list runs from start[i] to start[i + 1].
+	private int[] start = new int[1];
+	private int[] neighbours = new int[64];
+
+	//The range searched, the number of entities and where they were when the list was built, and
+	//how many nearest neighbours each entity was given (0 for every neighbour in range).
+	private double builtRange = -1;
+	private int builtNearest;
+	private int builtCount = -1;
+	private double[] builtX = new double[0];
+	private double[] builtY = new double[0];
+
+	//The average distance from each entity to the furthest of its nearest neighbours, when last built by buildNearest().
+	private double averageReach;
+
+	//How many times the list has been checked, and built.
+	private long checks;
+	private long builds;
+
+	/*
+	 * Constructor for an empty list, which must be built before it is used.
+	 * @param world, the world the entities live in.
+	 * @param skin, the extra distance searched, 0 to build the list every tick.
+	 */
+	public NeighbourList(World world, double skin) {
+
+		this.world = world;
+		this.skin = Math.max(0, skin);
+
+	}
+
+	/*
+	 * Checks whether the list can still be used, and counts the check. It cannot if it was built
+	 * for a different range or number of entities, or if any entity has moved more than half the
+	 * skin since it was built.
+	 * @param x, the x coordinate of each entity.
+	 * @param y, the y coordinate of each entity.
+	 * @param count, the number of entities.
+	 * @param range, the range the list must cover.
+	 * @return valid boolean
+	 */
+	public boolean isValid(double[] x, double[] y, int count, double range) {
+
+		checks++;
+
+		if (count != builtCount || range != builtRange || skin == 0 || builtNearest != 0) {
+			return false;
+		}
+
+		double limit = skin / 2;
+
+		for (int entity = 0; entity < count; entity++) {
+
+			if (Math.abs(world.deltaX(builtX[entity], x[entity])) > limit
+					|| Math.abs(world.deltaY(builtY[entity], y[entity])) > limit) {
+				return false;
+			}
+
+		}
+
+		return true;
+
+	}
+
+	/*
+	 * Builds the list from a grid holding every entity's current location.
+	 * @param grid, the grid to search, holding entities 0 to count - 1.
+	 * @param x, the x coordinate of each entity.
+	 * @param y, the y coordinate of each entity.
+	 * @param count, the number of entities.
+	 * @param range, the range the list must cover (the skin is added to it).
+	 */
+	public void build(SpatialGrid grid, double[] x, double[] y, int count, double range) {
+
+		builds++;
+
+		if (start.length < count + 1) {
+			start = new int[count + 1];
+			builtX = new double[count];
+			builtY = new double[count];
+		}
+
+		int size = 0;
+
+		for (int entity = 0; entity < count; entity++) {
+
+			int found = grid.findNeighbours(x[entity], y[entity], range + skin);
+			int[] near = grid.getNeighbours();
+
+			if (size + found > neighbours.length) {
+				neighbours = Arrays.copyOf(neighbours, Math.max(size + found, neighbours.length * 2));
+			}
+
+			start[entity] = size;
+
+			//An entity is not its own neighbour.
+			for (int index = 0; index < found; index++) {
+				if (near[index] != entity) {
+					neighbours[size++] = near[index];
+				}
+			}
+			Arrays.sort(neighbours, start[entity], size);
+
+		}
+
+		start[count] = size;
+
+		System.arraycopy(x, 0, builtX, 0, count);
+		System.arraycopy(y, 0, builtY, 0, count);
+		builtCount = count;
+		builtRange = range;
+		builtNearest = 0;
+
+	}
+
+	/*
+	 * Builds the list giving each entity only its nearest neighbours within the range, nearest first.
+	 * No skin is added, as this list is built again every tick.
+	 * @param grid, the grid to search, holding entities 0 to count - 1.
+	 * @param x, the x coordinate of each entity.
+	 * @param y, the y coordinate of each entity.
+	 * @param count, the number of entities.
+	 * @param range, the furthest (in x and in y) a neighbour can be.
+	 * @param nearest, the most neighbours each entity is given.
+	 */
+	public void buildNearest(SpatialGrid grid, double[] x, double[] y, int count, double range, int nearest) {
+
+		builds++;
+
+		if (start.length < count + 1) {
+			start = new int[count + 1];
+			builtX = new double[count];
+			builtY = new double[count];
+		}
+		if (neighbours.length < count * nearest) {
+			neighbours = new int[count * nearest];
+		}
+
+		int size = 0;
+		double totalReach = 0;
+		int reached = 0;
+
+		for (int entity = 0; entity < count; entity++) {
+
+			int found = grid.findNearest(x[entity], y[entity], nearest, range, entity);
+			start[entity] = size;
+			System.arraycopy(grid.getNeighbours(), 0, neighbours, size, found);
+			size = size + found;
+
+			if (found != 0) {
+				int furthest = neighbours[size - 1];
+				totalReach = totalReach + Math.hypot(world.deltaX(x[entity], x[furthest]), world.deltaY(y[entity], y[furthest]));
+				reached++;
+			}
+
+		}
+
+		averageReach = reached == 0 ? 0 : totalReach / reached;
+		start[count] = size;
+		builtCount = count;
+		builtRange = range;
+		builtNearest = nearest;
+
+	}
+
+	/*
+	 * Forgets the list, so the next check fails and it is built again.
+	 */
+	public void invalidate() {
+		builtCount = -1;
+	}
+
+	/*
+	 * Gets where an entity's list starts in getNeighbours().
+	 * @param entity, the entity.
+	 * @return start int
+	 */
+	public int getStart(int entity) {
+		return start[entity];
+	}
+
+	/*
+	 * Gets where an entity's list ends (exclusive) in getNeighbours().
+	 * @param entity, the entity.
+	 * @return end int
+	 */
+	public int getEnd(int entity) {
+		return start[entity + 1];
+	}
+
+	/*
+	 * Gets every entity's list, one after another.
+	 * @return neighbours int[]
+	 */
+	public int[] getNeighbours() {
+		return neighbours;
+	}
+
+	/*
+	 * Getters for the counters.
+	 */
+	public double getSkin() {
+		return skin;
+	}
+
+	public long getChecks() {
+		return checks;
+	}
+
+	public long getBuilds() {
+		return builds;
+	}
+
+	/*
+	 * Gets the fraction of checks where the list could be reused.
+	 * @return hitRate double
+	 */
+	public double getHitRate() {
+		return checks == 0 ? 0 : (checks - builds) / (double) checks;
+	}
+
+	/*
+	 * Gets the average distance from each entity to the furthest neighbour in its list, when last
+	 * built by buildNearest(), 0 if never built that way.
+	 * @return averageReach double
+	 */
+	public double getAverageReach() {
+		return averageReach;
+	}
+
+	/*
+	 * Gets the average length of each entity's list when it was last built.
+	 * @return averageLength double
+	 */
+	public double getAverageLength() {
+		return builtCount <= 0 ? 0 : start[builtCount] / (double) builtCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("Neighbour list: skin %.1f, built %d times in %d ticks (hit rate %.1f%%), %.1f neighbours per entity",
+				skin, builds, checks, getHitRate() * 100, getAverageLength());
+	}
+
+}
@@ -0,0 +1,299 @@
+/*The geometry package contains anything related
+to the positioning system implemented in this program.*/
+package geometry;
+
+//Used to grow the node arrays.
+import java.util.Arrays;
+
+/*
+ * A Barnes-Hut quadtree. Every tick the tree is cleared and each entity is inserted as a point
+ * with a mass. Every node of the tree keeps the total mass and the centre of mass of everything
+ * below it, so a far away group of entities can be treated as one heavy point instead of being
+ * visited one at a time. This makes long range pulls (such as flocks attracting each other across
+ * the whole screen) cost O(log n) per entity instead of O(n).
+ *
+ * The nodes are stored in arrays rather than as objects, so rebuilding the tree every tick does
+ * not create any garbage once the arrays have grown large enough.
+ */
+public class QuadTree {
+
+	//Deepest a node can be split. Entities stacked on the same spot share a leaf past this depth.
+	private static final int MAX_DEPTH = 24;
+
+	//Pulls from anything closer than this are ignored, this stops an entity pulling on itself.
+	private static final double SOFTENING = 0.5;
+
+	//The corner and size of every node, each node is a square.
+	private double[] nodeX;
+	private double[] nodeY;
+	private double[] nodeSize;
+
+	//The total mass and centre of mass of every node.
+	private double[] nodeMass;
+	private double[] nodeCentreX;
+	private double[] nodeCentreY;
+
+	//The index of the first of the four children of a node (-1 for a leaf) and its depth.
+	private int[] firstChild;
+	private int[] nodeDepth;
+
+	//How many nodes are in use.
+	private int nodeCount;
+
+	//Stack used when walking the tree, saves recursion.
+	private int[] stack;
+
+	/*
+	 * Constructor for an empty quadtree, clear() must be called before inserting.
+	 */
+	public QuadTree() {
+
+		//Start with enough room for a few hundred nodes, the arrays grow as needed.
+		allocate(256);
+		stack = new int[4 * MAX_DEPTH + 4];
+
+	}
+
+	/*
+	 * Empties the tree and sets the area it covers. The area is made square using the
+	 * larger of the width and height.
+	 * @param x, the left edge of the area.
+	 * @param y, the top edge of the area.
+	 * @param width, the width of the area.
+	 * @param height, the height of the area.
+	 */
+	public void clear(double x, double y, double width, double height) {
+
+		nodeCount = 0;
+		createNode(x, y, Math.max(width, height), 0);
+
+	}
+
+	/*
+	 * Adds a point with a mass to the tree. Every node on the way down has its mass
+	 * and centre of mass updated.
+	 * @param x, the x coordinate of the point.
+	 * @param y, the y coordinate of the point.
+	 * @param mass, the mass of the point (1 for a single entity).
+	 */
+	public void insert(double x, double y, double mass) {
+
+		int node = 0;
+
+		while (true) {
+
+			//An empty leaf simply takes the point.
+			if (firstChild[node] < 0 && nodeMass[node] == 0) {
+
+				nodeMass[node] = mass;
+				nodeCentreX[node] = x;
+				nodeCentreY[node] = y;
+				return;
+
+			}
+
+			//A full leaf is split into four, unless it is already as deep as allowed.
+			if (firstChild[node] < 0) {
+
+				if (nodeDepth[node] >= MAX_DEPTH) {
+					addToCentreOfMass(node, x, y, mass);
+					return;
+				}
+
+				subdivide(node);
+
+			}
+
+			//Add the point to this node's totals and move on to the quadrant it falls in.
+			addToCentreOfMass(node, x, y, mass);
+			node = childContaining(node, x, y);
+
+		}
+
+	}
+
+	/*
+	 * Works out the total pull on a point from every mass in the tree. The pull from each mass
+	 * falls off with the square of the distance. A node is treated as a single point when its
+	 * size divided by its distance is smaller than the opening angle, so a larger opening angle
+	 * is faster but less accurate and 0 visits every point.
+	 * @param x, the x coordinate of the point being pulled.
+	 * @param y, the y coordinate of the point being pulled.
+	 * @param openingAngle, the Barnes-Hut opening angle (theta), usually around 0.5.
+	 * @param pull, set to the total x and y pull on the point.
+	 */
+	public void calculatePull(double x, double y, double openingAngle, CartesianCoordinate pull) {
+
+		double pullX = 0;
+		double pullY = 0;
+		double openingAngleSquared = openingAngle * openingAngle;
+
+		//Start the walk from the root.
+		int top = 0;
+		stack[top++] = 0;
+
+		while (top > 0) {
+
+			int node = stack[--top];
+
+			//Skip empty nodes.
+			if (nodeMass[node] == 0) {
+				continue;
+			}
+
+			double xDist = nodeCentreX[node] - x;
+			double yDist = nodeCentreY[node] - y;
+			double distSquared = xDist * xDist + yDist * yDist;
+
+			//Treat the node as one point if it is a leaf or is small enough compared to its distance.
+			if (firstChild[node] < 0 || nodeSize[node] * nodeSize[node] < openingAngleSquared * distSquared) {
+
+				if (distSquared > SOFTENING * SOFTENING) {
+
+					//Pull = mass / distance^2 in the direction of the node.
+					double dist = Math.sqrt(distSquared);
+					double strength = nodeMass[node] / distSquared;
+					pullX = pullX + strength * xDist / dist;
+					pullY = pullY + strength * yDist / dist;
+
+				}
+
+			} else {
+
+				//Too close to approximate, visit the four children instead.
+				for (int child = 0; child < 4; child++) {
+					stack[top++] = firstChild[node] + child;
+				}
+
+			}
+
+		}
+
+		pull.setX(pullX);
+		pull.setY(pullY);
+
+	}
+
+	/*
+	 * Gets the total mass of everything in the tree.
+	 * @return mass double
+	 */
+	public double getTotalMass() {
+		return nodeMass[0];
+	}
+
+	/*
+	 * Gets the number of nodes currently in use.
+	 * @return nodeCount int
+	 */
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	/*
+	 * Splits a leaf into four children and moves the point it held into the correct child.
+	 * @param node, the leaf to split.
+	 */
+	private void subdivide(int node) {
+
+		double half = nodeSize[node] / 2;
+		int depth = nodeDepth[node] + 1;
+
+		//Children are stored next to each other, top left, top right, bottom left, bottom right.
+		int first = createNode(nodeX[node], nodeY[node], half, depth);
+		createNode(nodeX[node] + half, nodeY[node], half, depth);
+		createNode(nodeX[node], nodeY[node] + half, half, depth);
+		createNode(nodeX[node] + half, nodeY[node] + half, half, depth);
+		firstChild[node] = first;
+
+		//The point already in the leaf is its centre of mass, move it down into a child.
+		int child = childContaining(node, nodeCentreX[node], nodeCentreY[node]);
+		nodeMass[child] = nodeMass[node];
+		nodeCentreX[child] = nodeCentreX[node];
+		nodeCentreY[child] = nodeCentreY[node];
+
+	}
+
+	/*
+	 * Finds which of the four children of a node a point falls in. Points outside
+	 * the node are put in the nearest child.
+	 * @return child int, the index of the child node.
+	 */
+	private int childContaining(int node, double x, double y) {
+
+		double half = nodeSize[node] / 2;
+		int child = firstChild[node];
+
+		if (x >= nodeX[node] + half) {
+			child = child + 1;
+		}
+		if (y >= nodeY[node] + half) {
+			child = child + 2;
+		}
+
+		return child;
+
+	}
+
+	/*
+	 * Adds a mass to a node's totals, moving its centre of mass towards the new point.
+	 */
+	private void addToCentreOfMass(int node, double x, double y, double mass) {
+
+		double totalMass = nodeMass[node] + mass;
+		nodeCentreX[node] = (nodeCentreX[node] * nodeMass[node] + x * mass) / totalMass;
+		nodeCentreY[node] = (nodeCentreY[node] * nodeMass[node] + y * mass) / totalMass;
+		nodeMass[node] = totalMass;
+
+	}
+
+	/*
+	 * Creates an empty leaf node, growing the arrays if needed.
+	 * @return node int, the index of the new node.
+	 */
+	private int createNode(double x, double y, double size, int depth) {
+
+		if (nodeCount == nodeX.length) {
+			allocate(nodeX.length * 2);
+		}
+
+		int node = nodeCount++;
+		nodeX[node] = x;
+		nodeY[node] = y;
+		nodeSize[node] = size;
+		nodeDepth[node] = depth;
+		nodeMass[node] = 0;
+		nodeCentreX[node] = 0;
+		nodeCentreY[node] = 0;
+		firstChild[node] = -1;
+
+		return node;
+
+	}
+
+	/*
+	 * Grows (or creates) the node arrays, keeping any nodes already stored.
+	 * @param capacity, the new number of nodes that can be stored.
+	 */
+	private void allocate(int capacity) {
+
+		nodeX = copyOf(nodeX, capacity);
+		nodeY = copyOf(nodeY, capacity);
+		nodeSize = copyOf(nodeSize, capacity);
+		nodeMass = copyOf(nodeMass, capacity);
+		nodeCentreX = copyOf(nodeCentreX, capacity);
+		nodeCentreY = copyOf(nodeCentreY, capacity);
+		firstChild = copyOf(firstChild, capacity);
+		nodeDepth = copyOf(nodeDepth, capacity);
+
+	}
+
+	private static double[] copyOf(double[] array, int capacity) {
+		return array == null ? new double[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+	private static int[] copyOf(int[] array, int capacity) {
+		return array == null ? new int[capacity] : Arrays.copyOf(array, capacity);
+	}
+
+}
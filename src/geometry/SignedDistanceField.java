@@ -0,0 +1,316 @@
+/*The geometry package contains anything related
+to the positioning system implemented in this program.*/
+package geometry;
+
+//Imports for turning images and shapes into a field.
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+
+/*
+ * A signed distance field stores, for a grid of points covering an area, the distance from each
+ * point to the edge of the nearest obstacle. It is negative inside an obstacle and positive
+ * outside. The direction away from the nearest obstacle (the gradient) is stored alongside it.
+ *
+ * The field is worked out once, from an image or a shape, so however complicated the obstacles
+ * are, finding out how far away they are and which way to turn only takes a lookup of the four
+ * grid points around a location (blending between them).
+ *
+ * Locations outside the area covered by the field use the nearest point on its border.
+ */
+public class SignedDistanceField {
+
+	//Used in place of infinity by the distance transform.
+	private static final double FAR = 1e12;
+
+	//Where the field starts in the world and how far apart its points are.
+	private double originX;
+	private double originY;
+	private double cellSize;
+
+	//The number of points across and down.
+	private int columns;
+	private int rows;
+
+	//The distance and the gradient at each point, stored row by row.
+	private float[] distance;
+	private float[] gradientX;
+	private float[] gradientY;
+
+	//False if there were no obstacles at all.
+	private boolean hasObstacles;
+
+	/*
+	 * Constructor which works out the field from a grid of solid and empty cells.
+	 * @param solid, true for each cell inside an obstacle, stored row by row.
+	 * @param columns, the number of cells across.
+	 * @param rows, the number of cells down.
+	 * @param originX, the x coordinate of the top left of the grid in the world.
+	 * @param originY, the y coordinate of the top left of the grid in the world.
+	 * @param cellSize, the size of each cell in the world.
+	 */
+	public SignedDistanceField(boolean[] solid, int columns, int rows, double originX, double originY, double cellSize) {
+
+		this.columns = columns;
+		this.rows = rows;
+		this.originX = originX;
+		this.originY = originY;
+		this.cellSize = cellSize;
+
+		//Squared distance from every cell to the nearest solid cell, and to the nearest empty cell.
+		double[] toSolid = new double[columns * rows];
+		double[] toEmpty = new double[columns * rows];
+
+		for (int cell = 0; cell < solid.length; cell++) {
+
+			toSolid[cell] = solid[cell] ? 0 : FAR;
+			toEmpty[cell] = solid[cell] ? FAR : 0;
+			hasObstacles = hasObstacles || solid[cell];
+
+		}
+
+		distanceTransform(toSolid, columns, rows);
+		distanceTransform(toEmpty, columns, rows);
+
+		//The edge of an obstacle is half a cell from the centre of the cells either side of it.
+		//With no obstacles the distance is capped at the size of the whole field.
+		double cap = (columns + rows) * cellSize;
+		distance = new float[columns * rows];
+
+		for (int cell = 0; cell < distance.length; cell++) {
+
+			if (solid[cell]) {
+				distance[cell] = (float) (-(Math.sqrt(toEmpty[cell]) - 0.5) * cellSize);
+			} else {
+				distance[cell] = (float) Math.min(cap, (Math.sqrt(toSolid[cell]) - 0.5) * cellSize);
+			}
+
+		}
+
+		calculateGradient();
+
+	}
+
+	/*
+	 * Works out a field from an image, any pixel which is mostly opaque is part of an obstacle.
+	 * @param image, the image of the obstacles.
+	 * @param originX, where the left of the image is in the world.
+	 * @param originY, where the top of the image is in the world.
+	 * @param pixelSize, the size of one pixel in the world.
+	 * @return field SignedDistanceField
+	 */
+	public static SignedDistanceField fromImage(BufferedImage image, double originX, double originY, double pixelSize) {
+
+		int columns = image.getWidth();
+		int rows = image.getHeight();
+		int[] pixels = image.getRGB(0, 0, columns, rows, null, 0, columns);
+		boolean[] solid = new boolean[columns * rows];
+
+		for (int pixel = 0; pixel < pixels.length; pixel++) {
+			solid[pixel] = (pixels[pixel] >>> 24) >= 128;
+		}
+
+		return new SignedDistanceField(solid, columns, rows, originX, originY, pixelSize);
+
+	}
+
+	/*
+	 * Works out a field from a shape (or several joined into one, e.g. with java.awt.geom.Area).
+	 * @param shape, the obstacles in world coordinates.
+	 * @param world, the world the field should cover.
+	 * @param cellSize, the size of each cell in the world, smaller is more accurate.
+	 * @return field SignedDistanceField
+	 */
+	public static SignedDistanceField fromShape(Shape shape, World world, double cellSize) {
+
+		//Draw the shape onto an image then use that.
+		int columns = (int) Math.ceil(world.getWidth() / cellSize);
+		int rows = (int) Math.ceil(world.getHeight() / cellSize);
+		BufferedImage image = new BufferedImage(columns, rows, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D graphics = image.createGraphics();
+
+		graphics.scale(1 / cellSize, 1 / cellSize);
+		graphics.setColor(Color.BLACK);
+		graphics.fill(shape);
+		graphics.dispose();
+
+		return fromImage(image, 0, 0, cellSize);
+
+	}
+
+	/*
+	 * Gets the distance from a location to the edge of the nearest obstacle.
+	 * @param x, the x coordinate of the location.
+	 * @param y, the y coordinate of the location.
+	 * @return distance double, negative if the location is inside an obstacle.
+	 */
+	public double getDistance(double x, double y) {
+		return sample(distance, x, y);
+	}
+
+	/*
+	 * Gets the x part of the direction away from the nearest obstacle.
+	 * @return gradientX double
+	 */
+	public double getGradientX(double x, double y) {
+		return sample(gradientX, x, y);
+	}
+
+	/*
+	 * Gets the y part of the direction away from the nearest obstacle.
+	 * @return gradientY double
+	 */
+	public double getGradientY(double x, double y) {
+		return sample(gradientY, x, y);
+	}
+
+	/*
+	 * Checks if there are any obstacles in the field.
+	 * @return hasObstacles boolean
+	 */
+	public boolean hasObstacles() {
+		return hasObstacles;
+	}
+
+	/*
+	 * Blends the values of the four points around a location (bilinear interpolation).
+	 */
+	private double sample(float[] values, double x, double y) {
+
+		//Position in the grid, measured from the centre of the first cell.
+		double u = Math.max(0, Math.min(columns - 1, (x - originX) / cellSize - 0.5));
+		double v = Math.max(0, Math.min(rows - 1, (y - originY) / cellSize - 0.5));
+
+		//A NaN location gives a NaN answer rather than an out of range index.
+		if (u != u || v != v) {
+			return Double.NaN;
+		}
+
+		int column = Math.min(columns - 2, (int) u);
+		int row = Math.min(rows - 2, (int) v);
+
+		//A field one cell wide or high has nothing to blend with.
+		if (column < 0 || row < 0) {
+			return values[Math.max(0, row) * columns + Math.max(0, column)];
+		}
+
+		double fractionX = u - column;
+		double fractionY = v - row;
+		int cell = row * columns + column;
+
+		double top = values[cell] + (values[cell + 1] - values[cell]) * fractionX;
+		double bottom = values[cell + columns] + (values[cell + columns + 1] - values[cell + columns]) * fractionX;
+
+		return top + (bottom - top) * fractionY;
+
+	}
+
+	/*
+	 * Works out the gradient at each point from the distances either side of it.
+	 */
+	private void calculateGradient() {
+
+		gradientX = new float[columns * rows];
+		gradientY = new float[columns * rows];
+
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+
+				int left = Math.max(0, column - 1);
+				int right = Math.min(columns - 1, column + 1);
+				int up = Math.max(0, row - 1);
+				int down = Math.min(rows - 1, row + 1);
+
+				double dx = right == left ? 0 : (distance[row * columns + right] - distance[row * columns + left]) / ((right - left) * cellSize);
+				double dy = down == up ? 0 : (distance[down * columns + column] - distance[up * columns + column]) / ((down - up) * cellSize);
+
+				gradientX[row * columns + column] = (float) dx;
+				gradientY[row * columns + column] = (float) dy;
+
+			}
+		}
+
+	}
+
+	/*
+	 * Replaces each value with the squared distance to the nearest cell holding 0 (an exact
+	 * euclidean distance transform, done one row at a time and then one column at a time).
+	 */
+	private static void distanceTransform(double[] grid, int columns, int rows) {
+
+		int longest = Math.max(columns, rows);
+		double[] line = new double[longest];
+		double[] result = new double[longest];
+		int[] parabolas = new int[longest];
+		double[] boundaries = new double[longest + 1];
+
+		for (int column = 0; column < columns; column++) {
+
+			for (int row = 0; row < rows; row++) {
+				line[row] = grid[row * columns + column];
+			}
+			distanceTransform(line, rows, result, parabolas, boundaries);
+			for (int row = 0; row < rows; row++) {
+				grid[row * columns + column] = result[row];
+			}
+
+		}
+
+		for (int row = 0; row < rows; row++) {
+
+			System.arraycopy(grid, row * columns, line, 0, columns);
+			distanceTransform(line, columns, result, parabolas, boundaries);
+			System.arraycopy(result, 0, grid, row * columns, columns);
+
+		}
+
+	}
+
+	/*
+	 * One dimensional distance transform (Felzenszwalb and Huttenlocher). Each value is treated
+	 * as a parabola and the lowest parabola under each position is found in one sweep.
+	 */
+	private static void distanceTransform(double[] values, int length, double[] result, int[] parabolas, double[] boundaries) {
+
+		int count = 0;
+		parabolas[0] = 0;
+		boundaries[0] = Double.NEGATIVE_INFINITY;
+		boundaries[1] = Double.POSITIVE_INFINITY;
+
+		for (int q = 1; q < length; q++) {
+
+			double s = intersection(values, q, parabolas[count]);
+			while (s <= boundaries[count]) {
+				count--;
+				s = intersection(values, q, parabolas[count]);
+			}
+
+			count++;
+			parabolas[count] = q;
+			boundaries[count] = s;
+			boundaries[count + 1] = Double.POSITIVE_INFINITY;
+
+		}
+
+		count = 0;
+		for (int q = 0; q < length; q++) {
+
+			while (boundaries[count + 1] < q) {
+				count++;
+			}
+			double offset = q - parabolas[count];
+			result[q] = offset * offset + values[parabolas[count]];
+
+		}
+
+	}
+
+	/*
+	 * Where the parabolas rooted at positions q and p cross.
+	 */
+	private static double intersection(double[] values, int q, int p) {
+		return ((values[q] + (double) q * q) - (values[p] + (double) p * p)) / (2.0 * (q - p));
+	}
+
+}
@@ -0,0 +1,380 @@
+/*The geometry package contains anything related
+to the positioning system implemented in this program.*/
+package geometry;
+
+//Used to grow the arrays.
+import java.util.Arrays;
+
+/*
+ * A spatial grid splits the world into square cells and remembers which entities are in each
+ * cell, so finding the entities near a point only means looking in the few cells around it
+ * rather than at every entity. Entities are referred to by a number (their index in the list
+ * of entities), the grid does not store the entities themselves.
+ *
+ * The grid understands that the world wraps around, so a search near an edge also looks in
+ * the cells on the far side of the world.
+ *
+ * Only the cells that contain entities use any memory (the cells are hashed into a table sized
+ * for the number of entities), so very large worlds do not need a huge grid.
+ *
+ * As well as every entity in a box, the grid can find the nearest few entities to a point. The
+ * cells are searched in rings moving out from the point's cell, keeping the nearest entities found
+ * so far in a heap, and the search stops once no cell left can hold anything nearer.
+ */
+public class SpatialGrid {
+
+	//The world the grid covers.
+	private World world;
+
+	//The number of cells across and down the world and the size of each cell.
+	private int cellsAcross;
+	private int cellsDown;
+	private double cellWidth;
+	private double cellHeight;
+
+	//The first entity in each hash bucket, the next entity in the same bucket and the cell each entity is in.
+	private int[] bucketHead;
+	private int[] nextInBucket;
+	private int[] cellOfEntity;
+	private int bucketMask;
+
+	//The entities found by the last search.
+	private int[] neighbours;
+
+	//The heap of the nearest entities found so far by findNearest(), furthest at the top, and their squared distances.
+	private int[] heapEntity = new int[16];
+	private double[] heapDistance = new double[16];
+
+	//The locations the entities were inserted at, so searches can check the real distance.
+	private double[] entityX;
+	private double[] entityY;
+
+	/*
+	 * Constructor for a grid covering the world.
+	 * @param world, the world to cover.
+	 * @param cellSize, the smallest size of a cell, usually the search range used most often.
+	 */
+	public SpatialGrid(World world, double cellSize) {
+
+		this.world = world;
+
+		//Every cell needs a unique number, so very large worlds use bigger cells.
+		while ((world.getWidth() / cellSize) * (world.getHeight() / cellSize) > (1 << 30)) {
+			cellSize = cellSize * 2;
+		}
+
+		//Fit a whole number of cells into the world so the cells line up across the wrap.
+		cellsAcross = Math.max(1, (int) Math.floor(world.getWidth() / cellSize));
+		cellsDown = Math.max(1, (int) Math.floor(world.getHeight() / cellSize));
+		cellWidth = world.getWidth() / cellsAcross;
+		cellHeight = world.getHeight() / cellsDown;
+
+		neighbours = new int[64];
+		clear(0);
+
+	}
+
+	/*
+	 * Empties the grid ready for the entities to be inserted again.
+	 * @param expectedEntities, how many entities are about to be inserted.
+	 */
+	public void clear(int expectedEntities) {
+
+		//Use around two buckets per entity, rounded up to a power of two.
+		int buckets = Integer.highestOneBit(Math.max(16, expectedEntities * 2 - 1)) << 1;
+
+		if (bucketHead == null || bucketHead.length != buckets) {
+			bucketHead = new int[buckets];
+		}
+		Arrays.fill(bucketHead, -1);
+		bucketMask = buckets - 1;
+
+		if (nextInBucket == null || nextInBucket.length < expectedEntities) {
+			int capacity = Math.max(16, expectedEntities);
+			nextInBucket = new int[capacity];
+			cellOfEntity = new int[capacity];
+			entityX = new double[capacity];
+			entityY = new double[capacity];
+		}
+
+	}
+
+	/*
+	 * Adds an entity to the cell containing its location.
+	 * @param entity, the number used to refer to the entity (must be less than the expected entities).
+	 * @param x, the x coordinate of the entity.
+	 * @param y, the y coordinate of the entity.
+	 */
+	public void insert(int entity, double x, double y) {
+
+		int cell = cellKey(cellColumn(x), cellRow(y));
+		int bucket = bucketOf(cell);
+
+		//Push the entity onto the front of its bucket's list.
+		cellOfEntity[entity] = cell;
+		entityX[entity] = x;
+		entityY[entity] = y;
+		nextInBucket[entity] = bucketHead[bucket];
+		bucketHead[bucket] = entity;
+
+	}
+
+	/*
+	 * Finds every entity inside a box around a point, including across the edges of the world.
+	 * The results can be read with getNeighbours().
+	 * @param x, the x coordinate of the centre of the box.
+	 * @param y, the y coordinate of the centre of the box.
+	 * @param range, half the width of the box.
+	 * @return found int, the number of entities found.
+	 */
+	public int findNeighbours(double x, double y, double range) {
+
+		int found = 0;
+
+		//Work out which columns and rows of cells the box covers, if it covers the whole
+		//world in either direction every column/row is visited once.
+		int firstColumn = (int) Math.floor((x - range) / cellWidth);
+		int columns = (int) Math.floor((x + range) / cellWidth) - firstColumn + 1;
+		if (columns >= cellsAcross) {
+			firstColumn = 0;
+			columns = cellsAcross;
+		}
+
+		int firstRow = (int) Math.floor((y - range) / cellHeight);
+		int rows = (int) Math.floor((y + range) / cellHeight) - firstRow + 1;
+		if (rows >= cellsDown) {
+			firstRow = 0;
+			rows = cellsDown;
+		}
+
+		for (int row = 0; row < rows; row++) {
+			for (int column = 0; column < columns; column++) {
+
+				//Wrap the cell around the edges of the world.
+				int cell = cellKey(Math.floorMod(firstColumn + column, cellsAcross), Math.floorMod(firstRow + row, cellsDown));
+
+				//Walk the bucket, other cells can share it so check each entity's cell too.
+				for (int entity = bucketHead[bucketOf(cell)]; entity >= 0; entity = nextInBucket[entity]) {
+
+					if (cellOfEntity[entity] == cell
+							&& Math.abs(world.deltaX(x, entityX[entity])) <= range
+							&& Math.abs(world.deltaY(y, entityY[entity])) <= range) {
+
+						if (found == neighbours.length) {
+							neighbours = Arrays.copyOf(neighbours, found * 2);
+						}
+						neighbours[found++] = entity;
+
+					}
+
+				}
+
+			}
+		}
+
+		return found;
+
+	}
+
+	/*
+	 * Finds the nearest entities to a point, including across the edges of the world, nearest first.
+	 * Only entities inside the box around the point are considered, as with findNeighbours(), so
+	 * fewer may be found. The results can be read with getNeighbours().
+	 * @param x, the x coordinate of the point.
+	 * @param y, the y coordinate of the point.
+	 * @param nearest, the most entities to find.
+	 * @param range, half the width of the box.
+	 * @param exclude, an entity to leave out (the one at the point), or -1.
+	 * @return found int, the number of entities found.
+	 */
+	public int findNearest(double x, double y, int nearest, double range, int exclude) {
+
+		if (heapEntity.length < nearest) {
+			heapEntity = new int[nearest];
+			heapDistance = new double[nearest];
+		}
+
+		int found = 0;
+		int centreColumn = cellColumn(x);
+		int centreRow = cellRow(y);
+		double cellSize = Math.min(cellWidth, cellHeight);
+
+		//Offsets beyond these would visit a column or row of cells a second time, the far side of the world.
+		int leftmost = -(cellsAcross - 1) / 2;
+		int rightmost = cellsAcross / 2;
+		int topmost = -(cellsDown - 1) / 2;
+		int bottommost = cellsDown / 2;
+
+		for (int ring = 0; ring <= Math.max(rightmost - leftmost, bottommost - topmost); ring++) {
+
+			//Every entity in this ring of cells is at least this far away.
+			double closest = Math.max(0, ring - 1) * cellSize;
+			if (closest > range || (found == nearest && closest * closest > heapDistance[0])) {
+				break;
+			}
+
+			for (int row = Math.max(-ring, topmost); row <= Math.min(ring, bottommost); row++) {
+
+				//Only the first and last rows of the ring are whole, the rest are just the two ends.
+				int step = Math.abs(row) == ring ? 1 : 2 * ring;
+
+				for (int column = -ring; column <= ring; column = column + step) {
+
+					if (column < leftmost || column > rightmost) {
+						continue;
+					}
+
+					int cell = cellKey(Math.floorMod(centreColumn + column, cellsAcross), Math.floorMod(centreRow + row, cellsDown));
+
+					for (int entity = bucketHead[bucketOf(cell)]; entity >= 0; entity = nextInBucket[entity]) {
+
+						if (cellOfEntity[entity] != cell || entity == exclude) {
+							continue;
+						}
+
+						double xDist = world.deltaX(x, entityX[entity]);
+						double yDist = world.deltaY(y, entityY[entity]);
+						if (Math.abs(xDist) > range || Math.abs(yDist) > range) {
+							continue;
+						}
+
+						double distance = xDist * xDist + yDist * yDist;
+
+						if (found < nearest) {
+							heapEntity[found] = entity;
+							heapDistance[found] = distance;
+							siftUp(found++);
+						} else if (distance < heapDistance[0]) {
+							heapEntity[0] = entity;
+							heapDistance[0] = distance;
+							siftDown(0, found);
+						}
+
+					}
+
+				}
+
+			}
+
+		}
+
+		//Take the furthest off the top of the heap each time, filling the results from the back.
+		if (neighbours.length < found) {
+			neighbours = new int[Math.max(found, neighbours.length * 2)];
+		}
+		for (int size = found; size > 0; size--) {
+			neighbours[size - 1] = heapEntity[0];
+			heapEntity[0] = heapEntity[size - 1];
+			heapDistance[0] = heapDistance[size - 1];
+			siftDown(0, size - 1);
+		}
+
+		return found;
+
+	}
+
+	/*
+	 * Moves an entry up the heap until its parent is further away than it.
+	 */
+	private void siftUp(int index) {
+
+		while (index > 0) {
+
+			int parent = (index - 1) / 2;
+			if (heapDistance[parent] >= heapDistance[index]) {
+				return;
+			}
+			swap(parent, index);
+			index = parent;
+
+		}
+
+	}
+
+	/*
+	 * Moves an entry down the heap until both its children are nearer than it.
+	 */
+	private void siftDown(int index, int size) {
+
+		while (true) {
+
+			int furthest = index;
+			int left = index * 2 + 1;
+			int right = left + 1;
+
+			if (left < size && heapDistance[left] > heapDistance[furthest]) {
+				furthest = left;
+			}
+			if (right < size && heapDistance[right] > heapDistance[furthest]) {
+				furthest = right;
+			}
+			if (furthest == index) {
+				return;
+			}
+
+			swap(index, furthest);
+			index = furthest;
+
+		}
+
+	}
+
+	private void swap(int first, int second) {
+
+		int entity = heapEntity[first];
+		heapEntity[first] = heapEntity[second];
+		heapEntity[second] = entity;
+
+		double distance = heapDistance[first];
+		heapDistance[first] = heapDistance[second];
+		heapDistance[second] = distance;
+
+	}
+
+	/*
+	 * Gets the entities found by the last call to findNeighbours() or findNearest(). Only the first "found"
+	 * values are valid, and they are replaced by the next search.
+	 * @return neighbours int[]
+	 */
+	public int[] getNeighbours() {
+		return neighbours;
+	}
+
+	/*
+	 * Gets the world the grid covers.
+	 * @return world World
+	 */
+	public World getWorld() {
+		return world;
+	}
+
+	/*
+	 * Finds the column of cells an x coordinate is in.
+	 */
+	private int cellColumn(double x) {
+		return Math.min(cellsAcross - 1, Math.max(0, (int) (world.wrapX(x) / cellWidth)));
+	}
+
+	/*
+	 * Finds the row of cells a y coordinate is in.
+	 */
+	private int cellRow(double y) {
+		return Math.min(cellsDown - 1, Math.max(0, (int) (world.wrapY(y) / cellHeight)));
+	}
+
+	/*
+	 * Gives every cell a unique number.
+	 */
+	private int cellKey(int column, int row) {
+		return row * cellsAcross + column;
+	}
+
+	/*
+	 * Picks the hash bucket for a cell, mixing the bits so neighbouring cells spread out.
+	 */
+	private int bucketOf(int cell) {
+		int hash = cell * 0x9E3779B1;
+		return (hash ^ (hash >>> 16)) & bucketMask;
+	}
+
+}
@@ -0,0 +1,165 @@
+/*The geometry package contains anything related
+to the positioning system implemented in this program.*/
+package geometry;
+
+//Import settings so the world size can be configured.
+import tools.Settings;
+
+/*
+ * The world is the area the entities live in. It wraps around at the edges (it is a torus),
+ * so an entity leaving the right hand side reappears on the left, and two entities either
+ * side of an edge are treated as being next to each other rather than a world apart.
+ */
+public class World {
+
+	//The size of the world.
+	private double width;
+	private double height;
+
+	//The obstacles in the world, null if there are none.
+	private SignedDistanceField obstacles;
+
+	/*
+	 * Constructor for a world of a specific size.
+	 * @param width, the width of the world.
+	 * @param height, the height of the world.
+	 */
+	public World(double width, double height) {
+		this.width = width;
+		this.height = height;
+	}
+
+	/*
+	 * Creates a world using the size from the settings ("world.width" and "world.height"),
+	 * defaulting to the original 700x500.
+	 * @return world World
+	 */
+	public static World fromSettings() {
+		return new World(Settings.getDouble("world.width", 700), Settings.getDouble("world.height", 500));
+	}
+
+	/*
+	 * Wraps an x coordinate so it lies inside the world, 0 <= x < width.
+	 * @param x, the x coordinate to wrap.
+	 * @return x double
+	 */
+	public double wrapX(double x) {
+
+		//Most of the time an entity has only just crossed an edge, so avoid the division.
+		if (x < 0) {
+			x = x + width;
+		} else if (x >= width) {
+			x = x - width;
+		}
+
+		//Anything still outside was further than a whole world away.
+		if (x < 0 || x >= width) {
+			x = x - width * Math.floor(x / width);
+		}
+
+		return x;
+
+	}
+
+	/*
+	 * Wraps a y coordinate so it lies inside the world, 0 <= y < height.
+	 * @param y, the y coordinate to wrap.
+	 * @return y double
+	 */
+	public double wrapY(double y) {
+
+		if (y < 0) {
+			y = y + height;
+		} else if (y >= height) {
+			y = y - height;
+		}
+
+		if (y < 0 || y >= height) {
+			y = y - height * Math.floor(y / height);
+		}
+
+		return y;
+
+	}
+
+	/*
+	 * Finds the shortest x distance from one point to another, which may be across an edge.
+	 * @param fromX, the x coordinate of the first point.
+	 * @param toX, the x coordinate of the second point.
+	 * @return xDist double, between -width/2 and width/2.
+	 */
+	public double deltaX(double fromX, double toX) {
+
+		double xDist = toX - fromX;
+
+		if (xDist > width / 2) {
+			xDist = xDist - width;
+		} else if (xDist < -width / 2) {
+			xDist = xDist + width;
+		}
+
+		return xDist;
+
+	}
+
+	/*
+	 * Finds the shortest y distance from one point to another, which may be across an edge.
+	 * @param fromY, the y coordinate of the first point.
+	 * @param toY, the y coordinate of the second point.
+	 * @return yDist double, between -height/2 and height/2.
+	 */
+	public double deltaY(double fromY, double toY) {
+
+		double yDist = toY - fromY;
+
+		if (yDist > height / 2) {
+			yDist = yDist - height;
+		} else if (yDist < -height / 2) {
+			yDist = yDist + height;
+		}
+
+		return yDist;
+
+	}
+
+	/*
+	 * Gets the width of the world.
+	 * @return width double
+	 */
+	public double getWidth() {
+		return width;
+	}
+
+	/*
+	 * Gets the height of the world.
+	 * @return height double
+	 */
+	public double getHeight() {
+		return height;
+	}
+
+	/*
+	 * Gets the obstacles in the world.
+	 * @return obstacles SignedDistanceField, or null if there are none.
+	 */
+	public SignedDistanceField getObstacles() {
+		return obstacles;
+	}
+
+	/*
+	 * Sets the obstacles in the world.
+	 * @param obstacles, a field worked out from the obstacles, or null to remove them.
+	 */
+	public void setObstacles(SignedDistanceField obstacles) {
+		this.obstacles = obstacles;
+	}
+
+	/*
+	 * Provides a string version of the world suitable for display.
+	 * @return World.toString, the size of the world as a string
+	 */
+	public String toString() {
+		return ("World: " + width + " x " + height);
+	}
+
+}
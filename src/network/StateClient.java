@@ -0,0 +1,253 @@
+/* The network package contains anything related to watching the simulation from other machines. */
+package network;
+
+//Imports for the connection.
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Locale;
+
+/*
+ * A client for StateServer, which decodes the frames it is sent. Run on its own it connects, asks
+ * for a viewport and prints what it receives once a second, for testing the server, e.g. (with
+ * stream.port=7777 set for the simulation)
+ *
+ * 		java network.StateClient localhost 7777 0 0 350 250
+ *
+ * asks for the top left quarter of a 700x500 world. The printed values are the frames received, the
+ * ticks missed because the client was slower than the simulation, the entities and bytes per frame,
+ * and the position of the first entity of the last frame.
+ */
+public class StateClient {
+
+	//The connection.
+	private Socket socket;
+	private DataInputStream input;
+	private DataOutputStream output;
+
+	//The size of the world being streamed.
+	private float worldWidth;
+	private float worldHeight;
+
+	//The last frame received. Only the first "count" entities are valid.
+	private long tick = -1;
+	private int count;
+	private float[] x = new float[1024];
+	private float[] y = new float[1024];
+	private float[] angle = new float[1024];
+	private boolean[] predator = new boolean[1024];
+	private int frameBytes;
+	private byte[] buffer = new byte[1 << 16];
+
+	/*
+	 * Constructor which connects to a server.
+	 * @param host, the machine the server is on.
+	 * @param port, the port the server is listening on.
+	 * @throws IOException if the server cannot be reached or is not a StateServer.
+	 */
+	public StateClient(String host, int port) throws IOException {
+
+		socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+		input = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+		output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+		if (input.readInt() != StateServer.MAGIC) {
+			socket.close();
+			throw new IOException("Not a flocking state server");
+		}
+
+		worldWidth = input.readFloat();
+		worldHeight = input.readFloat();
+
+	}
+
+	/*
+	 * Asks the server to only send the entities inside part of the world.
+	 * @param left, the x coordinate of the left of the viewport.
+	 * @param top, the y coordinate of the top of the viewport.
+	 * @param width, the width of the viewport.
+	 * @param height, the height of the viewport.
+	 */
+	public void setViewport(float left, float top, float width, float height) throws IOException {
+
+		output.writeFloat(left);
+		output.writeFloat(top);
+		output.writeFloat(width);
+		output.writeFloat(height);
+		output.flush();
+
+	}
+
+	/*
+	 * Waits for the next frame and decodes it.
+	 * @throws IOException if the connection is lost.
+	 */
+	public void readFrame() throws IOException {
+
+		frameBytes = input.readInt();
+		if (frameBytes > buffer.length) {
+			buffer = new byte[Math.max(frameBytes, buffer.length * 2)];
+		}
+		input.readFully(buffer, 0, frameBytes);
+
+		int position = 0;
+		tick = 0;
+		for (int index = 0; index < 8; index++) {
+			tick = tick << 8 | (buffer[position++] & 0xFF);
+		}
+		count = 0;
+		for (int index = 0; index < 4; index++) {
+			count = count << 8 | (buffer[position++] & 0xFF);
+		}
+
+		if (count > x.length) {
+			x = new float[count];
+			y = new float[count];
+			angle = new float[count];
+			predator = new boolean[count];
+		}
+
+		int quantisedX = 0;
+		int quantisedY = 0;
+
+		for (int entity = 0; entity < count; entity++) {
+
+			//Read the x and y steps (zigzag varints, see StateServer).
+			for (int axis = 0; axis < 2; axis++) {
+
+				int zigzag = 0;
+				int shift = 0;
+				int next;
+				do {
+					next = buffer[position++];
+					zigzag = zigzag | (next & 0x7F) << shift;
+					shift = shift + 7;
+				} while ((next & 0x80) != 0);
+
+				int step = (zigzag >>> 1) ^ -(zigzag & 1);
+				if (axis == 0) {
+					quantisedX = (quantisedX + step) & 0xFFFF;
+				} else {
+					quantisedY = (quantisedY + step) & 0xFFFF;
+				}
+
+			}
+
+			int heading = buffer[position++] & 0xFF;
+			x[entity] = quantisedX / 65536f * worldWidth;
+			y[entity] = quantisedY / 65536f * worldHeight;
+			angle[entity] = (heading >>> 1) * 360f / 128;
+			predator[entity] = (heading & 1) != 0;
+
+		}
+
+	}
+
+	/*
+	 * Disconnects from the server.
+	 */
+	public void close() throws IOException {
+		socket.close();
+	}
+
+	/*
+	 * Getters for the world's size and the last frame received.
+	 */
+	public float getWorldWidth() {
+		return worldWidth;
+	}
+
+	public float getWorldHeight() {
+		return worldHeight;
+	}
+
+	public long getTick() {
+		return tick;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public float getX(int entity) {
+		return x[entity];
+	}
+
+	public float getY(int entity) {
+		return y[entity];
+	}
+
+	public float getAngle(int entity) {
+		return angle[entity];
+	}
+
+	public boolean isPredator(int entity) {
+		return predator[entity];
+	}
+
+	public int getFrameBytes() {
+		return frameBytes;
+	}
+
+	/*
+	 * Connects to a server and prints what it receives once a second.
+	 * @param args, the host, port, then optionally the viewport's left, top, width and height, and
+	 * how many seconds to run for (forever if not given).
+	 */
+	public static void main(String[] args) throws IOException {
+
+		String host = args.length > 0 ? args[0] : "localhost";
+		int port = args.length > 1 ? Integer.parseInt(args[1]) : 7777;
+
+		StateClient client = new StateClient(host, port);
+		System.out.printf(Locale.ROOT, "Connected to %s:%d, world %.0fx%.0f%n", host, port, client.getWorldWidth(), client.getWorldHeight());
+
+		if (args.length > 5) {
+			client.setViewport(Float.parseFloat(args[2]), Float.parseFloat(args[3]), Float.parseFloat(args[4]), Float.parseFloat(args[5]));
+		}
+
+		long end = args.length > 6 ? System.nanoTime() + (long) (Double.parseDouble(args[6]) * 1e9) : Long.MAX_VALUE;
+		long reportAt = System.nanoTime() + 1000000000L;
+		long frames = 0;
+		long missed = 0;
+		long entities = 0;
+		long bytes = 0;
+		long lastTick = -1;
+
+		while (System.nanoTime() < end) {
+
+			client.readFrame();
+
+			if (lastTick >= 0) {
+				missed = missed + Math.max(0, client.getTick() - lastTick - 1);
+			}
+			lastTick = client.getTick();
+			frames++;
+			entities = entities + client.getCount();
+			bytes = bytes + client.getFrameBytes() + 4;
+
+			if (System.nanoTime() >= reportAt) {
+
+				System.out.printf(Locale.ROOT, "tick %d: %d frames, %d ticks missed, %.0f entities and %.0f bytes per frame%s%n", lastTick, frames,
+						missed, entities / (double) frames, bytes / (double) frames, client.getCount() == 0 ? ""
+								: String.format(Locale.ROOT, ", first entity at (%.1f, %.1f)", client.getX(0), client.getY(0)));
+
+				frames = 0;
+				missed = 0;
+				entities = 0;
+				bytes = 0;
+				reportAt = reportAt + 1000000000L;
+
+			}
+
+		}
+
+		client.close();
+
+	}
+
+}
@@ -0,0 +1,629 @@
+/* The network package contains anything related to watching the simulation from other machines. */
+package network;
+
+//Imports for the frames being streamed and the world they come from.
+import drawing.EntityFrame;
+import geometry.World;
+import tools.Settings;
+
+//Imports for running a simulation without a window (see main()).
+import entity.Integrator;
+import entity.Population;
+import entity.Simulation;
+import geometry.CartesianCoordinate;
+import tools.Utils;
+
+//Imports for the sockets and the client threads.
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Streams the simulation to viewers on other machines over TCP, so a run can be watched without a
+ * window on the machine running it. StateClient is a simple client which connects and reports what
+ * it receives.
+ *
+ * The simulation copies each tick into a spare EntityFrame and publishes it as the latest frame,
+ * exactly as it does for the canvas and FrameExporter. Each client has its own thread which waits
+ * for a new latest frame, encodes the entities in the client's viewport, lets go of the frame and
+ * then sends it. A client which is slow to read simply misses the ticks published while it was
+ * sending, so clients never hold up the simulation. A client whose send has not finished after
+ * "stream.timeout" milliseconds is disconnected. If every spare frame is still being encoded the
+ * tick is not published (and is counted).
+ *
+ * Client threads are virtual threads on a Java which has them, and ordinary daemon threads otherwise.
+ *
+ * FlockingProgram streams when "stream.port" is set, but always opens a window. On a machine with no
+ * display, run this class on its own instead (see main()), which runs the simulation and streams it
+ * without any window:
+ *
+ * 		java -Djava.awt.headless=true network.StateServer 7777 10000
+ *
+ * The protocol is big endian. When a client connects the server sends
+ *
+ * 		int MAGIC, float world width, float world height
+ *
+ * and the client can then send its viewport, in world units, at any time
+ *
+ * 		float left, float top, float width, float height
+ *
+ * (the whole world until it does). For every tick sent the server writes
+ *
+ * 		int length of the rest of the frame, long tick, int number of entities, then for each entity
+ * 		varint x step, varint y step, byte heading
+ *
+ * Positions are quantised to 1/65536 of the world's width and height. The entities are sent in the
+ * order of the frame's cells, so each one is close to the one before, and each x and y is sent as
+ * the (wrapped, 16 bit) step from the previous entity, zigzag encoded so small steps either way take
+ * one or two bytes. The first entity's step is from 0. The heading byte holds the movement angle in
+ * 128 steps (heading * 360 / 128 degrees) in its top 7 bits and 1 for a predator in its lowest bit.
+ */
+public class StateServer {
+
+	//Sent first, so a client knows it is talking to this server ("FLK1").
+	public static final int MAGIC = 0x464C4B31;
+
+	//The number of frames shared between the simulation and the clients.
+	private static final int FRAMES = 4;
+
+	//The world being streamed.
+	private World world;
+
+	//Accepts new clients, and the clients connected.
+	private ServerSocket serverSocket;
+	private List<Connection> connections = new CopyOnWriteArrayList<Connection>();
+	private int maxClients;
+	private long timeout;
+
+	//The frames, how many clients are reading each, the spare ones and the latest one published.
+	private Map<EntityFrame, int[]> readers = new IdentityHashMap<EntityFrame, int[]>();
+	private BlockingQueue<EntityFrame> spareFrames;
+	private EntityFrame latest;
+	private boolean closed;
+
+	//Counters.
+	private AtomicLong published = new AtomicLong();
+	private AtomicLong skipped = new AtomicLong();
+	private AtomicLong framesSent = new AtomicLong();
+	private AtomicLong bytesSent = new AtomicLong();
+	private AtomicLong clientsDropped = new AtomicLong();
+
+	/*
+	 * Constructor which starts listening for clients.
+	 * @param world, the world being streamed.
+	 * @param port, the port to listen on, 0 for any free port (see getPort()).
+	 * @param maxClients, the most clients connected at once, others are turned away.
+	 * @param timeout, the longest a send can take in milliseconds before the client is disconnected.
+	 * @throws IOException if the port cannot be listened on.
+	 */
+	public StateServer(World world, int port, int maxClients, long timeout) throws IOException {
+
+		this.world = world;
+		this.maxClients = maxClients;
+		this.timeout = timeout;
+
+		spareFrames = new ArrayBlockingQueue<EntityFrame>(FRAMES);
+		for (int counter = 0; counter < FRAMES; counter++) {
+			EntityFrame frame = new EntityFrame(world);
+			readers.put(frame, new int[1]);
+			spareFrames.add(frame);
+		}
+
+		serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(port));
+
+		Thread acceptor = new Thread(this::acceptClients, "state-server");
+		acceptor.setDaemon(true);
+		acceptor.start();
+
+	}
+
+	/*
+	 * Creates a server using the "stream." settings.
+	 * @param world, the world being streamed.
+	 * @return server StateServer, or null if streaming is turned off or the port cannot be used.
+	 */
+	public static StateServer fromSettings(World world) {
+
+		String port = Settings.getString("stream.port", "");
+		if (port.isEmpty()) {
+			return null;
+		}
+
+		try {
+			StateServer server = new StateServer(world, Integer.parseInt(port), Settings.getInt("stream.clients", 16),
+					Settings.getInt("stream.timeout", 2000));
+			System.out.println("Streaming the simulation on port " + server.getPort() + ".");
+			return server;
+		} catch (IOException | NumberFormatException e) {
+			System.out.println("Cannot stream the simulation on port " + port + " (" + e + ").");
+			return null;
+		}
+
+	}
+
+	/*
+	 * Takes a spare frame to copy a tick into. Never waits.
+	 * @return frame EntityFrame, or null if none are spare (the tick is counted as skipped).
+	 */
+	public EntityFrame takeFrame() {
+
+		EntityFrame frame = spareFrames.poll();
+		if (frame == null) {
+			skipped.incrementAndGet();
+		}
+		return frame;
+
+	}
+
+	/*
+	 * Makes a filled in frame (from takeFrame()) the latest frame, wakes the clients, and disconnects
+	 * any client whose send has taken too long. The caller must not touch the frame afterwards.
+	 * @param frame, the frame to publish.
+	 */
+	public void publish(EntityFrame frame) {
+
+		synchronized (readers) {
+
+			EntityFrame previous = latest;
+			latest = frame;
+
+			//The previous frame is spare once no client is reading it.
+			if (previous != null && readers.get(previous)[0] == 0) {
+				spareFrames.add(previous);
+			}
+
+			readers.notifyAll();
+
+		}
+
+		published.incrementAndGet();
+
+		long now = System.nanoTime();
+		for (Connection connection : connections) {
+			long started = connection.sendStarted;
+			if (started != 0 && now - started > timeout * 1000000) {
+				connection.drop();
+			}
+		}
+
+	}
+
+	/*
+	 * Waits for a frame newer than the one a client last sent and marks it as being read.
+	 * @param lastTick, the tick the client last sent.
+	 * @return frame EntityFrame, or null if the server has been closed.
+	 */
+	private EntityFrame acquire(long lastTick) throws InterruptedException {
+
+		synchronized (readers) {
+
+			while (!closed && (latest == null || latest.getTick() == lastTick)) {
+				readers.wait(1000);
+			}
+
+			if (closed) {
+				return null;
+			}
+
+			readers.get(latest)[0]++;
+			return latest;
+
+		}
+
+	}
+
+	/*
+	 * Marks a frame as no longer being read by a client, making it spare if it has been replaced.
+	 * @param frame, the frame from acquire().
+	 */
+	private void release(EntityFrame frame) {
+
+		synchronized (readers) {
+
+			if (--readers.get(frame)[0] == 0 && frame != latest) {
+				spareFrames.add(frame);
+			}
+
+		}
+
+	}
+
+	/*
+	 * Accepts clients until the server is closed, giving each its own thread.
+	 */
+	private void acceptClients() {
+
+		while (!serverSocket.isClosed()) {
+
+			try {
+
+				Socket socket = serverSocket.accept();
+
+				if (connections.size() >= maxClients) {
+					socket.close();
+					continue;
+				}
+
+				Connection connection = new Connection(socket);
+				connections.add(connection);
+				startThread(connection, "state-client-" + socket.getRemoteSocketAddress());
+
+			} catch (IOException e) {
+				//The server socket was closed, or the client went away while connecting.
+			}
+
+		}
+
+	}
+
+	/*
+	 * Starts a virtual thread if this Java has them, otherwise a daemon thread.
+	 */
+	private static void startThread(Runnable runnable, String name) {
+
+		try {
+			Method startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+			startVirtualThread.invoke(null, runnable);
+			return;
+		} catch (ReflectiveOperationException e) {
+			//No virtual threads before Java 21.
+		}
+
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		thread.start();
+
+	}
+
+	/*
+	 * Stops accepting clients and disconnects every client.
+	 */
+	public void close() {
+
+		synchronized (readers) {
+			closed = true;
+			readers.notifyAll();
+		}
+
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			//Already closed.
+		}
+
+		for (Connection connection : connections) {
+			connection.close();
+		}
+
+	}
+
+	/*
+	 * Getters for the port being listened on and the counters.
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	public int getClients() {
+		return connections.size();
+	}
+
+	public long getPublished() {
+		return published.get();
+	}
+
+	public long getSkipped() {
+		return skipped.get();
+	}
+
+	public long getFramesSent() {
+		return framesSent.get();
+	}
+
+	public long getBytesSent() {
+		return bytesSent.get();
+	}
+
+	public long getClientsDropped() {
+		return clientsDropped.get();
+	}
+
+	/*
+	 * Runs the simulation without a window and streams it. The world, integrator and starting
+	 * population come from the settings as in FlockingProgram, the behaviours are left at the on
+	 * screen controls' defaults, and a tick is run every 20 milliseconds.
+	 * @param args, the port (defaults to "stream.port", then 7777), then how many entities to start
+	 * with if the settings do not give a population (default 1000).
+	 */
+	public static void main(String[] args) throws IOException {
+
+		String setting = Settings.getString("stream.port", "");
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : setting.isEmpty() ? 7777 : Integer.parseInt(setting);
+		int number = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+
+		World world = World.fromSettings();
+		Simulation simulation = new Simulation(world, Integrator.fromSettings(), new CartesianCoordinate(100, 100));
+
+		Population population = Population.fromSettings();
+		simulation.populate(population != null ? population : Population.uniform(number, System.nanoTime()));
+
+		StateServer server = new StateServer(world, port, Settings.getInt("stream.clients", 16), Settings.getInt("stream.timeout", 2000));
+		System.out.println("Streaming " + simulation.getFlockState().getCount() + " entities on port " + server.getPort() + ".");
+
+		while (true) {
+
+			Utils.pause(20);
+			simulation.tick();
+
+			EntityFrame frame = server.takeFrame();
+			if (frame != null) {
+				simulation.getFlockState().copyTo(frame, simulation.getTick());
+				server.publish(frame);
+			}
+
+			//Report how the viewers are keeping up every so often.
+			if (simulation.getTick() % 1000 == 0) {
+				System.out.println(server);
+			}
+
+		}
+
+	}
+
+	@Override
+	public String toString() {
+		return "Streamed " + getPublished() + " ticks (skipped " + getSkipped() + ") to " + getClients() + " clients, sent "
+				+ getFramesSent() + " frames, " + getBytesSent() / 1024 + " KB, dropped " + getClientsDropped() + " slow clients";
+	}
+
+	/*
+	 * One connected client, and the thread sending it frames.
+	 */
+	private class Connection implements Runnable {
+
+		private Socket socket;
+		private DataInputStream input;
+		private DataOutputStream output;
+
+		//The part of the world the client can see.
+		private float left = 0;
+		private float top = 0;
+		private float width = Float.MAX_VALUE;
+		private float height = Float.MAX_VALUE;
+
+		//The frame being encoded, reused for every tick.
+		private byte[] buffer = new byte[1 << 16];
+		private int size;
+
+		//When the current send started (System.nanoTime()), 0 when not sending.
+		private volatile long sendStarted;
+		private volatile boolean open = true;
+
+		Connection(Socket socket) throws IOException {
+
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			input = new DataInputStream(socket.getInputStream());
+			output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+
+		}
+
+		@Override
+		public void run() {
+
+			try {
+
+				output.writeInt(MAGIC);
+				output.writeFloat((float) world.getWidth());
+				output.writeFloat((float) world.getHeight());
+				output.flush();
+
+				long lastTick = -1;
+
+				while (open) {
+
+					EntityFrame frame = acquire(lastTick);
+					if (frame == null) {
+						break;
+					}
+
+					//Encode while holding the frame, then let go of it before sending.
+					try {
+						readViewport();
+						encode(frame);
+						lastTick = frame.getTick();
+					} finally {
+						release(frame);
+					}
+
+					sendStarted = System.nanoTime();
+					output.writeInt(size);
+					output.write(buffer, 0, size);
+					output.flush();
+					sendStarted = 0;
+
+					framesSent.incrementAndGet();
+					bytesSent.addAndGet(size + 4);
+
+				}
+
+			} catch (IOException | InterruptedException e) {
+				//The client disconnected, or was disconnected for being too slow.
+			} finally {
+				close();
+			}
+
+		}
+
+		/*
+		 * Reads any viewports the client has sent since the last frame, without waiting.
+		 */
+		private void readViewport() throws IOException {
+
+			InputStream stream = socket.getInputStream();
+
+			while (stream.available() >= 16) {
+				left = input.readFloat();
+				top = input.readFloat();
+				width = input.readFloat();
+				height = input.readFloat();
+			}
+
+		}
+
+		/*
+		 * Encodes the entities of a frame inside the viewport into the buffer.
+		 */
+		private void encode(EntityFrame frame) {
+
+			size = 0;
+			writeLong(frame.getTick());
+			int countAt = size;
+			size = size + 4;
+
+			double worldWidth = world.getWidth();
+			double worldHeight = world.getHeight();
+			double viewWidth = Math.min(width, worldWidth);
+			double viewHeight = Math.min(height, worldHeight);
+			double viewLeft = world.wrapX(left);
+			double viewTop = world.wrapY(top);
+
+			//Visit the cells in view, wrapping around the edges of the world, as FrameRenderer does.
+			double cellWidth = frame.getCellWidth();
+			double cellHeight = frame.getCellHeight();
+			int firstColumn = (int) Math.floor(viewLeft / cellWidth);
+			int firstRow = (int) Math.floor(viewTop / cellHeight);
+			int columns = Math.min(frame.getCellsAcross(), (int) Math.floor((viewLeft + viewWidth) / cellWidth) - firstColumn + 1);
+			int rows = Math.min(frame.getCellsDown(), (int) Math.floor((viewTop + viewHeight) / cellHeight) - firstRow + 1);
+			int[] order = frame.getCellOrder();
+
+			int count = 0;
+			int previousX = 0;
+			int previousY = 0;
+
+			for (int row = firstRow; row < firstRow + rows; row++) {
+				for (int column = firstColumn; column < firstColumn + columns; column++) {
+
+					int cell = frame.getCell(column, row);
+
+					for (int index = frame.getCellStart(cell); index < frame.getCellEnd(cell); index++) {
+
+						int entity = order[index];
+						double x = frame.getX(entity);
+						double y = frame.getY(entity);
+
+						//Skip entities in the cells at the edge of the view which are just out of it.
+						if (world.wrapX(x - viewLeft) > viewWidth || world.wrapY(y - viewTop) > viewHeight) {
+							continue;
+						}
+
+						int quantisedX = (int) (world.wrapX(x) / worldWidth * 65536) & 0xFFFF;
+						int quantisedY = (int) (world.wrapY(y) / worldHeight * 65536) & 0xFFFF;
+						double angle = frame.getAngle(entity);
+						int heading = Double.isNaN(angle) ? 0 : (int) Math.round(angle / 360 * 128) & 127;
+
+						ensureRoom(11);
+						writeStep(quantisedX - previousX);
+						writeStep(quantisedY - previousY);
+						buffer[size++] = (byte) (heading << 1 | (frame.isPredator(entity) ? 1 : 0));
+
+						previousX = quantisedX;
+						previousY = quantisedY;
+						count++;
+
+					}
+
+				}
+			}
+
+			buffer[countAt] = (byte) (count >>> 24);
+			buffer[countAt + 1] = (byte) (count >>> 16);
+			buffer[countAt + 2] = (byte) (count >>> 8);
+			buffer[countAt + 3] = (byte) count;
+
+		}
+
+		/*
+		 * Writes a step between two quantised coordinates, wrapped to 16 bits and zigzag encoded
+		 * as a varint (7 bits per byte, the top bit set on every byte but the last).
+		 */
+		private void writeStep(int step) {
+
+			int wrapped = (short) step;
+			int zigzag = (wrapped << 1) ^ (wrapped >> 31);
+
+			while (zigzag >= 0x80) {
+				buffer[size++] = (byte) (zigzag | 0x80);
+				zigzag = zigzag >>> 7;
+			}
+			buffer[size++] = (byte) zigzag;
+
+		}
+
+		private void writeLong(long value) {
+
+			ensureRoom(8);
+			for (int shift = 56; shift >= 0; shift -= 8) {
+				buffer[size++] = (byte) (value >>> shift);
+			}
+
+		}
+
+		private void ensureRoom(int bytes) {
+
+			if (size + bytes > buffer.length) {
+				byte[] bigger = new byte[Math.max(size + bytes, buffer.length * 2)];
+				System.arraycopy(buffer, 0, bigger, 0, size);
+				buffer = bigger;
+			}
+
+		}
+
+		/*
+		 * Disconnects the client for being too slow, and counts it.
+		 */
+		synchronized void drop() {
+
+			if (open) {
+				clientsDropped.incrementAndGet();
+				close();
+			}
+
+		}
+
+		/*
+		 * Disconnects the client.
+		 */
+		synchronized void close() {
+
+			if (!open) {
+				return;
+			}
+			open = false;
+			connections.remove(this);
+
+			try {
+				socket.close();
+			} catch (IOException e) {
+				//Already closed.
+			}
+
+		}
+
+	}
+
+}
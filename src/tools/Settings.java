@@ -0,0 +1,117 @@
+/*Tools contains generic tools for the manipulation of the program.
+ *
+ */
+package tools;
+
+//Imports for reading the settings file.
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/*
+ * Reads the program's settings. Settings are read from "flocking.properties" in the
+ * folder the program is run from, if it exists. Any setting can also be given on the
+ * command line, which wins over the file, e.g.
+ *
+ * 		java -Dworld.width=100000 -Dworld.height=100000 FlockingProgram
+ *
+ * Anything not set in either place uses the default passed in by the caller.
+ */
+public class Settings {
+
+	//The name of the settings file.
+	private static final String SETTINGS_FILE = "flocking.properties";
+
+	//The settings read from the file, loaded the first time a setting is asked for.
+	private static Properties fileSettings;
+
+	/*
+	 * Gets a setting as text.
+	 * @param key, the name of the setting.
+	 * @param defaultValue, the value to use if the setting is not set.
+	 * @return value String
+	 */
+	public static String getString(String key, String defaultValue) {
+
+		//Settings given on the command line win over the file.
+		String value = System.getProperty(key);
+
+		if (value == null) {
+			value = getFileSettings().getProperty(key);
+		}
+
+		if (value == null) {
+			return defaultValue;
+		}
+
+		return value.trim();
+
+	}
+
+	/*
+	 * Gets a setting as a whole number.
+	 * @param key, the name of the setting.
+	 * @param defaultValue, the value to use if the setting is not set or is not a number.
+	 * @return value int
+	 */
+	public static int getInt(String key, int defaultValue) {
+
+		try {
+			return Integer.parseInt(getString(key, Integer.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+
+	}
+
+	/*
+	 * Gets a setting as a decimal number.
+	 * @param key, the name of the setting.
+	 * @param defaultValue, the value to use if the setting is not set or is not a number.
+	 * @return value double
+	 */
+	public static double getDouble(String key, double defaultValue) {
+
+		try {
+			return Double.parseDouble(getString(key, Double.toString(defaultValue)));
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+
+	}
+
+	/*
+	 * Gets a setting as true/false.
+	 * @param key, the name of the setting.
+	 * @param defaultValue, the value to use if the setting is not set.
+	 * @return value boolean
+	 */
+	public static boolean getBoolean(String key, boolean defaultValue) {
+		return Boolean.parseBoolean(getString(key, Boolean.toString(defaultValue)));
+	}
+
+	/*
+	 * Loads the settings file the first time it is needed. If there is no file, or
+	 * it cannot be read, every setting falls back to its default.
+	 * @return fileSettings Properties
+	 */
+	private static synchronized Properties getFileSettings() {
+
+		if (fileSettings == null) {
+
+			fileSettings = new Properties();
+
+			try (InputStream input = new FileInputStream(System.getProperty("flocking.settings", SETTINGS_FILE))) {
+				fileSettings.load(input);
+			} catch (IOException e) {
+				//No settings file, the defaults will be used.
+			}
+
+		}
+
+		return fileSettings;
+
+	}
+
+}
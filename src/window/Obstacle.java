@@ -1,44 +1,74 @@
-/*The window package contains everything related to the controls/GUI.*/
-package window;
-
-//Import the necessities to create the obstacle on a canvas.
-import javax.swing.ImageIcon;
-import javax.swing.JLabel;
-import drawing.Canvas;
-
-public class Obstacle {
-
-	//Create variable to store the canvas.
-	private Canvas canvas;
-
-	/*
-	 * Constructor for the obstacle object.
-	 * @param canvas, a canvas to draw the obstacle on.
-	 */
-	public Obstacle(Canvas canvas) {
-
-		//Sets canvas to local canvas.
-		this.canvas = canvas;
-
-	}
-
-	/*
-	 * Draws the obstacle. 
-	 */
-	public void draw() {
-
-		//Create a new image icon, using the obstacle picture from src.
-		ImageIcon obstacle = new ImageIcon("Obstacle.png"); 
-		
-		//Assign the image icon to a JLabel.
-		JLabel obstacleLabel = new JLabel(obstacle); 
-		
-		//Add the image to the canvas.
-		canvas.add(obstacleLabel); 
-		
-		//Force a redraw of the canvas to show the changes.
-		canvas.revalidate();
-
-	}
-
-}
+/*The window package contains everything related to the controls/GUI.*/
+package window;
+
+//Import the necessities to create the obstacle on a canvas.
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import drawing.Canvas;
+
+//Import the world and the signed distance field the entities use to avoid the obstacle.
+import geometry.SignedDistanceField;
+import geometry.World;
+
+//Import settings to find the obstacle picture.
+import tools.Settings;
+
+public class Obstacle {
+
+	//Create variable to store the canvas and the world.
+	private Canvas canvas;
+	private World world;
+
+	/*
+	 * Constructor for the obstacle object.
+	 * @param canvas, a canvas to draw the obstacle on.
+	 * @param world, the world the obstacle is placed in.
+	 */
+	public Obstacle(Canvas canvas, World world) {
+
+		//Sets canvas and world to local canvas and world.
+		this.canvas = canvas;
+		this.world = world;
+
+	}
+
+	/*
+	 * Draws the obstacle and gives the world a signed distance field worked out from the same picture,
+	 * so what the entities avoid is exactly what is drawn. Any opaque part of the picture is an obstacle,
+	 * so the picture ("obstacle.image" in the settings, Obstacle.png by default) can be any shape.
+	 */
+	public void draw() {
+
+		String file = Settings.getString("obstacle.image", "Obstacle.png");
+
+		//No picture means no obstacle.
+		if (file.isEmpty()) {
+			world.setObstacles(null);
+			return;
+		}
+
+		//Load the obstacle picture from src.
+		BufferedImage obstacle;
+		try {
+			obstacle = ImageIO.read(new File(file));
+		} catch (IOException e) {
+			obstacle = null;
+		}
+
+		if (obstacle == null) {
+			System.out.println("Cannot load the obstacle picture " + file + ", there will be no obstacle.");
+			world.setObstacles(null);
+			return;
+		}
+
+		//Place the image at the top left of the world so it pans and zooms with the entities.
+		canvas.setBackdrop(obstacle, 0, 0);
+
+		//Work out the distance field once, one point per pixel of the picture.
+		world.setObstacles(SignedDistanceField.fromImage(obstacle, 0, 0, 1));
+
+	}
+
+}
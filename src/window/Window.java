@@ -1,69 +1,81 @@
-/*The window package contains everything related to the controls/GUI.*/
-package window;
-
-//import the border layouts used
-import java.awt.GridLayout;
-import java.awt.BorderLayout;
-
-//Import the ability to set colours.
-import java.awt.Color;
-
-//Import the canvas, JPanel and swing GUI package.
-import javax.swing.JFrame;
-import javax.swing.JPanel;
-import drawing.Canvas;
-
-public class Window {
-	
-	//Create variables to store the frame, panel and canvas.
-	private JFrame frame;
-	private JPanel sidePanel;
-	private Canvas canvas;
-	
-	/*
-	 * Constructor for the window, it simply assigns the frame, panel and canvas 
-	 * that make up the GUI.
-	 */
-	public Window(JFrame frame, JPanel sidePanel, Canvas canvas) {
-
-		//Assign variables to their local equivalents.
-		this.frame = frame;
-		this.sidePanel = sidePanel;
-		this.canvas = canvas;
-		
-	}
-	
-	/*
-	 * Call to create the frames/basic GUI.
-	 */
-	public void createFrames() {
-
-		//Set the title of the frame.
-		frame.setTitle("Flocking Simulator");
-		
-		//Set the default sizes of the window, which are tailored for a 700x500 canvas.
-		frame.setSize(914, 537);
-		
-		//Set the cross on the frame t terminate the program.
-		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		
-		//Set the visibility to true.
-		frame.setVisible(true);
-
-		//Set the canvas and panel sizes.
-		canvas.setSize(700, 500);
-		sidePanel.setSize(200, 500);
-
-		//Add the frame and sidePanel to the window.
-		frame.add(canvas);
-		frame.add(sidePanel, BorderLayout.EAST);
-
-		//Set up the grid layout for the side panel.
-		sidePanel.setLayout(new GridLayout(21,1));
-
-		//Set the background colour of the side panel.
-		sidePanel.setBackground(Color.lightGray);
-		
-	}
-
-}
+/*The window package contains everything related to the controls/GUI.*/
+package window;
+
+//import the border layouts used
+import java.awt.GridLayout;
+import java.awt.BorderLayout;
+
+//Import the ability to set colours and find the size of the screen.
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Toolkit;
+
+//Import the canvas, JPanel and swing GUI package.
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import drawing.Canvas;
+import geometry.World;
+
+public class Window {
+	
+	//Create variables to store the frame, panel and canvas.
+	private JFrame frame;
+	private JPanel sidePanel;
+	private Canvas canvas;
+	
+	//Create a variable to store the world, the canvas is sized to fit it.
+	private World world;
+	
+	/*
+	 * Constructor for the window, it simply assigns the frame, panel and canvas 
+	 * that make up the GUI and the world that will be shown on the canvas.
+	 */
+	public Window(JFrame frame, JPanel sidePanel, Canvas canvas, World world) {
+
+		//Assign variables to their local equivalents.
+		this.frame = frame;
+		this.sidePanel = sidePanel;
+		this.canvas = canvas;
+		this.world = world;
+		
+	}
+	
+	/*
+	 * Call to create the frames/basic GUI.
+	 */
+	public void createFrames() {
+
+		//Set the title of the frame.
+		frame.setTitle("Flocking Simulator");
+		
+		//The canvas is the size of the world, unless the world is too big to fit on the screen.
+		Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+		int canvasWidth = (int) Math.min(world.getWidth(), screenSize.getWidth() - 214);
+		int canvasHeight = (int) Math.min(world.getHeight(), screenSize.getHeight() - 100);
+		
+		//Set the sizes of the window, leaving room for the side panel (which needs at least 500 pixels of height).
+		frame.setSize(canvasWidth + 214, Math.max(canvasHeight, 500) + 37);
+		
+		//Set the cross on the frame t terminate the program.
+		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		
+		//Set the visibility to true.
+		frame.setVisible(true);
+
+		//Set the canvas and panel sizes.
+		canvas.setSize(canvasWidth, canvasHeight);
+		sidePanel.setSize(200, Math.max(canvasHeight, 500));
+
+		//Add the frame and sidePanel to the window.
+		frame.add(canvas);
+		frame.add(sidePanel, BorderLayout.EAST);
+
+		//Set up the grid layout for the side panel.
+		sidePanel.setLayout(new GridLayout(30,1));
+
+		//Set the background colour of the side panel.
+		sidePanel.setBackground(Color.lightGray);
+		
+	}
+
+}